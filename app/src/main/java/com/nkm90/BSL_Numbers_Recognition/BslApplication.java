@@ -0,0 +1,86 @@
+package com.nkm90.BSL_Numbers_Recognition;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.nkm90.BSL_Numbers_Recognition.basic.PreparedPipeline;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.Prewarmer;
+
+/**
+ * Starts setting up the MediaPipe pipeline on a background thread as soon as the app starts, and
+ * again every time the menu comes back, so the recognition screen finds it ready instead of
+ * loading the native libraries and the graph on the UI thread after the launch button is tapped.
+ * The menu releases the pipeline when it goes away without launching, so the EGL context and the
+ * graph do not stay around while the app is in the background.
+ */
+public class BslApplication extends Application {
+
+    private static final String TAG = "BslApplication";
+
+    private Prewarmer<PreparedPipeline> pipelinePrewarmer;
+    // Time the launch button was tapped, to measure the time until the first landmarks
+    private volatile long launchNanos = -1;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        pipelinePrewarmer = new Prewarmer<>("PipelinePrewarm", () -> PreparedPipeline.create(this),
+                PreparedPipeline::release);
+        prewarmPipeline();
+    }
+
+    /**
+     * Starts preparing a pipeline in the background, unless one is ready or on its way.
+     */
+    public void prewarmPipeline() {
+        if (pipelinePrewarmer.start()) {
+            Log.d(TAG, "Preparing the pipeline in the background");
+        }
+    }
+
+    /**
+     * Releases the pipeline prepared in the background, or the one on its way once it is ready,
+     * when the recognition screen is not going to take it.
+     */
+    public void releasePipeline() {
+        if (pipelinePrewarmer.discard()) {
+            Log.d(TAG, "Releasing the pipeline prepared in the background");
+        }
+    }
+
+    /**
+     * Takes the pipeline prepared in the background, waiting for it if it is not ready yet.
+     *
+     * @return the prepared pipeline, or null when none was prepared or it failed
+     */
+    public PreparedPipeline takePipeline() {
+        long start = System.nanoTime();
+        try {
+            PreparedPipeline pipeline = pipelinePrewarmer.take();
+            if (pipeline == null) {
+                Log.e(TAG, "No pipeline prepared in the background: " + pipelinePrewarmer.getLastError());
+            } else {
+                Log.d(TAG, "Pipeline prepared in " + pipelinePrewarmer.getLastPrepareMicros() / 1000
+                        + " ms (" + pipeline + "), waited " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            return pipeline;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Records the time the recognition screen was asked for.
+     */
+    public void markLaunch() {
+        launchNanos = System.nanoTime();
+    }
+
+    /**
+     * @return time given to the latest {@link #markLaunch()} call, on the monotonic clock, or -1
+     */
+    public long getLaunchNanos() {
+        return launchNanos;
+    }
+}
@@ -0,0 +1,81 @@
+package com.nkm90.BSL_Numbers_Recognition;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkListDecoder;
+import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
+import com.google.protobuf.AbstractParser;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * Parser handed to {@code PacketGetter.getProtoVector} so the serialised hands of a landmarks
+ * packet are decoded straight into the landmark buffer of the pipeline. No landmark message is
+ * built: every call returns null and only counts the hand, so the list returned by the packet
+ * getter just holds one null entry per hand.
+ * <p>
+ * It keeps the hand count of the packet being read, so it is only used from the packet thread
+ * and {@link #reset()} is called before each packet.
+ */
+final class LandmarkBufferParser extends AbstractParser<NormalizedLandmarkList> {
+
+    private final LandmarkListDecoder decoder = new LandmarkListDecoder();
+    private final float[] landmarks;
+    private int handCount;
+
+    /**
+     * @param landmarks buffer where the hands are written, laid out as described on {@link HandLandmarks}
+     */
+    LandmarkBufferParser(float[] landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * Starts a new packet, the next hand decoded goes to the first slot of the buffer.
+     */
+    void reset() {
+        handCount = 0;
+    }
+
+    /**
+     * @return number of hands written to the buffer since the last {@link #reset()}
+     */
+    int getHandCount() {
+        return handCount;
+    }
+
+    /**
+     * Entry point used by the packet getter for every hand of the packet.
+     *
+     * @return always null, the hand is only written to the buffer
+     */
+    @Override
+    public NormalizedLandmarkList parseFrom(byte[] data) throws InvalidProtocolBufferException {
+        decode(data);
+        return null;
+    }
+
+    /**
+     * Any other entry point goes through the generated parser first. It is not used by the
+     * packet getter, so it is only kept to honour the parser contract.
+     */
+    @Override
+    public NormalizedLandmarkList parsePartialFrom(CodedInputStream input, ExtensionRegistryLite extensionRegistry)
+            throws InvalidProtocolBufferException {
+        decode(NormalizedLandmarkList.parser().parsePartialFrom(input, extensionRegistry).toByteArray());
+        return null;
+    }
+
+    private void decode(byte[] data) throws InvalidProtocolBufferException {
+        // The graph tracks up to MAX_HANDS hands, any other hand is left out like before
+        if (handCount == HandLandmarks.MAX_HANDS) {
+            return;
+        }
+        try {
+            decoder.decode(data, landmarks, handCount);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+        handCount++;
+    }
+}
@@ -20,6 +20,8 @@ import java.util.Locale;
 public class MainActivity extends AppCompatActivity {
 
     public TextView resultView;
+    // Set when the recognition screen has been opened since the menu last came back
+    private boolean launched;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,12 +65,10 @@ public class MainActivity extends AppCompatActivity {
         mBuilder.setSingleChoiceItems(listitems, -1, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int i) {
-                if (i==0){
-                    setLocale("en");
-                    recreate();
-                }
-                else if (i==1){
-                    setLocale("es");
+                String lang = i == 0 ? "en" : "es";
+                saveLocale(lang);
+                // The screen is only rebuilt when the language is a different one
+                if (setLocale(lang)) {
                     recreate();
                 }
 
@@ -84,18 +84,31 @@ public class MainActivity extends AppCompatActivity {
 
     /**
      * The setLocale method takes a String with the language to be set on the default
-     * language for the Locale class. I also get saved into the shared preferences of
-     * the app, ready to be used on the others activities if needed.
-     * @param lang String with the language code
+     * language for the Locale class. The configuration is only rewritten when the language
+     * is different from the one in use, so the labels cached for it stay valid.
+     * @param lang String with the language code, empty to keep the language of the device
+     * @return true when the language has changed
      */
-    private void setLocale(String lang) {
+    private boolean setLocale(String lang) {
+        Configuration current = getBaseContext().getResources().getConfiguration();
+        if (lang.isEmpty() || lang.equals(current.locale.getLanguage())) {
+            return false;
+        }
         Locale locale = new Locale(lang);
         Locale.setDefault(locale);
         Configuration config = new Configuration();
         config.locale = locale;
         getBaseContext().getResources().updateConfiguration(
                 config,getBaseContext().getResources().getDisplayMetrics());
-        //Saving the data to the shared preferences
+        return true;
+    }
+
+    /**
+     * Saves the language selected into the shared preferences of the app, ready to be used
+     * on the others activities if needed.
+     * @param lang String with the language code
+     */
+    private void saveLocale(String lang) {
         SharedPreferences.Editor editor =
                 getSharedPreferences("Settings", MODE_PRIVATE).edit();
         editor.putString("My_Lang", lang);
@@ -123,6 +136,8 @@ public class MainActivity extends AppCompatActivity {
      * @param activity It makes reference to the activity class for MediaPipe
      */
     public void openMP(View view, Class<MediaPipeActivity> activity) {
+        ((BslApplication) getApplication()).markLaunch();
+        launched = true;
         Intent intent = new Intent(this, activity);
         startActivityForResult(intent, 1);
     }
@@ -172,6 +187,10 @@ public class MainActivity extends AppCompatActivity {
     {
         Log.d("ActivityLifeCycle", "Main Activity - onResume");
         super.onResume();
+        // Gets the pipeline ready again for the next launch, the previous one went with the
+        // recognition screen
+        ((BslApplication) getApplication()).prewarmPipeline();
+        launched = false;
     }
 
     @Override
@@ -186,6 +205,11 @@ public class MainActivity extends AppCompatActivity {
     {
         Log.d("ActivityLifeCycle", "Main Activity - onStop");
         super.onStop();
+        // Nobody is going to take the pipeline prepared for the launch, it is prepared again
+        // when the menu comes back
+        if (!launched && !isChangingConfigurations()) {
+            ((BslApplication) getApplication()).releasePipeline();
+        }
     }
 
     @Override
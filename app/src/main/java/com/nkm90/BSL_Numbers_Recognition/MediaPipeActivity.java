@@ -15,17 +15,53 @@
 package com.nkm90.BSL_Numbers_Recognition;
 
 import android.content.Intent;
+import android.content.res.AssetFileDescriptor;
 import android.content.pm.ActivityInfo;
+import android.graphics.SurfaceTexture;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
+import android.view.View;
 import android.view.WindowManager;
 import android.widget.TextView;
 import com.nkm90.BSL_Numbers_Recognition.basic.BasicActivity;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmark;
-import com.google.mediapipe.formats.proto.LandmarkProto.NormalizedLandmarkList;
+import com.nkm90.BSL_Numbers_Recognition.basic.PreparedPipeline;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureLabels;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MlpClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionFrames;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionMatcher;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateStore;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.CameraClock;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.FrameRatePolicy;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.GestureVoter;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.LandmarkSmoother;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.RecognitionPipeline;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.ResolutionPolicy;
+import com.nkm90.BSL_Numbers_Recognition.recording.LandmarkRecorder;
+import com.nkm90.BSL_Numbers_Recognition.recording.LandmarkRecordingReader;
+import com.nkm90.BSL_Numbers_Recognition.trace.FrameTrace;
+import com.nkm90.BSL_Numbers_Recognition.trace.StageLatencies;
+import com.google.mediapipe.components.TextureFrameConsumer;
 import com.google.mediapipe.framework.PacketGetter;
 
-import java.util.List;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Activity of MediaPipe multi-hand tracking app.
@@ -34,18 +70,114 @@ public class MediaPipeActivity extends BasicActivity {
 
     private static final String TAG = "MediaPipeActivity";
     private static final String OUTPUT_LANDMARKS_STREAM_NAME = "multi_hand_landmarks";
-    private List<NormalizedLandmarkList> multiHandLandmarks;
+    private static final String GESTURE_RULES_ASSET = "gesture_rules.txt";
+    private static final String DEFAULT_GESTURE_MODEL_ASSET = "gesture_classifier.bin";
+    private static final String DEFAULT_GESTURE_TEMPLATES_ASSET = "gesture_templates.bin";
+    // Nearest reference poses voting, and furthest one taken, in palm lengths
+    private static final int TEMPLATE_NEIGHBOURS = 5;
+    private static final float TEMPLATE_MAX_DISTANCE = 1.5f;
+    private static final String MOTION_TEMPLATES_DIRECTORY = "motion";
+    private static final String MOTION_TEMPLATE_EXTENSION = ".bslr";
+    // About three seconds at 30 frames per second
+    private static final int MAX_MOTION_TEMPLATE_FRAMES = 90;
+    private static final int MOTION_BAND_FRAMES = 10;
+    private static final float MOTION_THRESHOLD = 0.35f;
+    private static final int TRACE_CAPACITY = 2048;
+    private static final String RECORDING_FILE_NAME = "landmarks.bslr";
+    private static final String LATENCY_FILE_NAME = "latency.txt";
+    private static final int DEBUG_OVERLAY_REFRESH_MILLIS = 1000;
+    // 15 minutes at 30 fps, about 14 MB
+    private static final int DEFAULT_RECORDING_FRAMES = 27000;
+    // Frames voting for the committed number, about a third of a second at 30 fps
+    private static final int VOTING_WINDOW_FRAMES = 9;
+    private static final int VOTING_WINDOW_MILLIS = 500;
+    private static final int DEFAULT_COMMIT_STABLE_FRAMES = 6;
+    private static final int DEFAULT_COMMIT_STABLE_MILLIS = 150;
+    private static final int DEFAULT_COMMIT_MIN_CONFIDENCE_PERCENT = 10;
+    private static final int DEFAULT_STABLE_FRAME_RATE = 10;
+    private static final int DEFAULT_IDLE_FRAME_RATE = 5;
+    private static final int DEFAULT_STABLE_AFTER_MILLIS = 1500;
+    private static final int DEFAULT_IDLE_AFTER_MILLIS = 3000;
+    // Camera resolutions tried, from the biggest to the smallest, the first one is the camera helper default
+    private static final int[][] CAMERA_RESOLUTIONS = {
+            {1280, 720}, {960, 540}, {640, 480}, {480, 360}, {320, 240}};
+    private static final int DEFAULT_LATENCY_BUDGET_MILLIS = 120;
+    private static final int LATENCY_WINDOW_MILLIS = 2000;
+    private static final int LATENCY_CONFIRM_WINDOWS = 2;
+    private static final int LATENCY_BACKOFF_MILLIS = 60000;
+    private static final String RESOLUTION_LEVEL_KEY = "Resolution_Level";
+    // Clocks the camera frame timestamps may be on: the monotonic clock on most devices and the
+    // boot time clock on the ones whose camera reports a realtime timestamp source
+    private static final ResolutionPolicy.Clock[] CAMERA_CLOCKS = {
+            () -> System.nanoTime() / 1000,
+            () -> SystemClock.elapsedRealtimeNanos() / 1000,
+    };
+    // A palm moving more than this, in normalised image units, brings the full frame rate back
+    private static final float FRAME_RATE_MOTION_THRESHOLD = 0.03f;
+    // One Euro filter of the landmarks: still cutoff and speed coefficient, cutoff of the speed
+    private static final float SMOOTHING_MIN_CUTOFF_HZ = 1f;
+    private static final float SMOOTHING_BETA = 20f;
+    private static final float SMOOTHING_DERIVATIVE_CUTOFF_HZ = 1f;
+    private static final long SMOOTHING_MAX_GAP_MICROS = 250_000;
+    private static final float SMOOTHING_MAX_JUMP = 0.2f;
+    // Classifies the landmarks on the packet thread and hands the result to the UI thread
+    private RecognitionPipeline pipeline;
+    // Decodes the landmarks packets into the buffer of the pipeline
+    private LandmarkBufferParser landmarkParser;
+    // Lowers the rate of the camera frames sent to the graph while nothing changes, null when disabled
+    private FrameRatePolicy frameRatePolicy;
+    // Picks the camera resolution from the latency of the graph, null when disabled. It is kept for
+    // the whole process so the resolutions found too slow are not tried again on every launch.
+    private static ResolutionPolicy sharedResolutionPolicy;
+    private ResolutionPolicy resolutionPolicy;
+    // Windows of dropped latencies already logged, read on the packet thread only
+    private int loggedDroppedWindows;
+    // Created once, posted to the UI thread only when the values displayed have to change
+    private final Runnable updateResultViews = this::updateResultViews;
+
+    // Events of every frame, kept in memory and only written to the log when the gesture is long pressed
+    private final FrameTrace frameTrace = new FrameTrace(TRACE_CAPACITY);
+    private int packetEvent;
+    private int palmBaseXEvent;
+    private int palmBaseYEvent;
+    private int gestureEvent;
+    private int motionEvent;
+    private final int[] landmarkEvents = new int[HandLandmarks.MAX_HANDS];
+
+    // Time spent on each stage from the camera frame to the screen
+    private final StageLatencies latencies = new StageLatencies();
+    // Clock of the camera frame timestamps, found by the first packets
+    private final CameraClock cameraClock = new CameraClock(CAMERA_CLOCKS);
+    private int cameraToPacketStage;
+    private int decodeStage;
+    private int classifyStage;
+    private int uiPostStage;
+    private int cameraToCommitStage;
+    private int startToPacketStage;
+    private int resumeToPacketStage;
+    private int launchToPacketStage;
+    // Time of the latest post to the UI thread, written before posting
+    private volatile long postedNanos;
+    // Shows the latencies on top of the preview, null when disabled
+    private TextView debugOverlay;
+    private final Runnable updateDebugOverlay = this::updateDebugOverlay;
+
+    // Capture of the landmarks of every packet, only open when enabled on the manifest metadata
+    private volatile LandmarkRecorder landmarkRecorder;
+
+    // Text of every gesture code for the language in use, only read from the UI thread
+    private final GestureLabels gestureLabels = new GestureLabels(this::resolveGestureLabel);
 
     private TextView gesture;
     private TextView result;
-    private long timestamp;
+    private int displayedGesture = GestureCodes.NO_GESTURE;
+    private int displayedCommitted = GestureCodes.NO_GESTURE;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         gesture = findViewById(R.id.gesture);
         result = findViewById(R.id.resultString);
-        timestamp = System.currentTimeMillis();
 
         /*
          * When the result TextView area is pressed, the String thanks is stored
@@ -60,6 +192,41 @@ public class MediaPipeActivity extends BasicActivity {
             finish();
         });
 
+        pipeline = new RecognitionPipeline(new GestureEngine(createHandClassifier()), createGestureVoter());
+        landmarkParser = new LandmarkBufferParser(pipeline.landmarkBuffer());
+        pipeline.setMinConfidence(applicationInfo.metaData.getInt("commitMinConfidencePercent",
+                DEFAULT_COMMIT_MIN_CONFIDENCE_PERCENT) / 100f);
+        // The recorder keeps the raw landmarks, the pipeline smooths them before classifying
+        if (applicationInfo.metaData.getBoolean("smoothLandmarks", true)) {
+            pipeline.setSmoother(new LandmarkSmoother(SMOOTHING_MIN_CUTOFF_HZ, SMOOTHING_BETA,
+                    SMOOTHING_DERIVATIVE_CUTOFF_HZ, SMOOTHING_MAX_GAP_MICROS, SMOOTHING_MAX_JUMP));
+        }
+        if (applicationInfo.metaData.getBoolean("motionMatching", false)) {
+            pipeline.setMotionMatcher(loadMotionTemplates());
+        }
+        if (applicationInfo.metaData.getBoolean("adaptiveResolution", true)) {
+            resolutionPolicy = createResolutionPolicy();
+        }
+        if (applicationInfo.metaData.getBoolean("adaptiveFrameRate", true)) {
+            frameRatePolicy = createFrameRatePolicy();
+        }
+        setupFrameTrace();
+        setupLatencies();
+        if (applicationInfo.metaData.getBoolean("recordLandmarks", false)) {
+            openLandmarkRecorder();
+        }
+        // Long pressing the gesture writes the frames traced so far to the log
+        gesture.setOnLongClickListener(v -> {
+            frameTrace.dump(line -> Log.d(TAG, line));
+            latencies.dump(line -> Log.d(TAG, line));
+            exportLatencies();
+            if (frameRatePolicy != null) {
+                Log.d(TAG, "Camera frames processed " + frameRatePolicy.getProcessedFrames()
+                        + ", dropped " + frameRatePolicy.getDroppedFrames());
+            }
+            return true;
+        });
+
         // keep screen on and the orientation to portrait
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
@@ -69,65 +236,118 @@ public class MediaPipeActivity extends BasicActivity {
         processor.addPacketCallback(
                 OUTPUT_LANDMARKS_STREAM_NAME,
                 (packet) -> {
-                    Log.d(TAG, "Received multi-hand landmarks packet.");
-                    multiHandLandmarks =
-                            PacketGetter.getProtoVector(packet, NormalizedLandmarkList.parser());
-
-                    runOnUiThread(new Runnable() {
-                        @Override
-                        public void run() {
-                            gesture.setText(handGestureCalculator(multiHandLandmarks)); //display gesture on top
-                            String number = handGestureCalculator(multiHandLandmarks); //set the gesture as a String to be used
-                            // Adding timestamp to add the number to the bottom, it will help with building sentences with the results when needed
-                            if (timestamp + 2000 < System.currentTimeMillis() && !number.equals(getResources().getString(R.string.noHands)) && !number.equals("no gesture")){
-                                result.setText(number);
-                                timestamp = System.currentTimeMillis();
-                            }
+                    long arrivedNanos = System.nanoTime();
+                    frameTrace.beginFrame();
+                    long packetTimestamp = packet.getTimestamp();
+                    latencies.record(cameraToPacketStage, cameraClock.latencyMicros(packetTimestamp));
+                    long resumeLatency = pipelineLifecycle.onLandmarks(arrivedNanos);
+                    if (resumeLatency >= 0) {
+                        latencies.record(pipelineLifecycle.wasColdStart() ? startToPacketStage
+                                : resumeToPacketStage, resumeLatency);
+                        long launchNanos = ((BslApplication) getApplication()).getLaunchNanos();
+                        if (pipelineLifecycle.wasColdStart() && launchNanos >= 0) {
+                            latencies.record(launchToPacketStage, (arrivedNanos - launchNanos) / 1000);
                         }
-                    });
-                    Log.d(
-                            TAG,
-                            "[TS:"
-                                    + packet.getTimestamp()
-                                    + "] "
-                                    + getMultiHandLandmarksDebugString(multiHandLandmarks));
+                        Log.d(TAG, "First landmarks " + resumeLatency / 1000 + " ms after "
+                                + (pipelineLifecycle.wasColdStart() ? "start" : "resume"));
+                    }
+                    // The hands are decoded straight into the landmark buffer, the list returned
+                    // only holds empty entries
+                    landmarkParser.reset();
+                    PacketGetter.getProtoVector(packet, landmarkParser);
+                    int handCount = landmarkParser.getHandCount();
+                    long decodedNanos = System.nanoTime();
+                    latencies.record(decodeStage, (decodedNanos - arrivedNanos) / 1000);
+                    frameTrace.record(packetEvent, packetTimestamp, handCount);
+                    LandmarkRecorder recorder = landmarkRecorder;
+                    if (recorder != null) {
+                        recorder.append(packetTimestamp, pipeline.landmarkBuffer(), handCount);
+                    }
+                    if (frameTrace.isEnabled(palmBaseXEvent)) {
+                        traceLandmarks(handCount, packetTimestamp);
+                    }
+
+                    // The frame is classified once, here on the packet thread, and the UI thread
+                    // is only posted to when the values on the screen have to change
+                    boolean changed = pipeline.onFrame(handCount, packetTimestamp);
+                    long classifiedNanos = System.nanoTime();
+                    latencies.record(classifyStage, (classifiedNanos - decodedNanos) / 1000);
+                    if (changed) {
+                        postedNanos = classifiedNanos;
+                        runOnUiThread(updateResultViews);
+                    }
+                    if (resolutionPolicy != null) {
+                        if (resolutionPolicy.onPacket(packetTimestamp)) {
+                            saveResolutionLevel();
+                        }
+                        logDroppedLatencies(packetTimestamp);
+                    }
+                    if (frameRatePolicy != null && frameRatePolicy.onResult(
+                            pipeline.landmarkBuffer(), handCount, pipeline.lastGesture(), packetTimestamp)) {
+                        Log.d(TAG, "Frame rate mode " + frameRatePolicy.getMode());
+                    }
+                    frameTrace.record(gestureEvent, packetTimestamp, pipeline.lastGesture());
+                    if (pipeline.lastMotion() != GestureCodes.NO_GESTURE) {
+                        frameTrace.record(motionEvent, packetTimestamp, pipeline.lastMotion());
+                    }
                 });
     }
 
     /**
-     * The getMultiHandLandmarksDebugString method helps building a readable String for the
-     * debugger, keeping track of the different points positions obtained from the multiHandLandmarks
-     * of MediaPipe.
-     *
-     * @param multiHandLandmarks list on inputs with the different points positions obtained from MediaPipe
-     * @return a String with the points and their respective X, Y and Z positions for each hand recognised
+     * Uses the pipeline prepared in the background while the menu was showing, and only sets one
+     * up here when there is none.
      */
-    private String getMultiHandLandmarksDebugString(List<NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return getResources().getString(R.string.noHands);
+    @Override
+    protected PreparedPipeline preparePipeline() {
+        PreparedPipeline prepared = ((BslApplication) getApplication()).takePipeline();
+        return prepared != null ? prepared : super.preparePipeline();
+    }
+
+    /**
+     * Requests the resolution chosen by the resolution policy, when enabled.
+     */
+    @Override
+    protected Size cameraTargetResolution() {
+        if (resolutionPolicy == null) {
+            return super.cameraTargetResolution();
+        }
+        return new Size(resolutionPolicy.getWidth(), resolutionPolicy.getHeight());
+    }
+
+    @Override
+    protected void onCameraStarted(SurfaceTexture surfaceTexture) {
+        super.onCameraStarted(surfaceTexture);
+        if (resolutionPolicy != null) {
+            resolutionPolicy.onCameraStarted();
+        }
+    }
+
+    /**
+     * Puts the frame rate policy, when enabled, between the converter and the frame processor.
+     */
+    @Override
+    protected TextureFrameConsumer frameConsumer() {
+        if (frameRatePolicy == null) {
+            return super.frameConsumer();
         }
-        String multiHandLandmarksStr = "Number of hands detected: " + multiHandLandmarks.size() + "\n";
-        int handIndex = 0;
-        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
-            multiHandLandmarksStr +=
-                    "\t#Hand landmarks for hand[" + handIndex + "]: " + landmarks.getLandmarkCount() + "\n";
-            int landmarkIndex = 0;
-            for (NormalizedLandmark landmark : landmarks.getLandmarkList()) {
-                multiHandLandmarksStr +=
-                        "\t\tLandmark ["
-                                + landmarkIndex
-                                + "]: ("
-                                + landmark.getX()
-                                + ", "
-                                + landmark.getY()
-                                + ", "
-                                + landmark.getZ()
-                                + ")\n";
-                ++landmarkIndex;
+        return new ThrottledFrameConsumer(super.frameConsumer(), frameRatePolicy);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (debugOverlay != null) {
+            debugOverlay.removeCallbacks(updateDebugOverlay);
+        }
+        LandmarkRecorder recorder = landmarkRecorder;
+        landmarkRecorder = null;
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot close the landmark recording: " + e);
             }
-            ++handIndex;
         }
-        return multiHandLandmarksStr;
+        super.onDestroy();
     }
 
     /**
@@ -143,185 +363,356 @@ public class MediaPipeActivity extends BasicActivity {
     }
 
     /**
-     * The handGestureCalculator method takes the different position of the points obtained from
-     * MediaPipe in post to return a string that contains the number for that gesture.
-     *
-     * @param multiHandLandmarks array of normalised landmarks points obtained from MediaPipe
-     * @return String value with the number for the recognised sign
+     * Displays the latest gesture on top and the latest committed number at the bottom. It runs
+     * on the UI thread and only touches the views whose value has changed.
      */
-    private String handGestureCalculator(List<NormalizedLandmarkList> multiHandLandmarks) {
-        if (multiHandLandmarks.isEmpty()) {
-            return getResources().getString(R.string.noHands);
+    private void updateResultViews() {
+        latencies.record(uiPostStage, (System.nanoTime() - postedNanos) / 1000);
+        long latest = pipeline.takeResult();
+        int gestureCode = RecognitionPipeline.gestureOf(latest);
+        if (gestureCode != displayedGesture) {
+            displayedGesture = gestureCode;
+            gesture.setText(gestureLabel(gestureCode)); //display gesture on top
         }
-        boolean thumbIsOpen = false;
-        boolean thumbIsBend = false;
-        boolean indexStraightUp = false;
-        boolean indexStraightDown = false;
-        boolean middleStraightUp = false;
-        boolean middleStraightDown = false;
-        boolean ringStraightUp = false;
-        boolean ringStraightDown = false;
-        boolean pinkyStraightUp = false;
-        boolean pinkyStraightDown = false;
-
-        for (NormalizedLandmarkList landmarks : multiHandLandmarks) {
-            List<NormalizedLandmark> landmarkList = landmarks.getLandmarkList();
-
-            //Logging to the console the X-axis points that make the base of the palm and do not move like the ones on the fingers
-            Log.d("Palm base", "" + landmarkList.get(0).getX() + " " + landmarkList.get(1).getX() + " " + landmarkList.get(2).getX() + " " + landmarkList.get(17).getX());
-            //Logging to the console the Y-axis points that make the base of the palm and do not move like the ones on the fingers
-            Log.d("Palm base", "" + landmarkList.get(0).getY() + " " + landmarkList.get(1).getY() + " " + landmarkList.get(2).getY() + " " + landmarkList.get(17).getY());
-
-            /* FINGERS CONDITIONS
-             * To identify when a finger is straight up or straight down.
-             * Each of the following conditions allowed me to create the state straightUp on each finger.*/
-
-            /*INDEX_FINGER*/
-            if (landmarkList.get(8).getY() < landmarkList.get(7).getY()
-                    && landmarkList.get(7).getY() < landmarkList.get(6).getY()
-                    && landmarkList.get(6).getY() < landmarkList.get(5).getY()){
-                indexStraightUp = true;
-            }else if (getEuclideanDistanceAB(landmarkList.get(8).getX(),landmarkList.get(8).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(5).getX(),landmarkList.get(5).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                indexStraightDown = true;
-            }
-
-            /*MIDDLE_FINGER */
-            if (landmarkList.get(12).getY() < landmarkList.get(11).getY()
-                    && landmarkList.get(11).getY() < landmarkList.get(10).getY()
-                    && landmarkList.get(10).getY() < landmarkList.get(9).getY()){
-                middleStraightUp = true;
-            }else if (getEuclideanDistanceAB(landmarkList.get(12).getX(),landmarkList.get(12).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(9).getX(),landmarkList.get(9).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                middleStraightDown = true;
-            }
+        int committedCode = RecognitionPipeline.committedOf(latest);
+        if (committedCode != displayedCommitted) {
+            displayedCommitted = committedCode;
+            result.setText(gestureLabel(committedCode));
+            // The packet of the committed frame has already found the clock of the camera
+            latencies.record(cameraToCommitStage,
+                    cameraClock.nowMicros() - RecognitionPipeline.committedTimestampOf(latest));
+        }
+    }
 
-            /*RING_FINGER */
-            if (landmarkList.get(16).getY() < landmarkList.get(15).getY()
-                    && landmarkList.get(15).getY() < landmarkList.get(14).getY()
-                    && landmarkList.get(14).getY() < landmarkList.get(13).getY()){
-                ringStraightUp = true;
-            } else if (getEuclideanDistanceAB(landmarkList.get(16).getX(),landmarkList.get(16).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(13).getX(),landmarkList.get(13).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                ringStraightDown = true;
-            }
+    /**
+     * Opens the recording where the landmarks of every packet are captured, on the external files
+     * directory of the app so it can be pulled from the device to reproduce misclassifications.
+     * New frames are added after the ones recorded on previous sessions.
+     */
+    private void openLandmarkRecorder() {
+        File file = new File(getExternalFilesDir(null), RECORDING_FILE_NAME);
+        int frames = applicationInfo.metaData.getInt("recordLandmarksFrames", DEFAULT_RECORDING_FRAMES);
+        try {
+            landmarkRecorder = new LandmarkRecorder(file, frames);
+            Log.d(TAG, "Recording landmarks to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open the landmark recording: " + e);
+        }
+    }
 
-            /*PINKY_FINGER */
-            if (landmarkList.get(20).getY() < landmarkList.get(19).getY()
-                    && landmarkList.get(19).getY() < landmarkList.get(18).getY()
-                    && landmarkList.get(18).getY() < landmarkList.get(17).getY()){
-                pinkyStraightUp = true;
-            } else if (getEuclideanDistanceAB(landmarkList.get(20).getX(),landmarkList.get(20).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY()) <
-                    getEuclideanDistanceAB(landmarkList.get(17).getX(),landmarkList.get(17).getY(), landmarkList.get(0).getX(), landmarkList.get(0).getY())){
-                pinkyStraightDown = true;
+    /**
+     * Creates the classifier set on the manifest metadata: "mlp" for the model stored on the
+     * gestureModel asset, "templates" for the reference poses stored on the gestureTemplates
+     * asset, or the rule file otherwise. When the model or the poses cannot be loaded the rules
+     * are used instead.
+     *
+     * @return the classifier deciding the number of every hand
+     */
+    private HandClassifier createHandClassifier() {
+        String classifier = applicationInfo.metaData.getString("gestureClassifier", "rules");
+        String asset = null;
+        try {
+            switch (classifier) {
+                case "mlp":
+                    asset = applicationInfo.metaData.getString("gestureModel", DEFAULT_GESTURE_MODEL_ASSET);
+                    MlpClassifier model = MlpClassifier.read(mapAsset(asset));
+                    Log.d(TAG, "Classifying with the model " + asset);
+                    return model;
+                case "templates":
+                    asset = applicationInfo.metaData.getString("gestureTemplates", DEFAULT_GESTURE_TEMPLATES_ASSET);
+                    TemplateStore templates = TemplateStore.read(mapAsset(asset));
+                    Log.d(TAG, "Classifying with the " + templates.size() + " poses of " + asset);
+                    return new TemplateClassifier(templates, TEMPLATE_NEIGHBOURS, TEMPLATE_MAX_DISTANCE);
+                default:
+                    break;
             }
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot load " + asset + ", classifying with the rules", e);
+        }
+        return new RuleClassifier(loadGestureRules());
+    }
 
-            /*THUMB */
-            if (getEuclideanDistanceAB(landmarkList.get(4).getX(),landmarkList.get(4).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())
-                    < getEuclideanDistanceAB(landmarkList.get(3).getX(),landmarkList.get(3).getY(), landmarkList.get(9).getX(), landmarkList.get(9).getY())){
-                thumbIsBend = true;
-            }else {
-                thumbIsOpen = true;
+    /**
+     * Loads the templates of the signs made by moving the hand from the recordings on the motion
+     * directory of the external files, one per sign named after its code, like "10.bslr". The
+     * matched signs are committed like the others, so the code has to be the one of a number. The
+     * first hand of every frame is turned into motion frames, and only the last frames of a long
+     * recording are kept. The recordings that cannot be read are skipped.
+     *
+     * @return the matcher for those templates
+     */
+    private MotionMatcher loadMotionTemplates() {
+        MotionMatcher matcher = new MotionMatcher(MotionFrames.DIMENSIONS, MOTION_BAND_FRAMES, MOTION_THRESHOLD);
+        File[] files = new File(getExternalFilesDir(null), MOTION_TEMPLATES_DIRECTORY).listFiles();
+        if (files == null) {
+            return matcher;
+        }
+        float[] features = HandFeatures.newVector();
+        MotionFrames motionFrames = new MotionFrames();
+        float[] frames = new float[MAX_MOTION_TEMPLATE_FRAMES * MotionFrames.DIMENSIONS];
+        float[] frame = new float[MotionFrames.DIMENSIONS];
+        int[] length = new int[1];
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(MOTION_TEMPLATE_EXTENSION)) {
+                continue;
             }
-
-            // Hand gesture recognition based on the position of the fingers
-            if (thumbIsOpen){
-                if (indexStraightUp && middleStraightUp && ringStraightUp && pinkyStraightUp){
-                    return getResources().getString(R.string.five);
-                }else if (indexStraightUp && middleStraightUp && ringStraightUp && pinkyStraightDown){
-                    return getResources().getString(R.string.nine);
-                }else if (indexStraightUp && middleStraightUp && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.eight);
-                }else if (radianToDegree(getAngleABC(landmarkList.get(4).getX(), landmarkList.get(4).getY(),
-                        landmarkList.get(2).getX(), landmarkList.get(2).getY(),
-                        landmarkList.get(8).getX(),landmarkList.get(8).getX())) >= 65//1.0210176124167 radians
-                        && indexStraightUp && middleStraightDown && ringStraightDown && pinkyStraightDown
-                        || landmarkList.get(2).getX() > landmarkList.get(17).getX() && // the hand is left
-                        radianToDegree(getAngleABC(landmarkList.get(4).getX(), landmarkList.get(4).getY(),
-                        landmarkList.get(2).getX(), landmarkList.get(2).getY(),
-                        landmarkList.get(8).getX(),landmarkList.get(8).getX())) <= 65 //1.0210176124167 radians
-                        && indexStraightUp && middleStraightDown && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.seven);
-                }else  if (indexStraightDown && middleStraightDown && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.six);
+            try {
+                int code = Integer.parseInt(name.substring(0, name.length() - MOTION_TEMPLATE_EXTENSION.length()));
+                if (!GestureCodes.isNumber(code)) {
+                    throw new IllegalArgumentException("Not the code of a number: " + code);
                 }
-            } else if (thumbIsBend){
-                if (indexStraightDown && middleStraightDown && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.zero);
-                }
-                else if (indexStraightUp && middleStraightDown && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.one);
-                }else if (indexStraightUp && middleStraightUp && ringStraightDown && pinkyStraightDown){
-                    return getResources().getString(R.string.two);
-                }else if (indexStraightUp && middleStraightUp && ringStraightUp && pinkyStraightDown){
-                    return getResources().getString(R.string.three);
-                }else if (indexStraightUp && middleStraightUp && ringStraightUp && pinkyStraightUp){
-                    return getResources().getString(R.string.four);
+                motionFrames.reset();
+                length[0] = 0;
+                LandmarkRecordingReader.read(file, (timestamp, landmarks, handCount) -> {
+                    if (handCount == 0) {
+                        return;
+                    }
+                    HandFeatures.extract(landmarks, 0, features);
+                    motionFrames.next(features, timestamp, frame);
+                    // Keeps the last frames, shifting the oldest ones out once it is full
+                    if (length[0] == MAX_MOTION_TEMPLATE_FRAMES) {
+                        System.arraycopy(frames, MotionFrames.DIMENSIONS, frames, 0, frames.length - MotionFrames.DIMENSIONS);
+                        length[0]--;
+                    }
+                    System.arraycopy(frame, 0, frames, length[0]++ * MotionFrames.DIMENSIONS, MotionFrames.DIMENSIONS);
+                });
+                if (length[0] > 0) {
+                    matcher.addTemplate(code, frames, length[0]);
+                    Log.d(TAG, "Motion sign " + code + " of " + length[0] + " frames from " + file);
                 }
-            }
-            else {
-                //When different position is found, the fingers positions conditions are logged on the console
-                String info = "thumbIsOpen " + thumbIsOpen + ", thumbIsBend " + thumbIsBend
-                        + ", indexStraightUp " + indexStraightUp + ", indexStraightDown " + indexStraightDown
-                        + ", middleStraightUp " + middleStraightUp + ", middleStraightDown " + middleStraightDown
-                        + ", ringStraightUp " + ringStraightUp + ", ringStraightDown " + ringStraightDown
-                        + ", pinkyStraightUp " + pinkyStraightUp + ", pinkyStraightDown " + pinkyStraightDown;
-                Log.d(TAG, "handGestureCalculator: == " + info);
-                return ""; // nothing is displayed on the screen
+            } catch (IOException | IllegalArgumentException e) {
+                Log.e(TAG, "Cannot load the motion sign " + file, e);
             }
         }
-        return " "; // nothing is displayed on the screen
+        return matcher;
     }
 
     /**
-     * The following method calculates the distance between 2 points (A and B) using euclidean distance
-     * formula.
+     * Maps a file of the assets into memory instead of copying it through a stream. The asset is
+     * stored uncompressed for that (see aaptOptions on the build file).
      *
-     * @param a_x Value of X for the given position of point A
-     * @param a_y Value of Y for the given position of point A
-     * @param b_x Value of X for the given position of point B
-     * @param b_y Value of Y for the given position of point B
-     * @return Euclidean distance result
+     * @param asset name of the file on the assets
+     * @return the mapped file
      */
-    private double getEuclideanDistanceAB(double a_x, double a_y, double b_x, double b_y) {
-        double dist = Math.pow(a_x - b_x, 2) + Math.pow(a_y - b_y, 2);
-        return Math.sqrt(dist);
+    private MappedByteBuffer mapAsset(String asset) throws IOException {
+        try (AssetFileDescriptor descriptor = getAssets().openFd(asset);
+             FileInputStream input = descriptor.createInputStream()) {
+            return input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getDeclaredLength());
+        }
     }
 
     /**
-     * This method calculates the angle between 3 given points (A,B,C)
-     * using the angle between vectors formula. The vector 1 is made
-     * with points AB and vector 2 is made with points BC, being point B
-     * the vertex.
+     * Compiles the rule file from the assets into the table used to recognise the numbers.
      *
-     * @param a_x Value of X for the given position of A
-     * @param a_y Value of Y for the given position of A
-     * @param b_x Value of X for the given position of B
-     * @param b_y Value of Y for the given position of B
-     * @param c_x Value of X for the given position of C
-     * @param c_y Value of Y for the given position of C
-     * @return Angle in radians
+     * @return the gesture rule table
      */
-    private double getAngleABC(double a_x, double a_y,
-                               double b_x, double b_y,
-                               double c_x, double c_y) {
-        double ab_x = b_x - a_x;
-        double ab_y = b_y - a_y;
-        double cb_x = b_x - c_x;
-        double cb_y = b_y - c_y;
-
-        double dot = (ab_x * cb_x + ab_y * cb_y);   // dot product
-        double cross = (ab_x * cb_y - ab_y * cb_x); // cross product
-
-        return Math.atan2(cross, dot);
+    private GestureRuleTable loadGestureRules() {
+        try (Reader reader = new InputStreamReader(getAssets().open(GESTURE_RULES_ASSET), StandardCharsets.UTF_8)) {
+            return GestureRuleTable.parse(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load " + GESTURE_RULES_ASSET, e);
+        }
     }
 
     /**
-     * Method to convert radian to degree based on the formula
-     * @param radian Value of radians to convert
-     * @return Angle in degrees
+     * Creates the voter that decides when a number is added to the result, using the number of
+     * frames and milliseconds a sign has to be held that are set on the manifest metadata.
+     *
+     * @return the voter for the recognised gestures
+     */
+    private GestureVoter createGestureVoter() {
+        int stableFrames = applicationInfo.metaData.getInt("commitStableFrames", DEFAULT_COMMIT_STABLE_FRAMES);
+        int stableMillis = applicationInfo.metaData.getInt("commitStableMillis", DEFAULT_COMMIT_STABLE_MILLIS);
+        return new GestureVoter(VOTING_WINDOW_FRAMES, VOTING_WINDOW_MILLIS * 1000L,
+                stableFrames, stableMillis * 1000L);
+    }
+
+    /**
+     * Returns the policy that chooses the camera resolution, created on the first launch of the
+     * process from the level chosen on the previous sessions. The policy is given every clock the
+     * camera frame timestamps may be on and finds the one that fits, the monotonic clock first.
+     *
+     * @return the resolution policy
+     */
+    private ResolutionPolicy createResolutionPolicy() {
+        if (sharedResolutionPolicy == null) {
+            int budgetMillis = applicationInfo.metaData.getInt("latencyBudgetMillis", DEFAULT_LATENCY_BUDGET_MILLIS);
+            int level = getSharedPreferences("Settings", MODE_PRIVATE).getInt(RESOLUTION_LEVEL_KEY, 0);
+            sharedResolutionPolicy = new ResolutionPolicy(CAMERA_RESOLUTIONS, level, CAMERA_CLOCKS,
+                    budgetMillis * 1000L, LATENCY_WINDOW_MILLIS * 1000L,
+                    LATENCY_CONFIRM_WINDOWS, LATENCY_BACKOFF_MILLIS * 1000L);
+        }
+        return sharedResolutionPolicy;
+    }
+
+    /**
+     * Warns once per window when the resolution policy could not use the latency of any packet,
+     * as the camera timestamps are then on a clock it does not know and it never changes level.
+     *
+     * @param frameTimestamp timestamp of the camera frame of the last packet, in microseconds
+     */
+    private void logDroppedLatencies(long frameTimestamp) {
+        int droppedWindows = resolutionPolicy.getDroppedWindows();
+        if (droppedWindows != loggedDroppedWindows) {
+            loggedDroppedWindows = droppedWindows;
+            Log.w(TAG, "No camera timestamp gave a latency in range, " + resolutionPolicy.getDroppedSamples()
+                    + " packets dropped, frame " + frameTimestamp + " us at monotonic "
+                    + System.nanoTime() / 1000 + " us");
+        }
+    }
+
+    /**
+     * Stores the level chosen by the resolution policy, so the camera starts with it next time.
+     */
+    private void saveResolutionLevel() {
+        Log.d(TAG, "Latency p90 " + resolutionPolicy.getLastPercentile() + " us, next camera resolution "
+                + resolutionPolicy.getWidth() + "x" + resolutionPolicy.getHeight());
+        getSharedPreferences("Settings", MODE_PRIVATE).edit()
+                .putInt(RESOLUTION_LEVEL_KEY, resolutionPolicy.getLevel())
+                .apply();
+    }
+
+    /**
+     * Creates the policy that decides which camera frames are processed, using the rates and
+     * delays set on the manifest metadata.
+     *
+     * @return the frame rate policy
+     */
+    private FrameRatePolicy createFrameRatePolicy() {
+        int stableRate = applicationInfo.metaData.getInt("stableFrameRate", DEFAULT_STABLE_FRAME_RATE);
+        int idleRate = applicationInfo.metaData.getInt("idleFrameRate", DEFAULT_IDLE_FRAME_RATE);
+        int stableAfterMillis = applicationInfo.metaData.getInt("stableAfterMillis", DEFAULT_STABLE_AFTER_MILLIS);
+        int idleAfterMillis = applicationInfo.metaData.getInt("idleAfterMillis", DEFAULT_IDLE_AFTER_MILLIS);
+        return new FrameRatePolicy(stableRate, idleRate, stableAfterMillis * 1000L,
+                idleAfterMillis * 1000L, FRAME_RATE_MOTION_THRESHOLD);
+    }
+
+    /**
+     * Registers the events traced for each landmarks packet and applies the level and sampling
+     * set on the manifest metadata.
+     */
+    private void setupFrameTrace() {
+        packetEvent = frameTrace.registerEvent(FrameTrace.INFO,
+                "Received multi-hand landmarks packet", "hands");
+        palmBaseXEvent = frameTrace.registerEvent(FrameTrace.DEBUG, "Palm base X", "hand",
+                "wrist", "thumbCmc", "thumbMcp", "pinkyMcp");
+        palmBaseYEvent = frameTrace.registerEvent(FrameTrace.DEBUG, "Palm base Y", "hand",
+                "wrist", "thumbCmc", "thumbMcp", "pinkyMcp");
+        gestureEvent = frameTrace.registerEvent(FrameTrace.INFO, "Gesture", "code");
+        motionEvent = frameTrace.registerEvent(FrameTrace.INFO, "Motion", "code");
+        for (int hand = 0; hand < HandLandmarks.MAX_HANDS; hand++) {
+            landmarkEvents[hand] = frameTrace.registerEvent(FrameTrace.VERBOSE,
+                    "Hand[" + hand + "] landmark", "index", "x", "y", "z");
+        }
+        frameTrace.setLevel(FrameTrace.parseLevel(applicationInfo.metaData.getString("traceLevel")));
+        frameTrace.setSampleEvery(applicationInfo.metaData.getInt("traceSampleEvery", 1));
+    }
+
+    /**
+     * Registers the stages whose latency is measured and shows them on the debug overlay when it
+     * is enabled on the manifest metadata.
      */
-    private int radianToDegree(double radian) {
-        return (int) Math.floor(radian * 180. / Math.PI + 0.5);
+    private void setupLatencies() {
+        cameraToPacketStage = latencies.registerStage("camera->packet");
+        decodeStage = latencies.registerStage("decode");
+        classifyStage = latencies.registerStage("classify");
+        uiPostStage = latencies.registerStage("ui post");
+        cameraToCommitStage = latencies.registerStage("camera->commit");
+        startToPacketStage = latencies.registerStage("start->packet");
+        resumeToPacketStage = latencies.registerStage("resume->packet");
+        launchToPacketStage = latencies.registerStage("launch->packet");
+        if (applicationInfo.metaData.getBoolean("showDebugOverlay", false)) {
+            debugOverlay = findViewById(R.id.debugOverlay);
+            debugOverlay.setVisibility(View.VISIBLE);
+            debugOverlay.post(updateDebugOverlay);
+        }
+    }
+
+    /**
+     * Refreshes the latencies shown on the debug overlay, once a second while the activity lives.
+     */
+    private void updateDebugOverlay() {
+        StringBuilder text = new StringBuilder(512);
+        latencies.dump(line -> text.append(line).append('\n'));
+        debugOverlay.setText(text);
+        debugOverlay.postDelayed(updateDebugOverlay, DEBUG_OVERLAY_REFRESH_MILLIS);
+    }
+
+    /**
+     * Writes the latencies to a file on the external files directory of the app, so they can be
+     * pulled from the device.
+     */
+    private void exportLatencies() {
+        File file = new File(getExternalFilesDir(null), LATENCY_FILE_NAME);
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            latencies.dump(writer::println);
+            Log.d(TAG, "Latencies written to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write the latencies: " + e);
+        }
+    }
+
+    /**
+     * Records the points that make the base of the palm, which do not move like the ones on the
+     * fingers, and every landmark position when the trace is detailed enough.
+     *
+     * @param handCount number of hands on the landmark buffer of the pipeline
+     * @param packetTimestamp timestamp of the packet the landmarks come from
+     */
+    private void traceLandmarks(int handCount, long packetTimestamp) {
+        float[] b = pipeline.landmarkBuffer();
+        for (int hand = 0; hand < handCount; hand++) {
+            int offset = HandLandmarks.handOffset(hand);
+            frameTrace.record(palmBaseXEvent, packetTimestamp, hand,
+                    b[HandLandmarks.x(offset, HandLandmarks.WRIST)], b[HandLandmarks.x(offset, HandLandmarks.THUMB_CMC)],
+                    b[HandLandmarks.x(offset, HandLandmarks.THUMB_MCP)], b[HandLandmarks.x(offset, HandLandmarks.PINKY_MCP)]);
+            frameTrace.record(palmBaseYEvent, packetTimestamp, hand,
+                    b[HandLandmarks.y(offset, HandLandmarks.WRIST)], b[HandLandmarks.y(offset, HandLandmarks.THUMB_CMC)],
+                    b[HandLandmarks.y(offset, HandLandmarks.THUMB_MCP)], b[HandLandmarks.y(offset, HandLandmarks.PINKY_MCP)]);
+            if (frameTrace.isEnabled(landmarkEvents[hand])) {
+                for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+                    frameTrace.record(landmarkEvents[hand], packetTimestamp, i,
+                            b[HandLandmarks.x(offset, i)], b[HandLandmarks.y(offset, i)], b[HandLandmarks.z(offset, i)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the code returned by the {@link GestureEngine} into the text displayed on the screen,
+     * from the labels cached for the language in use.
+     *
+     * @param gestureCode one of the {@link GestureCodes} values
+     * @return String value with the number for the recognised sign
+     */
+    private String gestureLabel(int gestureCode) {
+        return gestureLabels.get(gestureCode, getResources().getConfiguration().locale.getLanguage());
+    }
+
+    /**
+     * Looks up the text of a gesture code on the string resources, only called when the labels
+     * are resolved for a new language.
+     *
+     * @param gestureCode one of the {@link GestureCodes} values
+     * @return String value with the number for the sign
+     */
+    private String resolveGestureLabel(int gestureCode) {
+        switch (gestureCode) {
+            case GestureCodes.NO_HANDS: return getResources().getString(R.string.noHands);
+            case GestureCodes.ZERO: return getResources().getString(R.string.zero);
+            case GestureCodes.ONE: return getResources().getString(R.string.one);
+            case GestureCodes.TWO: return getResources().getString(R.string.two);
+            case GestureCodes.THREE: return getResources().getString(R.string.three);
+            case GestureCodes.FOUR: return getResources().getString(R.string.four);
+            case GestureCodes.FIVE: return getResources().getString(R.string.five);
+            case GestureCodes.SIX: return getResources().getString(R.string.six);
+            case GestureCodes.SEVEN: return getResources().getString(R.string.seven);
+            case GestureCodes.EIGHT: return getResources().getString(R.string.eight);
+            case GestureCodes.NINE: return getResources().getString(R.string.nine);
+            case GestureCodes.TEN: return getResources().getString(R.string.ten);
+            default: return " "; // nothing is displayed on the screen
+        }
     }
 }
@@ -0,0 +1,34 @@
+package com.nkm90.BSL_Numbers_Recognition;
+
+import com.nkm90.BSL_Numbers_Recognition.pipeline.FrameRatePolicy;
+import com.google.mediapipe.components.TextureFrameConsumer;
+import com.google.mediapipe.framework.TextureFrame;
+
+/**
+ * Sits between the {@code ExternalTextureConverter} and the {@code FrameProcessor} and only lets
+ * through the camera frames the {@link FrameRatePolicy} asks for. Dropped frames are released
+ * straight away so the converter can reuse their textures.
+ */
+final class ThrottledFrameConsumer implements TextureFrameConsumer {
+
+    private final TextureFrameConsumer next;
+    private final FrameRatePolicy policy;
+
+    /**
+     * @param next consumer of the frames that are processed, usually the frame processor
+     * @param policy decides which frames are processed
+     */
+    ThrottledFrameConsumer(TextureFrameConsumer next, FrameRatePolicy policy) {
+        this.next = next;
+        this.policy = policy;
+    }
+
+    @Override
+    public void onNewFrame(TextureFrame frame) {
+        if (policy.shouldProcess(frame.getTimestamp())) {
+            next.onNewFrame(frame);
+        } else {
+            frame.release();
+        }
+    }
+}
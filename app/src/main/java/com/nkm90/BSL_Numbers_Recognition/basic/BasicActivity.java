@@ -29,12 +29,13 @@ import android.view.ViewGroup;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.nkm90.BSL_Numbers_Recognition.R;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.PipelineLifecycle;
 import com.google.mediapipe.components.CameraHelper;
 import com.google.mediapipe.components.CameraXPreviewHelper;
 import com.google.mediapipe.components.ExternalTextureConverter;
 import com.google.mediapipe.components.FrameProcessor;
 import com.google.mediapipe.components.PermissionHelper;
-import com.google.mediapipe.framework.AndroidAssetUtil;
+import com.google.mediapipe.components.TextureFrameConsumer;
 import com.google.mediapipe.glutil.EglManager;
 
 /** Main activity of MediaPipe basic app. */
@@ -48,18 +49,6 @@ public class BasicActivity extends AppCompatActivity {
   // top-right corner.
   // NOTE: use "flipFramesVertically" in manifest metadata to override this behavior.
   private static final boolean FLIP_FRAMES_VERTICALLY = true;
-  boolean first = true;
-
-  static {
-    // Load all native libraries needed by the app.
-    System.loadLibrary("mediapipe_jni");
-    try {
-      System.loadLibrary("opencv_java3");
-    } catch (UnsatisfiedLinkError e) {
-      // Some example apps (e.g. template matching) require OpenCV 4.
-      System.loadLibrary("opencv_java4");
-    }
-  }
 
   // Sends camera-preview frames into a MediaPipe graph for processing, and displays the processed
   // frames onto a {@link Surface}.
@@ -77,9 +66,15 @@ public class BasicActivity extends AppCompatActivity {
   // Converts the GL_TEXTURE_EXTERNAL_OES texture from Android camera into a regular texture to be
   // consumed by {@link FrameProcessor} and the underlying MediaPipe graph.
   private ExternalTextureConverter converter;
+  // Texture the converter has attached to its GL context, a texture can only be attached once.
+  private SurfaceTexture attachedFrameTexture;
 
   // ApplicationInfo for retrieving metadata defined in the manifest.
-  private ApplicationInfo applicationInfo;
+  protected ApplicationInfo applicationInfo;
+
+  // Keeps the EGL context, processor and converter warm between pause and resume, and releases
+  // them when the activity is destroyed.
+  protected final PipelineLifecycle pipelineLifecycle = new PipelineLifecycle();
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -96,23 +91,26 @@ public class BasicActivity extends AppCompatActivity {
     previewDisplayView = new SurfaceView(this);
     setupPreviewDisplayView();
 
-    // Initialize asset manager so that MediaPipe native libraries can access the app assets, e.g.,
-    // binary graphs.
-    AndroidAssetUtil.initializeNativeAssetManager(this);
-    eglManager = new EglManager(null);
-    processor =
-        new FrameProcessor(
-            this,
-            eglManager.getNativeContext(),
-            applicationInfo.metaData.getString("binaryGraphName"),
-            applicationInfo.metaData.getString("inputVideoStreamName"),
-            applicationInfo.metaData.getString("outputVideoStreamName"));
+    // The native libraries, EGL context and graph may have been prepared in the background.
+    PreparedPipeline prepared = preparePipeline();
+    eglManager = prepared.eglManager;
+    pipelineLifecycle.register("eglManager", eglManager::release);
+    processor = prepared.processor;
+    pipelineLifecycle.register("processor", processor::close);
 
     processor
         .getVideoSurfaceOutput()
         .setFlipY(
             applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
 
+    // The converter is created once and kept across pause and resume, instead of leaking a new
+    // one on every resume. The preview texture is only attached to it once, see
+    // onPreviewDisplaySurfaceChanged.
+    converter = new ExternalTextureConverter(eglManager.getContext());
+    converter.setFlipY(
+        applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
+    pipelineLifecycle.register("converter", converter::close);
+
     PermissionHelper.checkAndRequestCameraPermissions(this);
   }
 
@@ -144,11 +142,13 @@ public class BasicActivity extends AppCompatActivity {
   protected void onResume() {
     Log.d("ActivityLifeCycle", "MediaPipe Activity - Resume");
     super.onResume();
-    converter = new ExternalTextureConverter(eglManager.getContext());
-    converter.setFlipY(
-        applicationInfo.metaData.getBoolean("flipFramesVertically", FLIP_FRAMES_VERTICALLY));
-    converter.setConsumer(processor);
-    if (PermissionHelper.cameraPermissionsGranted(this)) {
+    if (pipelineLifecycle.onResume(System.nanoTime())) {
+      // Subclasses have finished their onCreate by now, so their consumer can be used.
+      converter.setConsumer(frameConsumer());
+    }
+    // CameraX is bound to the lifecycle of the activity, so once started it stops and starts again
+    // by itself. It is only started here the first time the permission is granted.
+    if (cameraHelper == null && PermissionHelper.cameraPermissionsGranted(this)) {
       startCamera();
     }
   }
@@ -157,7 +157,7 @@ public class BasicActivity extends AppCompatActivity {
   protected void onPause() {
     Log.d("ActivityLifeCycle", "MediaPipe Activity - Pause");
     super.onPause();
-    //converter.close();
+    pipelineLifecycle.onPause();
   }
 
   @Override
@@ -171,6 +171,7 @@ public class BasicActivity extends AppCompatActivity {
   protected void onDestroy()
   {
     Log.d("ActivityLifeCycle", "MediaPipe Activity - Destroy");
+    pipelineLifecycle.release((name, error) -> Log.e(TAG, "Cannot release " + name + ": " + error));
     super.onDestroy();
   }
 
@@ -188,6 +189,20 @@ public class BasicActivity extends AppCompatActivity {
     previewDisplayView.setVisibility(View.VISIBLE);
   }
 
+  // Returns the pipeline this activity will own, by default it is set up here on the UI thread.
+  protected PreparedPipeline preparePipeline() {
+    try {
+      return PreparedPipeline.create(this);
+    } catch (NameNotFoundException e) {
+      throw new IllegalStateException("Cannot find application info", e);
+    }
+  }
+
+  // Receives the converted camera frames, subclasses can put a stage in front of the processor.
+  protected TextureFrameConsumer frameConsumer() {
+    return processor;
+  }
+
   protected Size cameraTargetResolution() {
     return null; // No preference and let the camera (helper) decide.
   }
@@ -202,11 +217,7 @@ public class BasicActivity extends AppCompatActivity {
         applicationInfo.metaData.getBoolean("cameraFacingFront", false)
             ? CameraHelper.CameraFacing.FRONT
             : CameraHelper.CameraFacing.BACK;
-    if (first)
-    {
-      first = false;
-      cameraHelper.startCamera(this, cameraFacing, /*surfaceTexture=*/ null, cameraTargetResolution());
-    }
+    cameraHelper.startCamera(this, cameraFacing, /*surfaceTexture=*/ null, cameraTargetResolution());
   }
 
   protected Size computeViewSize(int width, int height) {
@@ -225,10 +236,15 @@ public class BasicActivity extends AppCompatActivity {
     // Connect the converter to the camera-preview frames as its input (via
     // previewFrameTexture), and configure the output width and height as the computed
     // display size.
-    converter.setSurfaceTextureAndAttachToGLContext(
-        previewFrameTexture,
-        isCameraRotated ? displaySize.getHeight() : displaySize.getWidth(),
-        isCameraRotated ? displaySize.getWidth() : displaySize.getHeight());
+    int width = isCameraRotated ? displaySize.getHeight() : displaySize.getWidth();
+    int height = isCameraRotated ? displaySize.getWidth() : displaySize.getHeight();
+    if (previewFrameTexture == attachedFrameTexture) {
+      // The surface came back after a pause, the converter kept the texture attached.
+      converter.setSurfaceTexture(previewFrameTexture, width, height);
+    } else {
+      converter.setSurfaceTextureAndAttachToGLContext(previewFrameTexture, width, height);
+      attachedFrameTexture = previewFrameTexture;
+    }
   }
 
   private void setupPreviewDisplayView() {
@@ -0,0 +1,107 @@
+package com.nkm90.BSL_Numbers_Recognition.basic;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+
+import com.google.mediapipe.components.FrameProcessor;
+import com.google.mediapipe.framework.AndroidAssetUtil;
+import com.google.mediapipe.glutil.EglManager;
+
+/**
+ * The parts of the MediaPipe pipeline that take long to set up and do not need an activity: the
+ * native libraries, the asset manager used by the native code, the EGL context and the frame
+ * processor with the graph loaded from the binary graph asset. It can be created on a background
+ * thread before the recognition screen is opened, and the activity that takes it owns it from
+ * then on.
+ */
+public final class PreparedPipeline {
+
+    private static boolean librariesLoaded;
+
+    final EglManager eglManager;
+    final FrameProcessor processor;
+
+    // Time taken by each step, in milliseconds
+    private final long libraryMillis;
+    private final long assetMillis;
+    private final long graphMillis;
+
+    private PreparedPipeline(EglManager eglManager, FrameProcessor processor,
+                             long libraryMillis, long assetMillis, long graphMillis) {
+        this.eglManager = eglManager;
+        this.processor = processor;
+        this.libraryMillis = libraryMillis;
+        this.assetMillis = assetMillis;
+        this.graphMillis = graphMillis;
+    }
+
+    /**
+     * Sets up the pipeline, on the calling thread.
+     *
+     * @param context any context, the application one is kept
+     * @return the pipeline ready to be attached to the camera
+     * @throws PackageManager.NameNotFoundException when the metadata of the app cannot be read
+     */
+    public static PreparedPipeline create(Context context) throws PackageManager.NameNotFoundException {
+        Context appContext = context.getApplicationContext();
+        long start = System.nanoTime();
+        loadNativeLibraries();
+        long librariesReady = System.nanoTime();
+
+        // Initialize asset manager so that MediaPipe native libraries can access the app assets,
+        // e.g., binary graphs.
+        AndroidAssetUtil.initializeNativeAssetManager(appContext);
+        long assetsReady = System.nanoTime();
+
+        ApplicationInfo applicationInfo = appContext.getPackageManager()
+                .getApplicationInfo(appContext.getPackageName(), PackageManager.GET_META_DATA);
+        EglManager eglManager = new EglManager(null);
+        FrameProcessor processor = new FrameProcessor(
+                appContext,
+                eglManager.getNativeContext(),
+                applicationInfo.metaData.getString("binaryGraphName"),
+                applicationInfo.metaData.getString("inputVideoStreamName"),
+                applicationInfo.metaData.getString("outputVideoStreamName"));
+        long graphReady = System.nanoTime();
+
+        return new PreparedPipeline(eglManager, processor,
+                (librariesReady - start) / 1_000_000,
+                (assetsReady - librariesReady) / 1_000_000,
+                (graphReady - assetsReady) / 1_000_000);
+    }
+
+    /**
+     * Releases a pipeline no activity took, the frame processor first and then the EGL context,
+     * as the activity does with the one it owns.
+     */
+    public void release() {
+        processor.close();
+        eglManager.release();
+    }
+
+    /**
+     * Loads all the native libraries needed by the app, only the first time it is called.
+     */
+    public static synchronized void loadNativeLibraries() {
+        if (librariesLoaded) {
+            return;
+        }
+        System.loadLibrary("mediapipe_jni");
+        try {
+            System.loadLibrary("opencv_java3");
+        } catch (UnsatisfiedLinkError e) {
+            // Some example apps (e.g. template matching) require OpenCV 4.
+            System.loadLibrary("opencv_java4");
+        }
+        librariesLoaded = true;
+    }
+
+    /**
+     * @return time taken by each step, to be logged
+     */
+    @Override
+    public String toString() {
+        return "libraries " + libraryMillis + " ms, assets " + assetMillis + " ms, graph " + graphMillis + " ms";
+    }
+}
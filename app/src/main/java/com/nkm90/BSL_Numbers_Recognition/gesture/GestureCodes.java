@@ -0,0 +1,53 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Integer codes returned by the gesture classes. The numbers are encoded as their own value so
+ * they can be used directly as array indices, the remaining cases use negative values. The
+ * digits are the numbers signed with one hand, the ones above nine need both hands.
+ */
+public final class GestureCodes {
+
+    /** No hand was found on the frame. */
+    public static final int NO_HANDS = -1;
+    /** At least one hand was found but its fingers do not match any number. */
+    public static final int NO_GESTURE = -2;
+
+    public static final int ZERO = 0;
+    public static final int ONE = 1;
+    public static final int TWO = 2;
+    public static final int THREE = 3;
+    public static final int FOUR = 4;
+    public static final int FIVE = 5;
+    public static final int SIX = 6;
+    public static final int SEVEN = 7;
+    public static final int EIGHT = 8;
+    public static final int NINE = 9;
+    /** Two open hands. */
+    public static final int TEN = 10;
+
+    /** Number of digit codes, useful to size arrays indexed by digit. */
+    public static final int DIGIT_COUNT = 10;
+
+    /** Lowest and highest codes, useful to size arrays indexed by any code. */
+    public static final int MIN_CODE = NO_GESTURE;
+    public static final int MAX_CODE = TEN;
+
+    private GestureCodes() {
+    }
+
+    /**
+     * @param code gesture code to check
+     * @return true when the code represents one of the numbers
+     */
+    public static boolean isDigit(int code) {
+        return code >= ZERO && code < DIGIT_COUNT;
+    }
+
+    /**
+     * @param code gesture code to check
+     * @return true when the code represents one of the numbers, signed with one hand or two
+     */
+    public static boolean isNumber(int code) {
+        return code >= ZERO && code <= MAX_CODE;
+    }
+}
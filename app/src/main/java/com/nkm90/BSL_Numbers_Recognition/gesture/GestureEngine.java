@@ -0,0 +1,214 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Recognises the BSL numbers from the landmarks of the hands found on a frame. It does not
+ * depend on Android, so it can be tested on the development machine, and it works directly over
+ * a primitive buffer laid out as described on {@link HandLandmarks}, without creating any object
+ * while classifying.
+ * <p>
+ * The {@link HandFeatures} of every hand are measured once and passed to a
+ * {@link HandClassifier}, either the {@link RuleClassifier} built from the rule file or a learned
+ * model like the {@link MlpClassifier}. As the features are taken in the frame of the hand, a
+ * tilted hand is recognised like an upright one.
+ * <p>
+ * Every hand on the frame is classified, and a {@link HandTracker} follows them between frames.
+ * With two hands their numbers are put together as on the two handed BSL numbers: an open hand
+ * and a hand signing one to five make six to ten. Two hands signing numbers that do not go
+ * together give the number of the hand that has been on the frame the longest, so the result
+ * does not depend on the order the graph lists the hands in.
+ * <p>
+ * With the rules, the joint angles are not measured, as no rule reads them, and the state of
+ * every finger that is clearly up or folded is kept while it does not move, see
+ * {@link IncrementalFingerStates}. The numbers and the confidences are the ones of measuring every
+ * finger, while most of the work is saved on a held sign. The learned models read every feature,
+ * so every finger is measured for them.
+ * <p>
+ * Every frame also gets a confidence, the one the classifier gave its hand, or the lowest of both
+ * hands when there are two, see {@link #getConfidence()}.
+ * <p>
+ * The engine reuses its feature vectors and follows the hands from one frame to the next, so
+ * each thread needs its own instance.
+ */
+public class GestureEngine {
+
+    // Distance a wrist can move between two frames and still be the same hand
+    private static final float MAX_WRIST_JUMP = 0.25f;
+    // Squared distance a change of handedness counts as, a fifth of a hand width or so
+    private static final float HANDEDNESS_PENALTY = 0.0025f;
+    // Movement, in palm lengths, under which a finger may keep its state with the rules: a few
+    // times the jitter of the points of a still hand, and small next to the clear states of the
+    // confidence, which a kept finger has to stay over
+    private static final float FINGER_EPSILON = 0.03f;
+
+    private final HandClassifier classifier;
+    // Features of every hand measured on the last frame
+    private final float[][] features = new float[MAX_HANDS][HandFeatures.SIZE];
+    private final int[] codes = new int[MAX_HANDS];
+    private final float[] confidences = new float[MAX_HANDS];
+    private float confidence;
+    private final HandTracker tracker = new HandTracker(MAX_WRIST_JUMP, HANDEDNESS_PENALTY);
+    // The classifier when finger states are kept, null when every feature is measured every time
+    private final RuleClassifier rules;
+    // Finger states of every hand kept between frames, null when every feature is measured
+    private final IncrementalFingerStates[] incremental;
+
+    /**
+     * @param rules table compiled from the rule file
+     */
+    public GestureEngine(GestureRuleTable rules) {
+        this(new RuleClassifier(rules));
+    }
+
+    /**
+     * @param classifier classifier deciding the number of every hand, used only by this engine
+     */
+    public GestureEngine(HandClassifier classifier) {
+        this(classifier, classifier instanceof RuleClassifier ? FINGER_EPSILON : 0f);
+    }
+
+    /**
+     * @param classifier classifier deciding the number of every hand, used only by this engine
+     * @param fingerEpsilon movement, in palm lengths, under which a finger of the rules keeps its
+     *                      state, or 0 to measure every feature on every frame
+     */
+    GestureEngine(HandClassifier classifier, float fingerEpsilon) {
+        this.classifier = classifier;
+        if (fingerEpsilon > 0 && classifier instanceof RuleClassifier) {
+            rules = (RuleClassifier) classifier;
+            incremental = new IncrementalFingerStates[MAX_HANDS];
+            for (int hand = 0; hand < MAX_HANDS; hand++) {
+                incremental[hand] = new IncrementalFingerStates(fingerEpsilon);
+            }
+        } else {
+            rules = null;
+            incremental = null;
+        }
+    }
+
+    /**
+     * The classify method takes the different position of the points obtained from MediaPipe
+     * and returns the code of the number for that gesture.
+     *
+     * @param landmarks buffer with the normalised landmark points of every hand
+     * @param handCount number of hands stored on the buffer
+     * @return one of the {@link GestureCodes} values, for every hand put together
+     */
+    public int classify(float[] landmarks, int handCount) {
+        for (int hand = 0; hand < handCount; hand++) {
+            if (incremental != null) {
+                IncrementalFingerStates states = incremental[hand];
+                states.extract(landmarks, handOffset(hand), features[hand]);
+                codes[hand] = rules.classify(features[hand], states.getMask(), states.getMargin());
+            } else {
+                HandFeatures.extract(landmarks, handOffset(hand), features[hand]);
+                codes[hand] = classifier.classify(features[hand]);
+            }
+            confidences[hand] = classifier.getLastConfidence();
+        }
+        if (incremental != null) {
+            // A hand coming back later may not be the one measured last on its slot
+            for (int hand = handCount; hand < MAX_HANDS; hand++) {
+                incremental[hand].reset();
+            }
+        }
+        tracker.update(features, handCount);
+        if (handCount == 0) {
+            confidence = 1f;
+            return GestureCodes.NO_HANDS;
+        }
+        if (handCount == 1) {
+            confidence = confidences[0];
+            return codes[0];
+        }
+        confidence = Math.min(confidences[0], confidences[1]);
+        return combine(codes[0], codes[1]);
+    }
+
+    /**
+     * Forgets the hands followed and the finger states kept, so the next frame is classified
+     * as if it were the first one, as when the frames do not come from the same stream.
+     */
+    public void reset() {
+        tracker.reset();
+        if (incremental != null) {
+            for (IncrementalFingerStates states : incremental) {
+                states.reset();
+            }
+        }
+    }
+
+    /**
+     * @return the number signed by two hands, given the code of every hand
+     */
+    private int combine(int first, int second) {
+        // A hand without a number leaves it to the other one
+        if (!GestureCodes.isDigit(first) || !GestureCodes.isDigit(second)) {
+            return GestureCodes.isDigit(first) ? first : second;
+        }
+        if (first == GestureCodes.FIVE && second >= GestureCodes.ONE && second <= GestureCodes.FIVE) {
+            return GestureCodes.FIVE + second;
+        }
+        if (second == GestureCodes.FIVE && first >= GestureCodes.ONE && first <= GestureCodes.FIVE) {
+            return GestureCodes.FIVE + first;
+        }
+        return leadingHand() == 0 ? first : second;
+    }
+
+    /**
+     * @return the hand that has been on the frame the longest, or the one on the left of the
+     * image when both appeared together
+     */
+    private int leadingHand() {
+        int first = tracker.trackedFrames(0);
+        int second = tracker.trackedFrames(1);
+        if (first != second) {
+            return first > second ? 0 : 1;
+        }
+        return features[0][HandFeatures.WRIST_X] <= features[1][HandFeatures.WRIST_X] ? 0 : 1;
+    }
+
+    /**
+     * Features measured on the last call to {@link #classify}, for every hand on the frame. With
+     * the rules the joint angles are not measured and the extensions may be the ones of a few
+     * frames before, see {@link IncrementalFingerStates}.
+     *
+     * @param hand index of the hand
+     * @return the features of that hand, overwritten on the next frame
+     */
+    public float[] features(int hand) {
+        return features[hand];
+    }
+
+    /**
+     * @param hand index of the hand on the last frame
+     * @return code given to that hand alone on the last call to {@link #classify}
+     */
+    public int handCode(int hand) {
+        return codes[hand];
+    }
+
+    /**
+     * @param hand index of the hand on the last frame
+     * @return confidence of the classifier in the code of that hand alone
+     */
+    public float handConfidence(int hand) {
+        return confidences[hand];
+    }
+
+    /**
+     * @return how sure the last call to {@link #classify} was of its result, from 0 to 1, and 1
+     * when there were no hands
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return the tracker following the hands of the frames classified
+     */
+    public HandTracker getTracker() {
+        return tracker;
+    }
+}
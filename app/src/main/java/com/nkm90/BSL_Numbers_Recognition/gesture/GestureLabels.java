@@ -0,0 +1,54 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Text displayed for every gesture code, resolved once for the language in use and kept until
+ * the language changes. Reading a label is an array access, so the screen can be updated
+ * without looking up resources.
+ */
+public final class GestureLabels {
+
+    /**
+     * Looks up the text of a code for the current language, usually from the string resources.
+     */
+    public interface Resolver {
+        String resolve(int code);
+    }
+
+    private static final int CODE_OFFSET = -GestureCodes.MIN_CODE;
+
+    private final Resolver resolver;
+    private final String[] labels = new String[CODE_OFFSET + GestureCodes.MAX_CODE + 1];
+    private String language;
+    private int resolveCount;
+
+    /**
+     * @param resolver looks up the text of each code
+     */
+    public GestureLabels(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @param code one of the {@link GestureCodes} values
+     * @param language language the labels are displayed in, the labels are resolved again only
+     *                 when it is different from the previous call
+     * @return the text for the code
+     */
+    public String get(int code, String language) {
+        if (!language.equals(this.language)) {
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = resolver.resolve(i - CODE_OFFSET);
+            }
+            this.language = language;
+            resolveCount++;
+        }
+        return labels[code + CODE_OFFSET];
+    }
+
+    /**
+     * @return number of times the labels have been resolved
+     */
+    public int getResolveCount() {
+        return resolveCount;
+    }
+}
@@ -0,0 +1,244 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lookup table from the state of the fingers of a hand to the number it signs, compiled from a
+ * rule file (see {@code assets/gesture_rules.txt} for its format).
+ * <p>
+ * The state of the fingers is packed in a small bitmask: the lowest bit is set when the thumb is
+ * open, and every other finger takes two bits holding {@link #NEITHER}, {@link #UP} or
+ * {@link #DOWN}, starting from the index finger. Classifying a hand is then one array access,
+ * plus the extra conditions of the rule when it has any, which read the {@link HandFeatures} of
+ * the hand.
+ */
+public final class GestureRuleTable {
+
+    public static final int THUMB_OPEN = 1;
+    public static final int NEITHER = 0;
+    public static final int UP = 1;
+    public static final int DOWN = 2;
+    /** Number of different finger masks. */
+    public static final int MASK_COUNT = 1 << 9;
+
+    private static final String[] FINGER_STATES = {"neither", "up", "down"};
+
+    /**
+     * Extra condition checked over the features of a hand once its finger states match a rule.
+     */
+    interface Condition {
+        boolean test(float[] features);
+    }
+
+    // Rules of every mask, in the order they appear on the file, null when there is none
+    private final Rule[][] rulesByMask = new Rule[MASK_COUNT][];
+
+    private GestureRuleTable() {
+    }
+
+    /**
+     * @param finger finger index, 0 for the index finger up to 3 for the pinky
+     * @param state one of {@link #NEITHER}, {@link #UP} or {@link #DOWN}
+     * @return the bits of the mask for that finger state
+     */
+    public static int fingerBits(int finger, int state) {
+        return state << (1 + finger * 2);
+    }
+
+    /**
+     * Finds the number signed by a hand.
+     *
+     * @param mask finger states of the hand
+     * @param features features of the hand, filled by {@link HandFeatures#extract}
+     * @return one of the {@link GestureCodes} values, {@link GestureCodes#NO_GESTURE} when no
+     * rule matches
+     */
+    public int lookup(int mask, float[] features) {
+        Rule[] rules = rulesByMask[mask];
+        if (rules != null) {
+            for (Rule rule : rules) {
+                if (rule.matches(features)) {
+                    return rule.code;
+                }
+            }
+        }
+        return GestureCodes.NO_GESTURE;
+    }
+
+    /**
+     * Reads a rule file and builds the table for it.
+     *
+     * @param reader reader over the rule file
+     * @return the compiled table
+     * @throws IOException when the file cannot be read
+     * @throws IllegalArgumentException when a rule is not valid, with the line where it is
+     */
+    public static GestureRuleTable parse(Reader reader) throws IOException {
+        List<List<Rule>> rules = new ArrayList<>(MASK_COUNT);
+        for (int mask = 0; mask < MASK_COUNT; mask++) {
+            rules.add(null);
+        }
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                parseRule(line, rules);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Invalid gesture rule on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        GestureRuleTable table = new GestureRuleTable();
+        for (int mask = 0; mask < MASK_COUNT; mask++) {
+            List<Rule> maskRules = rules.get(mask);
+            if (maskRules != null) {
+                table.rulesByMask[mask] = maskRules.toArray(new Rule[0]);
+            }
+        }
+        return table;
+    }
+
+    private static void parseRule(String line, List<List<Rule>> rules) {
+        String[] fields = line.split("\\s+", 7);
+        if (fields.length < 6) {
+            throw new IllegalArgumentException("expected a number and five finger states");
+        }
+        int code = Integer.parseInt(fields[0]);
+        if (!GestureCodes.isDigit(code)) {
+            throw new IllegalArgumentException("unknown number " + code);
+        }
+        Condition[][] conditions = null;
+        if (fields.length == 7) {
+            String tail = fields[6].trim();
+            if (!tail.startsWith("if ")) {
+                throw new IllegalArgumentException("expected \"if\" before the conditions");
+            }
+            conditions = parseConditions(tail.substring(3));
+        }
+        Rule rule = new Rule(code, conditions);
+
+        // Every finger state can be "any", so one rule can fill several masks
+        int[] masks = parseThumb(fields[1]);
+        for (int finger = 0; finger < 4; finger++) {
+            int[] states = parseFinger(fields[2 + finger]);
+            int[] expanded = new int[masks.length * states.length];
+            int i = 0;
+            for (int mask : masks) {
+                for (int state : states) {
+                    expanded[i++] = mask | fingerBits(finger, state);
+                }
+            }
+            masks = expanded;
+        }
+        for (int mask : masks) {
+            if (rules.get(mask) == null) {
+                rules.set(mask, new ArrayList<>(1));
+            }
+            rules.get(mask).add(rule);
+        }
+    }
+
+    private static int[] parseThumb(String field) {
+        switch (field) {
+            case "open": return new int[]{THUMB_OPEN};
+            case "bent": return new int[]{0};
+            case "any": return new int[]{0, THUMB_OPEN};
+            default: throw new IllegalArgumentException("unknown thumb state " + field);
+        }
+    }
+
+    private static int[] parseFinger(String field) {
+        if (field.equals("any")) {
+            return new int[]{NEITHER, UP, DOWN};
+        }
+        for (int state = 0; state < FINGER_STATES.length; state++) {
+            if (FINGER_STATES[state].equals(field)) {
+                return new int[]{state};
+            }
+        }
+        throw new IllegalArgumentException("unknown finger state " + field);
+    }
+
+    private static Condition[][] parseConditions(String text) {
+        String[] alternatives = text.split("\\|");
+        Condition[][] conditions = new Condition[alternatives.length][];
+        for (int i = 0; i < alternatives.length; i++) {
+            String[] terms = alternatives[i].split("&");
+            conditions[i] = new Condition[terms.length];
+            for (int j = 0; j < terms.length; j++) {
+                conditions[i][j] = parseCondition(terms[j].trim());
+            }
+        }
+        return conditions;
+    }
+
+    private static Condition parseCondition(String term) {
+        switch (term) {
+            case "leftHand": return features -> features[HandFeatures.LEFT_HAND] != 0f;
+            case "rightHand": return features -> features[HandFeatures.LEFT_HAND] == 0f;
+        }
+        String measure = "thumbIndexAngle";
+        if (!term.startsWith(measure)) {
+            throw new IllegalArgumentException("unknown condition " + term);
+        }
+        String comparison = term.substring(measure.length()).trim();
+        String operator = comparison.startsWith(">=") || comparison.startsWith("<=")
+                ? comparison.substring(0, 2) : comparison.substring(0, Math.min(1, comparison.length()));
+        final int degrees;
+        try {
+            degrees = Integer.parseInt(comparison.substring(operator.length()).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected degrees on " + term);
+        }
+        switch (operator) {
+            case ">=": return features -> features[HandFeatures.THUMB_INDEX_ANGLE] >= degrees;
+            case "<=": return features -> features[HandFeatures.THUMB_INDEX_ANGLE] <= degrees;
+            case ">": return features -> features[HandFeatures.THUMB_INDEX_ANGLE] > degrees;
+            case "<": return features -> features[HandFeatures.THUMB_INDEX_ANGLE] < degrees;
+            default: throw new IllegalArgumentException("unknown comparison on " + term);
+        }
+    }
+
+    /**
+     * Number given by one line of the rule file, with its extra conditions if it has any.
+     */
+    private static final class Rule {
+        final int code;
+        // Alternatives of conditions, the rule matches when all the conditions of any of them pass
+        final Condition[][] conditions;
+
+        Rule(int code, Condition[][] conditions) {
+            this.code = code;
+            this.conditions = conditions;
+        }
+
+        boolean matches(float[] features) {
+            if (conditions == null) {
+                return true;
+            }
+            for (Condition[] alternative : conditions) {
+                boolean all = true;
+                for (Condition condition : alternative) {
+                    if (!condition.test(features)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
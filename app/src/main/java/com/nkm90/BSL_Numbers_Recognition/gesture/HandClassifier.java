@@ -0,0 +1,26 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Decides the number signed by one hand from its {@link HandFeatures}. The rule table and the
+ * learned models implement it, so the {@link GestureEngine} can run any of them.
+ * <p>
+ * Every classification also gives how sure the classifier is of it, so the frames on the border
+ * between two numbers can be told apart from the clear ones.
+ * <p>
+ * Implementations may keep working buffers between calls, so each thread needs its own instance.
+ */
+public interface HandClassifier {
+
+    /**
+     * @param features features of the hand, filled by {@link HandFeatures#extract}
+     * @return one of the {@link GestureCodes} digits, or {@link GestureCodes#NO_GESTURE} when the
+     * hand does not sign a number
+     */
+    int classify(float[] features);
+
+    /**
+     * @return how sure the last call to {@link #classify} was of its result, from 0, on the border
+     * with another result, to 1
+     */
+    float getLastConfidence();
+}
@@ -0,0 +1,209 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Features of one hand measured in its own frame of reference, worked out in a single pass over
+ * the landmarks and stored in a primitive vector that the rules and models read from.
+ * <p>
+ * The points are moved so the wrist is the origin, turned so the palm axis (from the wrist to the
+ * base of the middle finger) points up, and scaled so that axis is one unit long. A hand tilted
+ * to either side or further from the camera gives then the same values as an upright one, and
+ * Y still grows downwards like on the image, so the tip of a raised finger has the lowest Y.
+ * <p>
+ * The vector holds, starting at each offset:
+ * <ul>
+ * <li>{@link #POINTS}: X, Y and Z of the 21 points, laid out as on {@link HandLandmarks}</li>
+ * <li>{@link #EXTENSION}: for every finger, thumb first, the distance from its tip to the wrist
+ * divided by the distance from its base to the wrist. The thumb is measured against the base of
+ * the middle finger instead, from its tip and from its last joint. Below one the finger is
+ * folded</li>
+ * <li>{@link #JOINT_ANGLE}: angle of the middle joint of every finger, thumb first, in degrees,
+ * 180 when the finger is straight</li>
+ * <li>{@link #THUMB_INDEX_ANGLE}: signed angle made by the thumb tip, the thumb base and the index
+ * tip, in degrees</li>
+ * <li>{@link #LEFT_HAND}: 1 when the thumb base is on the right of the pinky base, 0 otherwise</li>
+ * <li>{@link #PALM_SIZE}: length of the palm axis on the image, in normalised units</li>
+ * <li>{@link #WRIST_X}, {@link #WRIST_Y}: position of the wrist on the image</li>
+ * <li>{@link #PALM_ANGLE}: angle of the palm axis on the image, in degrees, 0 when the hand is
+ * upright and positive when it leans to the right</li>
+ * </ul>
+ * The values up to {@link #PALM_SIZE} do not depend on where the hand is on the image, the last
+ * ones place it there.
+ */
+public final class HandFeatures {
+
+    /** Number of fingers, the thumb included. */
+    public static final int FINGER_COUNT = 5;
+
+    public static final int POINTS = 0;
+    public static final int EXTENSION = POINTS + FLOATS_PER_HAND;
+    public static final int JOINT_ANGLE = EXTENSION + FINGER_COUNT;
+    public static final int THUMB_INDEX_ANGLE = JOINT_ANGLE + FINGER_COUNT;
+    public static final int LEFT_HAND = THUMB_INDEX_ANGLE + 1;
+    public static final int PALM_SIZE = LEFT_HAND + 1;
+    public static final int WRIST_X = PALM_SIZE + 1;
+    public static final int WRIST_Y = WRIST_X + 1;
+    public static final int PALM_ANGLE = WRIST_Y + 1;
+    /** Number of floats in the vector. */
+    public static final int SIZE = PALM_ANGLE + 1;
+
+    /**
+     * Points read by the features of every finger, thumb first: the joints before and after its
+     * middle joint, its tip and the point its extension is measured against.
+     */
+    static final int[][] FINGER_POINTS = {
+            {THUMB_CMC, THUMB_MCP, THUMB_IP, THUMB_TIP, MIDDLE_MCP},
+            {INDEX_MCP, INDEX_PIP, INDEX_DIP, INDEX_TIP, WRIST},
+            {MIDDLE_MCP, MIDDLE_PIP, MIDDLE_DIP, MIDDLE_TIP, WRIST},
+            {RING_MCP, RING_PIP, RING_DIP, RING_TIP, WRIST},
+            {PINKY_MCP, PINKY_PIP, PINKY_DIP, PINKY_TIP, WRIST},
+    };
+
+    // A palm shorter than this is not a hand, the points are then only moved to the wrist
+    private static final float MIN_PALM_SIZE = 1e-6f;
+
+    private HandFeatures() {
+    }
+
+    /**
+     * @return a new vector big enough for the features of one hand
+     */
+    public static float[] newVector() {
+        return new float[SIZE];
+    }
+
+    /**
+     * Measures the features of one hand.
+     *
+     * @param landmarks buffer with the landmark points
+     * @param offset offset of the hand inside the buffer
+     * @param features vector of {@link #SIZE} floats that is overwritten with the features
+     */
+    public static void extract(float[] landmarks, int offset, float[] features) {
+        extractHand(landmarks, offset, features);
+        for (int finger = 0; finger < FINGER_COUNT; finger++) {
+            measureFinger(features, finger);
+        }
+    }
+
+    /**
+     * Measures every feature of one hand but the ones of each finger, {@link #EXTENSION} and
+     * {@link #JOINT_ANGLE}, which {@link #measureFinger} fills.
+     */
+    static void extractHand(float[] landmarks, int offset, float[] features) {
+        float wristX = landmarks[x(offset, WRIST)];
+        float wristY = landmarks[y(offset, WRIST)];
+        float wristZ = landmarks[z(offset, WRIST)];
+        float axisX = landmarks[x(offset, MIDDLE_MCP)] - wristX;
+        float axisY = landmarks[y(offset, MIDDLE_MCP)] - wristY;
+        float palm = (float) Math.sqrt(axisX * axisX + axisY * axisY);
+        features[WRIST_X] = wristX;
+        features[WRIST_Y] = wristY;
+        features[PALM_ANGLE] = (float) Math.toDegrees(Math.atan2(axisX, -axisY));
+
+        // Rotation taking the palm axis to (0, -1) and scaling it to one unit
+        float cos;
+        float sin;
+        if (palm < MIN_PALM_SIZE) {
+            cos = 1f;
+            sin = 0f;
+            palm = 1f;
+            features[PALM_SIZE] = 0f;
+        } else {
+            cos = -axisY / palm;
+            sin = axisX / palm;
+            features[PALM_SIZE] = palm;
+        }
+        float scale = 1f / palm;
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            float dx = landmarks[x(offset, i)] - wristX;
+            float dy = landmarks[y(offset, i)] - wristY;
+            features[x(POINTS, i)] = (dx * cos + dy * sin) * scale;
+            features[y(POINTS, i)] = (dy * cos - dx * sin) * scale;
+            features[z(POINTS, i)] = (landmarks[z(offset, i)] - wristZ) * scale;
+        }
+
+        features[THUMB_INDEX_ANGLE] = (float) Math.toDegrees(angle(features, THUMB_TIP, THUMB_MCP, INDEX_TIP));
+        features[LEFT_HAND] = features[x(POINTS, THUMB_MCP)] > features[x(POINTS, PINKY_MCP)] ? 1f : 0f;
+    }
+
+    /**
+     * Measures the extension and the joint angle of one finger from the points of the vector.
+     *
+     * @param features vector whose points were filled by {@link #extractHand}
+     * @param finger finger index, 0 for the thumb up to 4 for the pinky
+     */
+    static void measureFinger(float[] features, int finger) {
+        features[EXTENSION + finger] = extension(features, finger);
+        features[JOINT_ANGLE + finger] = jointAngle(features, FINGER_POINTS[finger][1]);
+    }
+
+    /**
+     * Measures the {@link #EXTENSION} of one finger from the points of the vector, without
+     * storing it.
+     *
+     * @param features vector whose points were filled by {@link #extractHand}
+     * @param finger finger index, 0 for the thumb up to 4 for the pinky
+     * @return the extension of the finger
+     */
+    public static float extension(float[] features, int finger) {
+        int reference = FINGER_POINTS[finger][4];
+        return extension(distance(features, FINGER_POINTS[finger][3], reference),
+                distance(features, extensionBase(finger), reference));
+    }
+
+    /**
+     * @param far distance from the tip of the finger to its reference point
+     * @param near distance from the base of the finger to its reference point
+     * @return the extension of the finger, 0 when the base is on the reference point
+     */
+    static float extension(double far, double near) {
+        return near == 0 ? 0f : (float) (far / near);
+    }
+
+    /**
+     * @return point the extension of the finger divides by the distance of, its base
+     */
+    static int extensionBase(int finger) {
+        return finger == 0 ? FINGER_POINTS[finger][2] : FINGER_POINTS[finger][0];
+    }
+
+    /**
+     * @param features vector filled by {@link #extract}
+     * @param landmark index of the point
+     * @return X value of the point in the frame of the hand
+     */
+    public static float pointX(float[] features, int landmark) {
+        return features[x(POINTS, landmark)];
+    }
+
+    /**
+     * @param features vector filled by {@link #extract}
+     * @param landmark index of the point
+     * @return Y value of the point in the frame of the hand
+     */
+    public static float pointY(float[] features, int landmark) {
+        return features[y(POINTS, landmark)];
+    }
+
+    /**
+     * @return angle at {@code joint} between the previous and the next point, in degrees
+     */
+    private static float jointAngle(float[] features, int joint) {
+        return (float) Math.toDegrees(Math.abs(angle(features, joint - 1, joint, joint + 1)));
+    }
+
+    private static double angle(float[] features, int a, int b, int c) {
+        return LandmarkGeometry.getAngleABC(
+                pointX(features, a), pointY(features, a),
+                pointX(features, b), pointY(features, b),
+                pointX(features, c), pointY(features, c));
+    }
+
+    static double distance(float[] features, int a, int b) {
+        return LandmarkGeometry.getEuclideanDistanceAB(
+                pointX(features, a), pointY(features, a),
+                pointX(features, b), pointY(features, b));
+    }
+}
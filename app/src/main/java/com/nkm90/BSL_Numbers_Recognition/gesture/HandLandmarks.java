@@ -0,0 +1,88 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Layout of the primitive landmark buffer shared by the gesture classes. Every hand takes
+ * {@link #FLOATS_PER_HAND} consecutive floats holding the X, Y and Z values of the 21 points
+ * produced by the MediaPipe hand landmark model, and hands are stored one after the other.
+ */
+public final class HandLandmarks {
+
+    /** Number of points that MediaPipe returns for each hand. */
+    public static final int LANDMARK_COUNT = 21;
+    /** Number of floats stored per point (X, Y and Z). */
+    public static final int STRIDE = 3;
+    /** Number of floats taken by one hand inside the buffer. */
+    public static final int FLOATS_PER_HAND = LANDMARK_COUNT * STRIDE;
+    /** Maximum number of hands tracked by the multi-hand graph. */
+    public static final int MAX_HANDS = 2;
+
+    /* Landmark indices as defined by the MediaPipe hand model */
+    public static final int WRIST = 0;
+    public static final int THUMB_CMC = 1;
+    public static final int THUMB_MCP = 2;
+    public static final int THUMB_IP = 3;
+    public static final int THUMB_TIP = 4;
+    public static final int INDEX_MCP = 5;
+    public static final int INDEX_PIP = 6;
+    public static final int INDEX_DIP = 7;
+    public static final int INDEX_TIP = 8;
+    public static final int MIDDLE_MCP = 9;
+    public static final int MIDDLE_PIP = 10;
+    public static final int MIDDLE_DIP = 11;
+    public static final int MIDDLE_TIP = 12;
+    public static final int RING_MCP = 13;
+    public static final int RING_PIP = 14;
+    public static final int RING_DIP = 15;
+    public static final int RING_TIP = 16;
+    public static final int PINKY_MCP = 17;
+    public static final int PINKY_PIP = 18;
+    public static final int PINKY_DIP = 19;
+    public static final int PINKY_TIP = 20;
+
+    private HandLandmarks() {
+    }
+
+    /**
+     * Creates a buffer big enough to hold every hand the graph can track.
+     *
+     * @return a new zeroed landmark buffer
+     */
+    public static float[] newBuffer() {
+        return new float[MAX_HANDS * FLOATS_PER_HAND];
+    }
+
+    /**
+     * @param hand index of the hand inside the buffer
+     * @return offset of the first float of that hand
+     */
+    public static int handOffset(int hand) {
+        return hand * FLOATS_PER_HAND;
+    }
+
+    /**
+     * @param handOffset offset of the hand inside the buffer
+     * @param landmark index of the point, between 0 and 20
+     * @return position of the X value for that point, Y and Z follow it
+     */
+    public static int x(int handOffset, int landmark) {
+        return handOffset + landmark * STRIDE;
+    }
+
+    /**
+     * @param handOffset offset of the hand inside the buffer
+     * @param landmark index of the point, between 0 and 20
+     * @return position of the Y value for that point
+     */
+    public static int y(int handOffset, int landmark) {
+        return handOffset + landmark * STRIDE + 1;
+    }
+
+    /**
+     * @param handOffset offset of the hand inside the buffer
+     * @param landmark index of the point, between 0 and 20
+     * @return position of the Z value for that point
+     */
+    public static int z(int handOffset, int landmark) {
+        return handOffset + landmark * STRIDE + 2;
+    }
+}
@@ -0,0 +1,119 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.MAX_HANDS;
+
+/**
+ * Follows the hands from one frame to the next, so every hand keeps the same identity whatever
+ * the order the graph lists them in. The hands of a frame are paired with the ones of the
+ * previous frame either in order or crossed, whichever moves the wrists less, a change of
+ * handedness counting as some extra distance. A hand whose wrist moved further than a hand can
+ * between two frames gets a new identity.
+ * <p>
+ * The state is kept on primitive arrays and updating it does not create any object. The graph
+ * tracks up to {@link HandLandmarks#MAX_HANDS} hands, two, which is what pairing them in order or
+ * crossed covers.
+ */
+public final class HandTracker {
+
+    private final float squaredMaxJump;
+    private final float handednessPenalty;
+
+    // Hands of the last frame, in the order of the buffer
+    private int trackCount;
+    private final int[] identities = new int[MAX_HANDS];
+    private final int[] trackedFrames = new int[MAX_HANDS];
+    private final float[] wristX = new float[MAX_HANDS];
+    private final float[] wristY = new float[MAX_HANDS];
+    private final float[] leftHand = new float[MAX_HANDS];
+    private final int[] nextIdentities = new int[MAX_HANDS];
+    private final int[] nextTrackedFrames = new int[MAX_HANDS];
+    private int nextIdentity;
+
+    /**
+     * @param maxJump distance, in normalised image units, a wrist can move between two frames and
+     *                still be the same hand
+     * @param handednessPenalty squared distance added when the handedness of a hand changes
+     */
+    public HandTracker(float maxJump, float handednessPenalty) {
+        this.squaredMaxJump = maxJump * maxJump;
+        this.handednessPenalty = handednessPenalty;
+    }
+
+    /**
+     * Pairs the hands of a frame with the ones of the previous frame.
+     *
+     * @param features features of every hand of the frame, see {@link HandFeatures}
+     * @param handCount number of hands on the frame
+     */
+    public void update(float[][] features, int handCount) {
+        boolean crossed = false;
+        if (trackCount == 2 && handCount == 2) {
+            crossed = cost(features, 0, 1) + cost(features, 1, 0) < cost(features, 0, 0) + cost(features, 1, 1);
+        } else if (trackCount == 2 && handCount == 1) {
+            crossed = cost(features, 0, 1) < cost(features, 0, 0);
+        } else if (trackCount == 1 && handCount == 2) {
+            crossed = cost(features, 1, 0) < cost(features, 0, 0);
+        }
+        for (int hand = 0; hand < handCount; hand++) {
+            int track = crossed ? 1 - hand : hand;
+            if (track < trackCount && cost(features, hand, track) < squaredMaxJump) {
+                nextIdentities[hand] = identities[track];
+                nextTrackedFrames[hand] = trackedFrames[track] + 1;
+            } else {
+                nextIdentities[hand] = nextIdentity++;
+                nextTrackedFrames[hand] = 1;
+            }
+        }
+        for (int hand = 0; hand < handCount; hand++) {
+            float[] values = features[hand];
+            identities[hand] = nextIdentities[hand];
+            trackedFrames[hand] = nextTrackedFrames[hand];
+            wristX[hand] = values[HandFeatures.WRIST_X];
+            wristY[hand] = values[HandFeatures.WRIST_Y];
+            leftHand[hand] = values[HandFeatures.LEFT_HAND];
+        }
+        trackCount = handCount;
+    }
+
+    /**
+     * Forgets the hands of the last frame, so every hand of the next frame is a new one, as when
+     * the frames do not come from the same stream.
+     */
+    public void reset() {
+        trackCount = 0;
+    }
+
+    /**
+     * @return squared distance between the wrist of a hand and the one of a hand of the last
+     * frame, plus the penalty when their handedness is different
+     */
+    private float cost(float[][] features, int hand, int track) {
+        float dx = features[hand][HandFeatures.WRIST_X] - wristX[track];
+        float dy = features[hand][HandFeatures.WRIST_Y] - wristY[track];
+        float cost = dx * dx + dy * dy;
+        return features[hand][HandFeatures.LEFT_HAND] != leftHand[track] ? cost + handednessPenalty : cost;
+    }
+
+    /**
+     * @param hand index of the hand on the last frame
+     * @return identity of the hand, the same on every frame since it was first seen
+     */
+    public int identity(int hand) {
+        return identities[hand];
+    }
+
+    /**
+     * @param hand index of the hand on the last frame
+     * @return number of consecutive frames the hand has been seen on, the last one included
+     */
+    public int trackedFrames(int hand) {
+        return trackedFrames[hand];
+    }
+
+    /**
+     * @return number of hands on the last frame
+     */
+    public int getHandCount() {
+        return trackCount;
+    }
+}
@@ -0,0 +1,233 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures.*;
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Works out the finger states the {@link RuleClassifier} reads for the same hand frame after
+ * frame, keeping the state of a finger while it cannot have changed. While a sign is held most
+ * fingers stay clearly up or folded, and measuring them again is the bulk of the work.
+ * <p>
+ * The points of the hand and the features the conditions of the rules read are measured on every
+ * frame by {@link HandFeatures#extractHand}, the joint angles are never measured, as the rules do
+ * not read them. When a finger is measured, its bits on the mask and its part of the confidence
+ * are worked out exactly as {@link RuleClassifier#fingerMask} and {@link RuleClassifier#margin}
+ * do, along with the lowest part of the confidence it can reach while none of the points it reads
+ * moves further than the epsilon, in the frame of the hand and on either axis. A finger that has
+ * not moved that far keeps its bits when no such movement can change them and that lowest part is
+ * not under the confidence of the fingers measured on the frame, so it cannot be the finger the
+ * confidence is taken from. The mask and the confidence are then always the ones of a full
+ * measure, a finger near a border being measured on every frame.
+ * <p>
+ * The {@link HandFeatures#EXTENSION} of a kept finger is the one of its last measure; the
+ * {@link MotionFrames} measure the extensions from the points themselves.
+ * <p>
+ * The state is kept between frames, so each hand of each thread needs its own instance.
+ */
+public final class IncrementalFingerStates {
+
+    // Points the state of every finger reads, thumb first. The extension of the thumb reads its
+    // tip, its last joint and the base of the middle finger; the other fingers read their four
+    // joints, their extension being measured against the wrist, the origin of the hand frame.
+    private static final int[][] STATE_POINTS = {
+            {THUMB_IP, THUMB_TIP, MIDDLE_MCP},
+            {INDEX_MCP, INDEX_PIP, INDEX_DIP, INDEX_TIP},
+            {MIDDLE_MCP, MIDDLE_PIP, MIDDLE_DIP, MIDDLE_TIP},
+            {RING_MCP, RING_PIP, RING_DIP, RING_TIP},
+            {PINKY_MCP, PINKY_PIP, PINKY_DIP, PINKY_TIP},
+    };
+    private static final int MAX_STATE_POINTS = 4;
+    // Room left on the borders for the rounding of the float measures, in palm lengths
+    private static final float SLACK = 1e-4f;
+
+    private final float epsilon;
+    // Largest change of the distance from a still point to one moving by the epsilon on either axis
+    private final double distanceEpsilon;
+
+    // Points of every finger when it was last measured, X and Y of each
+    private final float[] measuredPoints = new float[FINGER_COUNT * MAX_STATE_POINTS * 2];
+    private final int[] bits = new int[FINGER_COUNT];
+    // Lowest part of the confidence every finger can reach without moving further than the
+    // epsilon, or -1 when such a movement can change its bits
+    private final float[] lowestMargin = new float[FINGER_COUNT];
+    private boolean measured;
+    private int mask;
+    private float margin;
+
+    private long measuredFingers;
+    private long keptFingers;
+
+    /**
+     * @param epsilon movement, in palm lengths on either axis, under which a finger far from its
+     *                borders may keep its state
+     */
+    public IncrementalFingerStates(float epsilon) {
+        if (epsilon < 0) {
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        }
+        this.epsilon = epsilon;
+        distanceEpsilon = Math.sqrt(2) * epsilon;
+    }
+
+    /**
+     * Measures the hand and works out the state of its fingers, read afterwards with
+     * {@link #getMask()} and {@link #getMargin()}.
+     *
+     * @param landmarks buffer with the landmark points
+     * @param offset offset of the hand inside the buffer
+     * @param features vector of {@link HandFeatures#SIZE} floats that is overwritten with the features
+     */
+    public void extract(float[] landmarks, int offset, float[] features) {
+        HandFeatures.extractHand(landmarks, offset, features);
+        float margin = 1f;
+        int still = 0;
+        for (int finger = 0; finger < FINGER_COUNT; finger++) {
+            if (measured && lowestMargin[finger] >= 0 && hasNotMoved(features, finger)) {
+                still |= 1 << finger;
+            } else {
+                margin = Math.min(margin, measure(features, finger));
+            }
+        }
+        // The fingers that did not move are kept once the confidence is not over the lowest part
+        // they can reach, measuring the one that can reach the lowest until then
+        while (still != 0) {
+            int lowest = lowestFinger(still);
+            if (lowestMargin[lowest] >= margin) {
+                keptFingers += Integer.bitCount(still);
+                break;
+            }
+            still &= ~(1 << lowest);
+            margin = Math.min(margin, measure(features, lowest));
+        }
+        int mask = 0;
+        for (int finger = 0; finger < FINGER_COUNT; finger++) {
+            mask |= bits[finger];
+        }
+        this.mask = mask;
+        this.margin = margin;
+        measured = true;
+    }
+
+    /**
+     * Measures every finger again on the next frame, as when another hand takes this slot.
+     */
+    public void reset() {
+        measured = false;
+    }
+
+    /**
+     * @return the finger states of the last hand, as {@link RuleClassifier#fingerMask} returns them
+     */
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * @return the confidence of the last hand, as {@link RuleClassifier#margin} returns it
+     */
+    public float getMargin() {
+        return margin;
+    }
+
+    /**
+     * @return number of times the state of a finger was measured
+     */
+    public long getMeasuredFingers() {
+        return measuredFingers;
+    }
+
+    /**
+     * @return number of times a finger kept the state of its last measure
+     */
+    public long getKeptFingers() {
+        return keptFingers;
+    }
+
+    /**
+     * @param fingers bit of every finger to look at
+     * @return the one of those fingers that can reach the lowest part of the confidence
+     */
+    private int lowestFinger(int fingers) {
+        int lowest = -1;
+        for (int finger = 0; finger < FINGER_COUNT; finger++) {
+            if ((fingers & 1 << finger) != 0 && (lowest < 0 || lowestMargin[finger] < lowestMargin[lowest])) {
+                lowest = finger;
+            }
+        }
+        return lowest;
+    }
+
+    private boolean hasNotMoved(float[] features, int finger) {
+        int[] points = STATE_POINTS[finger];
+        int slot = finger * MAX_STATE_POINTS * 2;
+        for (int point : points) {
+            if (Math.abs(features[x(POINTS, point)] - measuredPoints[slot++]) > epsilon
+                    || Math.abs(features[y(POINTS, point)] - measuredPoints[slot++]) > epsilon) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Works out the bits of the finger and the lowest part of the confidence it can reach, and
+     * keeps its points.
+     *
+     * @return the part of the finger in the confidence, as {@link RuleClassifier#margin} takes it
+     */
+    private float measure(float[] features, int finger) {
+        measuredFingers++;
+        int reference = FINGER_POINTS[finger][4];
+        double far = distance(features, FINGER_POINTS[finger][3], reference);
+        double near = distance(features, extensionBase(finger), reference);
+        float extension = HandFeatures.extension(far, near);
+        features[EXTENSION + finger] = extension;
+        // Only the base of the thumb moves with its other points, the wrist is the origin
+        double extensionFloor = lowestExtensionChange(far, near,
+                finger == 0 ? 2 * distanceEpsilon : distanceEpsilon);
+
+        float margin;
+        if (finger == 0) {
+            bits[finger] = RuleClassifier.thumbBits(extension);
+            margin = RuleClassifier.extensionMargin(extension);
+            lowestMargin[finger] = extensionFloor > 0
+                    ? (float) (extensionFloor / RuleClassifier.CLEAR_EXTENSION) : -1f;
+        } else {
+            float lowestStep = RuleClassifier.lowestStep(features, finger - 1);
+            bits[finger] = RuleClassifier.fingerBits(finger - 1, lowestStep, extension);
+            margin = RuleClassifier.fingerMargin(lowestStep, extension);
+            // Every joint moving by the epsilon changes a step by twice that at most
+            double stepFloor = Math.abs(lowestStep) - 2 * epsilon - SLACK;
+            if (stepFloor <= 0 || lowestStep <= 0f && extensionFloor <= 0) {
+                lowestMargin[finger] = -1f;
+            } else if (lowestStep > 0f) {
+                lowestMargin[finger] = (float) (stepFloor / RuleClassifier.CLEAR_JOINT_STEP);
+            } else {
+                lowestMargin[finger] = (float) Math.min(stepFloor / RuleClassifier.CLEAR_JOINT_STEP,
+                        extensionFloor / RuleClassifier.CLEAR_EXTENSION);
+            }
+        }
+
+        int slot = finger * MAX_STATE_POINTS * 2;
+        for (int point : STATE_POINTS[finger]) {
+            measuredPoints[slot++] = features[x(POINTS, point)];
+            measuredPoints[slot++] = features[y(POINTS, point)];
+        }
+        return margin;
+    }
+
+    /**
+     * @param far distance from the tip of the finger to its reference point
+     * @param near distance from the base of the finger to its reference point
+     * @param change largest change of both distances
+     * @return the lowest distance of the extension from 1 while both distances change by no more
+     * than that, or 0 and under when the extension can reach the other side of 1
+     */
+    private static double lowestExtensionChange(double far, double near, double change) {
+        change += SLACK * Math.max(1, near);
+        if (far >= near) {
+            return (far - change) / (near + change) - 1;
+        }
+        return near > change ? 1 - (far + change) / (near - change) : -1;
+    }
+}
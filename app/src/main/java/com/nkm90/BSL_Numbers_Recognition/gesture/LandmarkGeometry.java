@@ -0,0 +1,78 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Geometry helpers used to compare the positions of the landmarks. They only work with
+ * primitive values so they can be called on every frame without creating any object.
+ */
+public final class LandmarkGeometry {
+
+    private LandmarkGeometry() {
+    }
+
+    /**
+     * The following method calculates the distance between 2 points (A and B) using euclidean
+     * distance formula.
+     *
+     * @param a_x Value of X for the given position of point A
+     * @param a_y Value of Y for the given position of point A
+     * @param b_x Value of X for the given position of point B
+     * @param b_y Value of Y for the given position of point B
+     * @return Euclidean distance result
+     */
+    public static double getEuclideanDistanceAB(double a_x, double a_y, double b_x, double b_y) {
+        return Math.sqrt(getSquaredDistanceAB(a_x, a_y, b_x, b_y));
+    }
+
+    /**
+     * Squared version of {@link #getEuclideanDistanceAB}. When two distances only need to be
+     * compared the square root can be skipped, as it does not change which one is smaller.
+     *
+     * @param a_x Value of X for the given position of point A
+     * @param a_y Value of Y for the given position of point A
+     * @param b_x Value of X for the given position of point B
+     * @param b_y Value of Y for the given position of point B
+     * @return Squared euclidean distance result
+     */
+    public static double getSquaredDistanceAB(double a_x, double a_y, double b_x, double b_y) {
+        double dx = a_x - b_x;
+        double dy = a_y - b_y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * This method calculates the angle between 3 given points (A,B,C)
+     * using the angle between vectors formula. The vector 1 is made
+     * with points AB and vector 2 is made with points BC, being point B
+     * the vertex.
+     *
+     * @param a_x Value of X for the given position of A
+     * @param a_y Value of Y for the given position of A
+     * @param b_x Value of X for the given position of B
+     * @param b_y Value of Y for the given position of B
+     * @param c_x Value of X for the given position of C
+     * @param c_y Value of Y for the given position of C
+     * @return Angle in radians
+     */
+    public static double getAngleABC(double a_x, double a_y,
+                                     double b_x, double b_y,
+                                     double c_x, double c_y) {
+        double ab_x = b_x - a_x;
+        double ab_y = b_y - a_y;
+        double cb_x = b_x - c_x;
+        double cb_y = b_y - c_y;
+
+        double dot = (ab_x * cb_x + ab_y * cb_y);   // dot product
+        double cross = (ab_x * cb_y - ab_y * cb_x); // cross product
+
+        return Math.atan2(cross, dot);
+    }
+
+    /**
+     * Method to convert radian to degree based on the formula
+     * @param radian Value of radians to convert
+     * @return Angle in degrees
+     */
+    public static int radianToDegree(double radian) {
+        return (int) Math.floor(radian * 180. / Math.PI + 0.5);
+    }
+}
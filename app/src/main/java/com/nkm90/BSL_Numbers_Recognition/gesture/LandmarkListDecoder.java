@@ -0,0 +1,172 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Reads a serialised MediaPipe {@code NormalizedLandmarkList} straight into a landmark buffer,
+ * walking the protobuf wire format by hand so no message, list or boxed value is created for
+ * the points. It only depends on the wire format, which is stable, and not on the classes
+ * generated by protobuf.
+ * <p>
+ * The list message holds the points on field 1 and every point keeps its X, Y and Z values as
+ * floats on fields 1, 2 and 3. Fields that are not known, like the visibility of newer graphs,
+ * are skipped, and values missing from the message are read as zero like protobuf does.
+ * <p>
+ * The decoder keeps the read position between calls, so each thread needs its own instance.
+ */
+public final class LandmarkListDecoder {
+
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_FIXED64 = 1;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRETYPE_FIXED32 = 5;
+
+    // NormalizedLandmarkList.landmark
+    private static final int LANDMARK_FIELD = 1;
+    // NormalizedLandmark.x, y and z
+    private static final int X_FIELD = 1;
+    private static final int Y_FIELD = 2;
+    private static final int Z_FIELD = 3;
+
+    private byte[] data;
+    private int position;
+
+    /**
+     * Decodes one hand into the buffer. Points after the first {@link HandLandmarks#LANDMARK_COUNT}
+     * are read but not stored.
+     *
+     * @param message serialised NormalizedLandmarkList
+     * @param landmarks buffer laid out as described on {@link HandLandmarks}
+     * @param hand index of the hand inside the buffer
+     * @return number of points found on the message
+     * @throws IllegalArgumentException when the message is not a valid landmark list
+     */
+    public int decode(byte[] message, float[] landmarks, int hand) {
+        int offset = HandLandmarks.handOffset(hand);
+        data = message;
+        position = 0;
+        int count = 0;
+        try {
+            while (position < message.length) {
+                int tag = readVarint32();
+                if (tag >>> 3 == LANDMARK_FIELD && (tag & 7) == WIRETYPE_LENGTH_DELIMITED) {
+                    int end = readLimit();
+                    if (count < HandLandmarks.LANDMARK_COUNT) {
+                        readLandmark(end, landmarks, offset, count);
+                    } else {
+                        position = end;
+                    }
+                    count++;
+                } else {
+                    skipField(tag);
+                }
+            }
+        } finally {
+            data = null;
+        }
+        if (position != message.length) {
+            throw new IllegalArgumentException("Truncated landmark list");
+        }
+        // Points the message did not carry are cleared so the previous frame does not leak in
+        for (int i = count; i < HandLandmarks.LANDMARK_COUNT; i++) {
+            landmarks[HandLandmarks.x(offset, i)] = 0f;
+            landmarks[HandLandmarks.y(offset, i)] = 0f;
+            landmarks[HandLandmarks.z(offset, i)] = 0f;
+        }
+        return count;
+    }
+
+    private void readLandmark(int end, float[] landmarks, int offset, int landmark) {
+        float x = 0f;
+        float y = 0f;
+        float z = 0f;
+        while (position < end) {
+            int tag = readVarint32();
+            int field = tag >>> 3;
+            if ((tag & 7) == WIRETYPE_FIXED32 && field >= X_FIELD && field <= Z_FIELD) {
+                float value = Float.intBitsToFloat(readFixed32());
+                if (field == X_FIELD) {
+                    x = value;
+                } else if (field == Y_FIELD) {
+                    y = value;
+                } else {
+                    z = value;
+                }
+            } else {
+                skipField(tag);
+            }
+        }
+        if (position != end) {
+            throw new IllegalArgumentException("Landmark " + landmark + " overruns its length");
+        }
+        landmarks[HandLandmarks.x(offset, landmark)] = x;
+        landmarks[HandLandmarks.y(offset, landmark)] = y;
+        landmarks[HandLandmarks.z(offset, landmark)] = z;
+    }
+
+    private void skipField(int tag) {
+        switch (tag & 7) {
+            case WIRETYPE_VARINT:
+                readVarint64();
+                break;
+            case WIRETYPE_FIXED64:
+                position = checkedPosition(position + 8);
+                break;
+            case WIRETYPE_LENGTH_DELIMITED:
+                position = readLimit();
+                break;
+            case WIRETYPE_FIXED32:
+                position = checkedPosition(position + 4);
+                break;
+            default:
+                // groups are not used by the landmark messages
+                throw new IllegalArgumentException("Unexpected wire type on tag " + tag);
+        }
+    }
+
+    /**
+     * Reads the length prefix of a length delimited field.
+     *
+     * @return position where the field ends
+     */
+    private int readLimit() {
+        int length = readVarint32();
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length);
+        }
+        return checkedPosition(position + length);
+    }
+
+    private int checkedPosition(int newPosition) {
+        if (newPosition < 0 || newPosition > data.length) {
+            throw new IllegalArgumentException("Truncated landmark list");
+        }
+        return newPosition;
+    }
+
+    private int readFixed32() {
+        int start = position;
+        position = checkedPosition(position + 4);
+        return (data[start] & 0xff)
+                | (data[start + 1] & 0xff) << 8
+                | (data[start + 2] & 0xff) << 16
+                | (data[start + 3] & 0xff) << 24;
+    }
+
+    private int readVarint32() {
+        return (int) readVarint64();
+    }
+
+    private long readVarint64() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated landmark list");
+            }
+            byte b = data[position++];
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,228 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Small multilayer perceptron classifying a hand from its {@link HandFeatures}, as a learned
+ * alternative to the rule table. Every layer is a dense layer followed by a ReLU, except the last
+ * one, which gives one score per digit plus one for a hand that does not sign a number. The
+ * weights are kept on flat float arrays and the activations on buffers allocated once, so
+ * classifying does not create any object.
+ * <p>
+ * The model file is little endian and laid out as:
+ * <pre>
+ * int     magic, "BSLM"
+ * int     version, 1
+ * int     number of inputs, the first values of the feature vector
+ * int     number of layers
+ * float   minimum confidence, below it the hand is not taken as a number
+ * float[] mean of every input
+ * float[] scale of every input, applied after the mean is taken away
+ * for every layer:
+ *   int     number of outputs
+ *   float[] weights, one row of inputs per output
+ *   float[] bias of every output
+ * </pre>
+ * It is small enough to be memory mapped from the assets and read straight from the mapping.
+ */
+public final class MlpClassifier implements HandClassifier {
+
+    private static final int MAGIC = 'B' | 'S' << 8 | 'L' << 16 | 'M' << 24;
+    private static final int VERSION = 1;
+    /** Number of outputs of the last layer: the digits and then no number. */
+    public static final int OUTPUT_COUNT = GestureCodes.DIGIT_COUNT + 1;
+
+    private final int inputCount;
+    private final float minConfidence;
+    private final float[] means;
+    private final float[] scales;
+    private final float[][] weights;
+    private final float[][] biases;
+    // Values entering every layer, and the scores of the last one at the end
+    private final float[][] activations;
+    private float lastConfidence;
+
+    /**
+     * @param minConfidence probability the best output needs to be taken as a number
+     * @param means mean of every input
+     * @param scales scale of every input
+     * @param weights weights of every layer, one row of inputs per output
+     * @param biases bias of every output of every layer
+     * @throws IllegalArgumentException when the layers do not fit together
+     */
+    public MlpClassifier(float minConfidence, float[] means, float[] scales, float[][] weights, float[][] biases) {
+        int inputs = means.length;
+        if (inputs == 0 || inputs > HandFeatures.SIZE || scales.length != inputs) {
+            throw new IllegalArgumentException("Invalid number of inputs " + inputs);
+        }
+        if (weights.length == 0 || biases.length != weights.length) {
+            throw new IllegalArgumentException("Invalid number of layers " + weights.length);
+        }
+        this.inputCount = inputs;
+        this.minConfidence = minConfidence;
+        this.means = means;
+        this.scales = scales;
+        this.weights = weights;
+        this.biases = biases;
+        activations = new float[weights.length + 1][];
+        activations[0] = new float[inputs];
+        for (int layer = 0; layer < weights.length; layer++) {
+            int outputs = biases[layer].length;
+            if (outputs == 0 || weights[layer].length != outputs * activations[layer].length) {
+                throw new IllegalArgumentException("Layer " + layer + " does not fit its inputs");
+            }
+            activations[layer + 1] = new float[outputs];
+        }
+        if (activations[weights.length].length != OUTPUT_COUNT) {
+            throw new IllegalArgumentException("The last layer needs " + OUTPUT_COUNT + " outputs");
+        }
+    }
+
+    /**
+     * Reads a model, from the position of the buffer.
+     *
+     * @param buffer buffer holding the model file, usually a memory mapped asset
+     * @return the classifier for that model
+     * @throws IllegalArgumentException when the buffer does not hold a valid model
+     */
+    public static MlpClassifier read(ByteBuffer buffer) {
+        ByteBuffer model = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (model.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a gesture model");
+            }
+            int version = model.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported model version " + version);
+            }
+            int inputs = model.getInt();
+            int layers = model.getInt();
+            if (inputs <= 0 || inputs > HandFeatures.SIZE || layers <= 0 || layers > 16) {
+                throw new IllegalArgumentException("Invalid model shape " + inputs + "x" + layers);
+            }
+            float minConfidence = model.getFloat();
+            float[] means = readFloats(model, inputs);
+            float[] scales = readFloats(model, inputs);
+            float[][] weights = new float[layers][];
+            float[][] biases = new float[layers][];
+            int layerInputs = inputs;
+            for (int layer = 0; layer < layers; layer++) {
+                int outputs = model.getInt();
+                if (outputs <= 0 || (long) outputs * layerInputs > model.remaining() / 4) {
+                    throw new IllegalArgumentException("Invalid size of layer " + layer);
+                }
+                weights[layer] = readFloats(model, outputs * layerInputs);
+                biases[layer] = readFloats(model, outputs);
+                layerInputs = outputs;
+            }
+            return new MlpClassifier(minConfidence, means, scales, weights, biases);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated gesture model", e);
+        }
+    }
+
+    /**
+     * Writes the model in the format read by {@link #read}.
+     *
+     * @return a buffer holding the model file, ready to be read
+     */
+    public ByteBuffer write() {
+        int floats = 1 + 2 * inputCount;
+        for (int layer = 0; layer < weights.length; layer++) {
+            floats += 1 + weights[layer].length + biases[layer].length;
+        }
+        ByteBuffer model = ByteBuffer.allocate(16 + floats * 4).order(ByteOrder.LITTLE_ENDIAN);
+        model.putInt(MAGIC).putInt(VERSION).putInt(inputCount).putInt(weights.length);
+        model.putFloat(minConfidence);
+        writeFloats(model, means);
+        writeFloats(model, scales);
+        for (int layer = 0; layer < weights.length; layer++) {
+            model.putInt(biases[layer].length);
+            writeFloats(model, weights[layer]);
+            writeFloats(model, biases[layer]);
+        }
+        model.flip();
+        return model;
+    }
+
+    /**
+     * Creates a classifier sharing the weights of this one, with its own working buffers so it
+     * can be used on another thread.
+     *
+     * @return the new classifier
+     */
+    public MlpClassifier copy() {
+        return new MlpClassifier(minConfidence, means, scales, weights, biases);
+    }
+
+    @Override
+    public int classify(float[] features) {
+        float[] input = activations[0];
+        for (int i = 0; i < inputCount; i++) {
+            input[i] = (features[i] - means[i]) * scales[i];
+        }
+        int last = weights.length - 1;
+        for (int layer = 0; layer <= last; layer++) {
+            float[] in = activations[layer];
+            float[] out = activations[layer + 1];
+            float[] w = weights[layer];
+            float[] b = biases[layer];
+            int inputs = in.length;
+            for (int o = 0, row = 0; o < out.length; o++, row += inputs) {
+                float sum = b[o];
+                for (int i = 0; i < inputs; i++) {
+                    sum += w[row + i] * in[i];
+                }
+                out[o] = layer == last || sum > 0f ? sum : 0f;
+            }
+        }
+
+        // Softmax probability of the best score
+        float[] scores = activations[last + 1];
+        int best = 0;
+        for (int o = 1; o < OUTPUT_COUNT; o++) {
+            if (scores[o] > scores[best]) {
+                best = o;
+            }
+        }
+        double total = 0;
+        for (int o = 0; o < OUTPUT_COUNT; o++) {
+            total += Math.exp(scores[o] - scores[best]);
+        }
+        lastConfidence = (float) (1 / total);
+        if (best == GestureCodes.DIGIT_COUNT || lastConfidence < minConfidence) {
+            return GestureCodes.NO_GESTURE;
+        }
+        return best;
+    }
+
+    /**
+     * @return probability of the best output on the last call to {@link #classify}
+     */
+    @Override
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    /**
+     * @return number of values of the feature vector the model reads
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeFloats(ByteBuffer buffer, float[] values) {
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+    }
+}
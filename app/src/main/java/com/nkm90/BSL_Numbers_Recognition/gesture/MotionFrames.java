@@ -0,0 +1,76 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Turns the {@link HandFeatures} of consecutive frames into the small vectors compared by the
+ * {@link MotionMatcher}: the extension of every finger, the speed of the wrist and the direction
+ * of the palm axis. The speed is measured in palm lengths per second from the packet timestamps,
+ * so a sign made at the same pace gives the same values whatever the frame rate and the distance
+ * to the camera.
+ * <p>
+ * The previous wrist position is kept between calls, so each stream needs its own instance.
+ */
+public final class MotionFrames {
+
+    /** Values of every motion frame. */
+    public static final int DIMENSIONS = 9;
+
+    private static final int EXTENSION = 0;
+    private static final int SPEED_X = HandFeatures.FINGER_COUNT;
+    private static final int SPEED_Y = SPEED_X + 1;
+    private static final int AXIS_X = SPEED_Y + 1;
+    private static final int AXIS_Y = AXIS_X + 1;
+
+    // Weight of the speed, so a palm length per second counts like a quarter of a folded finger
+    private static final float SPEED_WEIGHT = 0.25f;
+    private static final float MAX_SPEED = 8f;
+    private static final float MAX_EXTENSION = 2f;
+    // Frames further apart than this do not give a speed
+    private static final long MAX_GAP_MICROS = 250_000;
+
+    private float lastWristX;
+    private float lastWristY;
+    private long lastTimestampMicros = -1;
+
+    /**
+     * Builds the motion frame of a hand.
+     *
+     * @param features features of the hand on this frame, the extensions being measured again
+     *                 from its points, which are always up to date
+     * @param timestampMicros timestamp of the packet, in microseconds
+     * @param frame vector of {@link #DIMENSIONS} floats that is overwritten with the motion frame
+     */
+    public void next(float[] features, long timestampMicros, float[] frame) {
+        for (int finger = 0; finger < HandFeatures.FINGER_COUNT; finger++) {
+            frame[EXTENSION + finger] = Math.min(MAX_EXTENSION, HandFeatures.extension(features, finger));
+        }
+        float wristX = features[HandFeatures.WRIST_X];
+        float wristY = features[HandFeatures.WRIST_Y];
+        float palm = features[HandFeatures.PALM_SIZE];
+        long elapsed = timestampMicros - lastTimestampMicros;
+        if (lastTimestampMicros < 0 || elapsed <= 0 || elapsed > MAX_GAP_MICROS || palm <= 0f) {
+            frame[SPEED_X] = 0f;
+            frame[SPEED_Y] = 0f;
+        } else {
+            float perSecond = 1e6f / elapsed / palm;
+            frame[SPEED_X] = clampSpeed((wristX - lastWristX) * perSecond) * SPEED_WEIGHT;
+            frame[SPEED_Y] = clampSpeed((wristY - lastWristY) * perSecond) * SPEED_WEIGHT;
+        }
+        double angle = Math.toRadians(features[HandFeatures.PALM_ANGLE]);
+        frame[AXIS_X] = (float) Math.sin(angle);
+        frame[AXIS_Y] = (float) -Math.cos(angle);
+        lastWristX = wristX;
+        lastWristY = wristY;
+        lastTimestampMicros = timestampMicros;
+    }
+
+    /**
+     * Forgets the previous frame, the next one starts a new stream.
+     */
+    public void reset() {
+        lastTimestampMicros = -1;
+    }
+
+    private static float clampSpeed(float speed) {
+        return Math.max(-MAX_SPEED, Math.min(MAX_SPEED, speed));
+    }
+}
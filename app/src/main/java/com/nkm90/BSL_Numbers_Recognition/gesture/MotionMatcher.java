@@ -0,0 +1,243 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import java.util.Arrays;
+
+/**
+ * Finds signs defined by movement on the stream of motion frames (see {@link MotionFrames}),
+ * matching them against recorded templates with dynamic time warping. The matching is streaming
+ * (subsequence DTW as in the SPRING algorithm): every template keeps one column of warping costs
+ * and the start of the best path to every cell of it, so each frame updates that column only,
+ * taking time proportional to the length of the templates and no memory besides the columns
+ * allocated when a template is added.
+ * <p>
+ * The warping is limited to a band: a path leaving the diagonal started on its first frame by
+ * more than the band, in frames, is dropped. Cells whose best predecessor already costs more than
+ * the template can reach are abandoned without comparing the frames, and the frame comparison
+ * stops as soon as it goes over what is left.
+ * <p>
+ * A match is reported once no path can improve it any more, so a few frames after the sign ends.
+ * The distance of a match is the cost of its path divided by the length of the template, and it
+ * has to be below the threshold.
+ */
+public final class MotionMatcher {
+
+    private final int dimensions;
+    private final int band;
+    private final float threshold;
+
+    private int templateCount;
+    private int[] codes = new int[0];
+    private float[][] templates = new float[0][];
+    // Warping costs of the last frame and of the current one, index 0 being before the template
+    private float[][] costs = new float[0][];
+    private float[][] nextCosts = new float[0][];
+    private long[][] starts = new long[0][];
+    private long[][] nextStarts = new long[0][];
+    // Best match of every template not reported yet, cost infinite when there is none
+    private float[] candidateCosts = new float[0];
+    private long[] candidateStarts = new long[0];
+    private long[] candidateEnds = new long[0];
+
+    private long frameIndex;
+    private float lastDistance = Float.POSITIVE_INFINITY;
+    private long lastStart = -1;
+    private long cellsCompared;
+
+    /**
+     * @param dimensions values of every frame
+     * @param band frames a path can leave the diagonal by
+     * @param threshold largest distance per template frame reported as a match
+     */
+    public MotionMatcher(int dimensions, int band, float threshold) {
+        this.dimensions = dimensions;
+        this.band = band;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Adds a template. It must not be called while frames are matched on another thread.
+     *
+     * @param code code reported when the template matches
+     * @param frames frames of the template, one after the other
+     * @param length number of frames
+     * @return index of the template
+     */
+    public int addTemplate(int code, float[] frames, int length) {
+        if (length <= 0 || frames.length < length * dimensions) {
+            throw new IllegalArgumentException("Invalid template of " + length + " frames");
+        }
+        int template = templateCount++;
+        codes = Arrays.copyOf(codes, templateCount);
+        templates = Arrays.copyOf(templates, templateCount);
+        costs = Arrays.copyOf(costs, templateCount);
+        nextCosts = Arrays.copyOf(nextCosts, templateCount);
+        starts = Arrays.copyOf(starts, templateCount);
+        nextStarts = Arrays.copyOf(nextStarts, templateCount);
+        candidateCosts = Arrays.copyOf(candidateCosts, templateCount);
+        candidateStarts = Arrays.copyOf(candidateStarts, templateCount);
+        candidateEnds = Arrays.copyOf(candidateEnds, templateCount);
+        codes[template] = code;
+        templates[template] = Arrays.copyOf(frames, length * dimensions);
+        costs[template] = new float[length + 1];
+        nextCosts[template] = new float[length + 1];
+        starts[template] = new long[length + 1];
+        nextStarts[template] = new long[length + 1];
+        resetTemplate(template);
+        return template;
+    }
+
+    public int getTemplateCount() {
+        return templateCount;
+    }
+
+    /**
+     * Forgets the frames seen so far, as when the hand is lost.
+     */
+    public void reset() {
+        for (int template = 0; template < templateCount; template++) {
+            resetTemplate(template);
+        }
+    }
+
+    private void resetTemplate(int template) {
+        Arrays.fill(costs[template], Float.POSITIVE_INFINITY);
+        costs[template][0] = 0f;
+        candidateCosts[template] = Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Matches the next frame of the stream.
+     *
+     * @param frame values of the frame
+     * @return the code of the template matched, when a match ends being the best one on this
+     * frame, or {@link GestureCodes#NO_GESTURE}. When several templates report a match on the
+     * same frame the nearest one is taken.
+     */
+    public int onFrame(float[] frame) {
+        long now = frameIndex++;
+        int matched = GestureCodes.NO_GESTURE;
+        float matchedDistance = Float.POSITIVE_INFINITY;
+        for (int template = 0; template < templateCount; template++) {
+            float[] reference = templates[template];
+            float[] previous = costs[template];
+            float[] current = nextCosts[template];
+            long[] previousStarts = starts[template];
+            long[] currentStarts = nextStarts[template];
+            int length = previous.length - 1;
+            float limit = threshold * length;
+
+            // A path can start on every frame
+            current[0] = 0f;
+            currentStarts[0] = now;
+            for (int i = 1; i <= length; i++) {
+                // Predecessors: same template frame on the last stream frame, last template frame
+                // on this stream frame, and the diagonal. Ties keep the latest start.
+                float best = current[i - 1];
+                long start = currentStarts[i - 1];
+                if (previous[i - 1] < best) {
+                    best = previous[i - 1];
+                    start = previousStarts[i - 1];
+                }
+                if (previous[i] < best) {
+                    best = previous[i];
+                    start = previousStarts[i];
+                }
+                if (best >= limit || Math.abs(now - start - (i - 1)) > band) {
+                    current[i] = Float.POSITIVE_INFINITY;
+                    currentStarts[i] = start;
+                    continue;
+                }
+                float distance = distance(frame, reference, (i - 1) * dimensions, limit - best);
+                current[i] = best + distance;
+                currentStarts[i] = start;
+            }
+
+            // The candidate is reported once every path either costs more or started after it
+            float candidate = candidateCosts[template];
+            if (candidate != Float.POSITIVE_INFINITY) {
+                boolean settled = true;
+                for (int i = 1; i <= length; i++) {
+                    if (current[i] < candidate && currentStarts[i] <= candidateEnds[template]) {
+                        settled = false;
+                        break;
+                    }
+                }
+                if (settled) {
+                    float distance = candidate / length;
+                    if (distance < matchedDistance) {
+                        matched = codes[template];
+                        matchedDistance = distance;
+                        lastStart = candidateStarts[template];
+                    }
+                    for (int i = 1; i <= length; i++) {
+                        if (currentStarts[i] <= candidateEnds[template]) {
+                            current[i] = Float.POSITIVE_INFINITY;
+                        }
+                    }
+                    candidateCosts[template] = Float.POSITIVE_INFINITY;
+                }
+            }
+            if (current[length] <= limit && current[length] < candidateCosts[template]) {
+                candidateCosts[template] = current[length];
+                candidateStarts[template] = currentStarts[length];
+                candidateEnds[template] = now;
+            }
+
+            costs[template] = current;
+            nextCosts[template] = previous;
+            starts[template] = currentStarts;
+            nextStarts[template] = previousStarts;
+        }
+        if (matched != GestureCodes.NO_GESTURE) {
+            lastDistance = matchedDistance;
+        }
+        return matched;
+    }
+
+    /**
+     * Euclidean distance between the frame and one frame of a template, giving up with an
+     * infinite distance once it goes over the budget.
+     */
+    private float distance(float[] frame, float[] reference, int offset, float budget) {
+        cellsCompared++;
+        float budgetSquared = budget * budget;
+        float sum = 0f;
+        for (int d = 0; d < dimensions; d++) {
+            float difference = frame[d] - reference[offset + d];
+            sum += difference * difference;
+            if (sum > budgetSquared) {
+                return Float.POSITIVE_INFINITY;
+            }
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * @return distance of the last match reported, per template frame
+     */
+    public float getLastDistance() {
+        return lastDistance;
+    }
+
+    /**
+     * @return number of frames matched before the first frame of the last match reported, -1 when
+     * there was none
+     */
+    public long getLastStartFrame() {
+        return lastStart;
+    }
+
+    /**
+     * @return frame comparisons done so far, the cells abandoned early are not counted
+     */
+    public long getCellsCompared() {
+        return cellsCompared;
+    }
+
+    /**
+     * @return number of frames matched so far
+     */
+    public long getFrameCount() {
+        return frameIndex;
+    }
+}
@@ -0,0 +1,147 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures.*;
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Classifies a hand with the hand-written rules: the state of every finger is packed into a
+ * bitmask and the number is looked up on a {@link GestureRuleTable}, so the signs can be changed
+ * on the rule file without touching this class.
+ * <p>
+ * The confidence is taken from the finger closest to changing state: how far its extension ratio
+ * is from 1 and, for the fingers other than the thumb, how far its joints are from lining up or
+ * from leaving the line. A hand whose fingers are all clearly up or folded gets 1, and one with a
+ * finger right on a border gets close to 0, as the jitter of the points can flip its number.
+ */
+public final class RuleClassifier implements HandClassifier {
+
+    // Distance of the extension ratio from 1 taken as a clear state
+    static final float CLEAR_EXTENSION = 0.25f;
+    // Height between two joints, in palm lengths, taken as a clear state
+    static final float CLEAR_JOINT_STEP = 0.1f;
+
+    private final GestureRuleTable rules;
+    private float lastConfidence;
+
+    /**
+     * @param rules table compiled from the rule file
+     */
+    public RuleClassifier(GestureRuleTable rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public int classify(float[] features) {
+        return classify(features, fingerMask(features), margin(features));
+    }
+
+    /**
+     * Classifies a hand whose finger states were already worked out, as the
+     * {@link IncrementalFingerStates} do.
+     *
+     * @param features features of the hand, read by the conditions of the rules
+     * @param mask finger states as {@link #fingerMask} returns them
+     * @param margin confidence as {@link #margin} returns it
+     * @return the number of the hand
+     */
+    int classify(float[] features, int mask, float margin) {
+        lastConfidence = margin;
+        return rules.lookup(mask, features);
+    }
+
+    @Override
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    /**
+     * @param features features of the hand
+     * @return distance of the finger closest to changing state from its border, 1 and over being
+     * clear, capped at 1
+     */
+    static float margin(float[] features) {
+        float margin = extensionMargin(features[EXTENSION]);
+        for (int finger = 0; finger < 4; finger++) {
+            margin = Math.min(margin,
+                    fingerMargin(lowestStep(features, finger), features[EXTENSION + 1 + finger]));
+        }
+        return Math.min(1f, margin);
+    }
+
+    /**
+     * Works out the state of every finger of a hand.
+     *
+     * @param features features of the hand
+     * @return the finger states packed as described on {@link GestureRuleTable}
+     */
+    static int fingerMask(float[] features) {
+        int mask = thumbBits(features[EXTENSION]);
+        for (int finger = 0; finger < 4; finger++) {
+            mask |= fingerBits(finger, lowestStep(features, finger), features[EXTENSION + 1 + finger]);
+        }
+        return mask;
+    }
+
+    /**
+     * @param extension extension of the thumb
+     * @return the bits of the thumb on the mask
+     */
+    static int thumbBits(float extension) {
+        return extension < 1f ? 0 : GestureRuleTable.THUMB_OPEN;
+    }
+
+    /**
+     * A finger is straight up when, starting from its base, every joint is placed higher on the
+     * hand than the previous one, and straight down when its tip is closer to the wrist than its
+     * base.
+     *
+     * @param finger finger index, 0 for the index up to 3 for the pinky
+     * @param lowestStep step returned by {@link #lowestStep}
+     * @param extension extension of the finger, only read when it is not straight up
+     * @return the bits of the finger on the mask
+     */
+    static int fingerBits(int finger, float lowestStep, float extension) {
+        if (lowestStep > 0f) {
+            return GestureRuleTable.fingerBits(finger, GestureRuleTable.UP);
+        }
+        return extension < 1f ? GestureRuleTable.fingerBits(finger, GestureRuleTable.DOWN) : 0;
+    }
+
+    /**
+     * @param features features of the hand
+     * @param finger finger index, 0 for the index up to 3 for the pinky
+     * @return the lowest height, in palm lengths, that a joint of the finger is placed over the
+     * previous one, over 0 while the finger is straight up
+     */
+    static float lowestStep(float[] features, int finger) {
+        int mcp = INDEX_MCP + finger * 4;
+        float lowestStep = Float.MAX_VALUE;
+        for (int joint = mcp; joint < mcp + 3; joint++) {
+            lowestStep = Math.min(lowestStep, pointY(features, joint) - pointY(features, joint + 1));
+        }
+        return lowestStep;
+    }
+
+    /**
+     * @param lowestStep step returned by {@link #lowestStep}
+     * @param extension extension of the finger, only read when it is not straight up
+     * @return distance of a finger other than the thumb from changing state, 1 and over being clear
+     */
+    static float fingerMargin(float lowestStep, float extension) {
+        float margin = Math.abs(lowestStep) / CLEAR_JOINT_STEP;
+        if (lowestStep <= 0f) {
+            // Not up, so whether it is down or neither depends on its extension as well
+            margin = Math.min(margin, extensionMargin(extension));
+        }
+        return margin;
+    }
+
+    /**
+     * @param extension extension of a finger
+     * @return distance of the extension from changing the state of the finger, 1 and over being
+     * clear
+     */
+    static float extensionMargin(float extension) {
+        return Math.abs(extension - 1f) / CLEAR_EXTENSION;
+    }
+}
@@ -0,0 +1,79 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+/**
+ * Classifies a hand by the reference poses of a {@link TemplateStore} nearest to it: each of the
+ * k nearest templates votes for its number, and on a tie the number that got its votes from the
+ * nearer templates wins. A hand with no template closer than the maximum distance is not taken as
+ * a number. The confidence is the share of the k votes the winner got.
+ */
+public final class TemplateClassifier implements HandClassifier {
+
+    private final TemplateStore templates;
+    private final int k;
+    private final float maxDistance;
+    private final TemplateStore.Search search;
+    // Votes of every digit, and then of the poses that are not a number
+    private final int[] votes = new int[GestureCodes.DIGIT_COUNT + 1];
+    private float lastConfidence;
+
+    /**
+     * @param templates reference poses, not to be changed while classifying
+     * @param k number of nearest templates voting
+     * @param maxDistance templates further than this from the hand do not vote, in palm lengths
+     */
+    public TemplateClassifier(TemplateStore templates, int k, float maxDistance) {
+        this.templates = templates;
+        this.k = k;
+        this.maxDistance = maxDistance;
+        search = templates.newSearch(k);
+    }
+
+    @Override
+    public int classify(float[] features) {
+        int found = search.run(features, maxDistance);
+        if (found == 0) {
+            // No pose is anywhere near, which leaves little doubt the hand does not sign a number
+            lastConfidence = 1f;
+            return GestureCodes.NO_GESTURE;
+        }
+        for (int i = 0; i < votes.length; i++) {
+            votes[i] = 0;
+        }
+        int best = -1;
+        for (int rank = 0; rank < found; rank++) {
+            int vote = slot(templates.label(search.template(rank)));
+            votes[vote]++;
+            if (best == -1 || votes[vote] > votes[best]) {
+                best = vote;
+            }
+        }
+        lastConfidence = (float) votes[best] / k;
+        return best == GestureCodes.DIGIT_COUNT ? GestureCodes.NO_GESTURE : best;
+    }
+
+    @Override
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    /**
+     * Creates a classifier over the same templates, with its own search buffers so it can be
+     * used on another thread.
+     *
+     * @return the new classifier
+     */
+    public TemplateClassifier copy() {
+        return new TemplateClassifier(templates, k, maxDistance);
+    }
+
+    /**
+     * @return templates compared with the hand on the last call to {@link #classify}
+     */
+    public int getLastVisited() {
+        return search.getVisited();
+    }
+
+    private static int slot(int label) {
+        return GestureCodes.isDigit(label) ? label : GestureCodes.DIGIT_COUNT;
+    }
+}
@@ -0,0 +1,391 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Library of reference poses, each one the normalised points of a hand ({@link HandFeatures#POINTS})
+ * with the number it signs, indexed with a vantage point tree so the nearest poses to a hand are
+ * found without comparing it with every one of them.
+ * <p>
+ * The tree is kept implicitly on one array of template indices: the node of a range holds its
+ * vantage template on the first slot, followed by the templates closer to it than the node radius
+ * and then the ones further away, each half being the range of a child node. Small ranges are
+ * leaves and are scanned. Templates added after the tree was built are scanned too, until there
+ * are enough of them to build the tree again, so adding a template is cheap and searching stays
+ * sublinear.
+ * <p>
+ * The file format is little endian, with the values quantised to 16 bits:
+ * <pre>
+ * header     magic (int) | version (int) | dimensions (int) | count (int) | quantum (float)
+ * labels     count x label (byte)
+ * templates  count x dimensions x value / quantum (short)
+ * </pre>
+ * Searching can run on several threads, each one with its own {@link Search}, but templates must
+ * not be added meanwhile.
+ */
+public final class TemplateStore {
+
+    /** Values of every template, the normalised points of one hand. */
+    public static final int DIMENSIONS = HandLandmarks.FLOATS_PER_HAND;
+
+    static final int MAGIC = 0x42534C54; // "BSLT"
+    static final int VERSION = 1;
+    // Points are in palm lengths, so this keeps about 4 decimals up to 8 palms from the wrist
+    static final float QUANTUM = 1f / 4096;
+    private static final int HEADER_SIZE = 20;
+    // Ranges of this many templates or fewer are scanned instead of split
+    private static final int LEAF_SIZE = 8;
+    // The tree is built again once the templates added after it are this fraction of the indexed
+    // ones, and at least MIN_PENDING of them
+    private static final int PENDING_FRACTION = 8;
+    private static final int MIN_PENDING = 32;
+    // Deepest tree searched, the median split keeps it below log2 of the number of templates
+    private static final int MAX_DEPTH = 40;
+
+    private float[] values;
+    private byte[] labels;
+    private int count;
+
+    // Template indices in tree order, and the radius of the node starting on every slot
+    private int[] order = new int[0];
+    private float[] radii = new float[0];
+    private int indexedCount;
+    private final Random random = new Random(0);
+
+    public TemplateStore(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        values = new float[capacity * DIMENSIONS];
+        labels = new byte[capacity];
+    }
+
+    /**
+     * Adds a reference pose.
+     *
+     * @param label number signed, or {@link GestureCodes#NO_GESTURE} for a pose that is not one
+     * @param features features of the hand, filled by {@link HandFeatures#extract}
+     */
+    public void add(int label, float[] features) {
+        if (!GestureCodes.isDigit(label) && label != GestureCodes.NO_GESTURE) {
+            throw new IllegalArgumentException("Invalid template label " + label);
+        }
+        if (count == labels.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            labels = Arrays.copyOf(labels, labels.length * 2);
+        }
+        System.arraycopy(features, HandFeatures.POINTS, values, count * DIMENSIONS, DIMENSIONS);
+        labels[count] = (byte) label;
+        count++;
+        int pending = count - indexedCount;
+        if (pending >= MIN_PENDING && pending * PENDING_FRACTION >= indexedCount) {
+            buildIndex();
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return number of templates reached through the tree, the rest are scanned
+     */
+    public int getIndexedCount() {
+        return indexedCount;
+    }
+
+    /**
+     * @param template index of the template, in the order they were added
+     * @return the number the template signs
+     */
+    public int label(int template) {
+        return labels[template];
+    }
+
+    /**
+     * Builds the tree over every template, which the next {@link #add} calls also do once enough
+     * templates are pending.
+     */
+    public void buildIndex() {
+        order = new int[count];
+        radii = new float[count];
+        float[] distances = new float[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        build(0, count, distances);
+        indexedCount = count;
+    }
+
+    private void build(int from, int to, float[] distances) {
+        if (to - from <= LEAF_SIZE) {
+            return;
+        }
+        swap(order, from, from + random.nextInt(to - from));
+        int vantage = order[from];
+        for (int i = from + 1; i < to; i++) {
+            distances[i] = euclidean(values, vantage * DIMENSIONS, values, order[i] * DIMENSIONS);
+        }
+        int middle = from + 1 + (to - from - 1) / 2;
+        select(distances, from + 1, to - 1, middle);
+        radii[from] = distances[middle];
+        build(from + 1, middle, distances);
+        build(middle, to, distances);
+    }
+
+    /**
+     * Partially sorts a range so the slot k holds the value it would have on the sorted range,
+     * with smaller or equal distances before it and bigger or equal ones after it.
+     */
+    private void select(float[] distances, int left, int right, int k) {
+        while (right > left) {
+            float pivot = distances[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(distances, i, j);
+                    swap(order, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Creates the working buffers to search the nearest templates, to be used on one thread.
+     *
+     * @param k number of nearest templates looked for
+     * @return the search
+     */
+    public Search newSearch(int k) {
+        return new Search(k);
+    }
+
+    /**
+     * Writes the templates in the format read by {@link #read}.
+     *
+     * @return a buffer holding the file, ready to be read
+     */
+    public ByteBuffer write() {
+        ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE + count + count * DIMENSIONS * 2)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        file.putInt(MAGIC).putInt(VERSION).putInt(DIMENSIONS).putInt(count).putFloat(QUANTUM);
+        file.put(labels, 0, count);
+        for (int i = 0; i < count * DIMENSIONS; i++) {
+            int quantised = Math.round(values[i] / QUANTUM);
+            file.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, quantised)));
+        }
+        file.flip();
+        return file;
+    }
+
+    /**
+     * Reads the templates written by {@link #write} and builds their tree.
+     *
+     * @param buffer buffer holding the file, from its position
+     * @return the store with the templates
+     * @throws IllegalArgumentException when the buffer does not hold a valid template file
+     */
+    public static TemplateStore read(ByteBuffer buffer) {
+        ByteBuffer file = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (file.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a template file");
+            }
+            int version = file.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported template file version " + version);
+            }
+            int dimensions = file.getInt();
+            int count = file.getInt();
+            float quantum = file.getFloat();
+            if (dimensions != DIMENSIONS || count < 0 || (long) count * (1 + 2 * DIMENSIONS) > file.remaining()) {
+                throw new IllegalArgumentException("Invalid template file shape " + count + "x" + dimensions);
+            }
+            TemplateStore store = new TemplateStore(count);
+            file.get(store.labels, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (!GestureCodes.isDigit(store.labels[i]) && store.labels[i] != GestureCodes.NO_GESTURE) {
+                    throw new IllegalArgumentException("Invalid label of template " + i);
+                }
+            }
+            for (int i = 0; i < count * DIMENSIONS; i++) {
+                store.values[i] = file.getShort() * quantum;
+            }
+            store.count = count;
+            store.buildIndex();
+            return store;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated template file", e);
+        }
+    }
+
+    private static float euclidean(float[] a, int aOffset, float[] b, int bOffset) {
+        float sum = 0f;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float difference = a[aOffset + i] - b[bOffset + i];
+            sum += difference * difference;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    private static void swap(float[] array, int i, int j) {
+        float swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    /**
+     * Working buffers of a nearest templates search. The nearest templates found are kept sorted
+     * by distance, and the ranges still to visit on a stack, so searching creates no object.
+     */
+    public final class Search {
+
+        private final int k;
+        private final int[] nearest;
+        private final float[] nearestDistances;
+        private int found;
+        // Ranges still to visit, and the least distance any of their templates can be at
+        private final int[] stackFrom = new int[2 * MAX_DEPTH];
+        private final int[] stackTo = new int[2 * MAX_DEPTH];
+        private final float[] stackBounds = new float[2 * MAX_DEPTH];
+        private int visited;
+
+        Search(int k) {
+            if (k <= 0) {
+                throw new IllegalArgumentException("Invalid number of neighbours " + k);
+            }
+            this.k = k;
+            nearest = new int[k];
+            nearestDistances = new float[k];
+        }
+
+        /**
+         * Finds the templates nearest to a hand.
+         *
+         * @param features features of the hand, filled by {@link HandFeatures#extract}
+         * @param maxDistance templates further than this are not taken
+         * @return number of templates found, up to k, nearest first
+         */
+        public int run(float[] features, float maxDistance) {
+            found = 0;
+            visited = 0;
+            int depth = 0;
+            if (indexedCount > 0) {
+                stackFrom[0] = 0;
+                stackTo[0] = indexedCount;
+                stackBounds[0] = 0f;
+                depth = 1;
+            }
+            while (depth > 0) {
+                depth--;
+                int from = stackFrom[depth];
+                int to = stackTo[depth];
+                if (stackBounds[depth] > limit(maxDistance)) {
+                    continue;
+                }
+                if (to - from <= LEAF_SIZE) {
+                    for (int i = from; i < to; i++) {
+                        consider(features, order[i], maxDistance);
+                    }
+                    continue;
+                }
+                float d = consider(features, order[from], maxDistance);
+                float radius = radii[from];
+                int middle = from + 1 + (to - from - 1) / 2;
+                // The nearest half is pushed last so it is visited first
+                if (d < radius) {
+                    depth = push(depth, middle, to, radius - d);
+                    depth = push(depth, from + 1, middle, 0f);
+                } else {
+                    depth = push(depth, from + 1, middle, d - radius);
+                    depth = push(depth, middle, to, 0f);
+                }
+            }
+            for (int template = indexedCount; template < count; template++) {
+                consider(features, template, maxDistance);
+            }
+            return found;
+        }
+
+        private int push(int depth, int from, int to, float bound) {
+            if (from >= to) {
+                return depth;
+            }
+            if (depth == stackFrom.length) {
+                throw new IllegalStateException("Template tree deeper than " + MAX_DEPTH);
+            }
+            stackFrom[depth] = from;
+            stackTo[depth] = to;
+            stackBounds[depth] = bound;
+            return depth + 1;
+        }
+
+        private float limit(float maxDistance) {
+            return found == k ? Math.min(maxDistance, nearestDistances[k - 1]) : maxDistance;
+        }
+
+        private float consider(float[] features, int template, float maxDistance) {
+            visited++;
+            float d = euclidean(features, HandFeatures.POINTS, values, template * DIMENSIONS);
+            if (d > limit(maxDistance) || (found == k && d == nearestDistances[k - 1])) {
+                return d;
+            }
+            int i = found == k ? k - 1 : found++;
+            while (i > 0 && nearestDistances[i - 1] > d) {
+                nearest[i] = nearest[i - 1];
+                nearestDistances[i] = nearestDistances[i - 1];
+                i--;
+            }
+            nearest[i] = template;
+            nearestDistances[i] = d;
+            return d;
+        }
+
+        /**
+         * @param rank position of the template from the nearest, below the count found
+         * @return index of the template
+         */
+        public int template(int rank) {
+            return nearest[rank];
+        }
+
+        /**
+         * @param rank position of the template from the nearest, below the count found
+         * @return distance from the hand to the template
+         */
+        public float distance(int rank) {
+            return nearestDistances[rank];
+        }
+
+        /**
+         * @return templates compared with the hand on the last search
+         */
+        public int getVisited() {
+            return visited;
+        }
+    }
+}
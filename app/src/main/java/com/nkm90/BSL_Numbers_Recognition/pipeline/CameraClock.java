@@ -0,0 +1,84 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+/**
+ * Finds the clock the camera stamps its frames with, so the latency of a frame can be measured.
+ * Cameras do not all use the same clock, so it is given a few and takes the first one that gives
+ * a frame a latency that makes sense; until one does, the first one is used.
+ * <p>
+ * It can be used from any thread, as every candidate found for the same frames is the same one.
+ */
+public final class CameraClock implements ResolutionPolicy.Clock {
+
+    // Latencies over this come from a clock mismatch, not from the graph
+    private static final long MAX_LATENCY_MICROS = 5_000_000L;
+
+    private final ResolutionPolicy.Clock[] clocks;
+    private volatile ResolutionPolicy.Clock clock;
+    private volatile boolean found;
+
+    /**
+     * @param clocks sources of the current time in the time bases the camera frame timestamps may
+     *               be in, the first one preferred when several fit
+     */
+    public CameraClock(ResolutionPolicy.Clock... clocks) {
+        if (clocks.length == 0) {
+            throw new IllegalArgumentException("At least one clock is needed");
+        }
+        this.clocks = clocks;
+        this.clock = clocks[0];
+    }
+
+    /**
+     * Looks for the clock of the camera with a frame, unless it was already found.
+     *
+     * @param frameTimestampMicros timestamp of a camera frame that has just been received
+     * @return true when the clock used has changed
+     */
+    public boolean find(long frameTimestampMicros) {
+        if (found) {
+            return false;
+        }
+        for (ResolutionPolicy.Clock candidate : clocks) {
+            if (isLatency(candidate.nowMicros() - frameTimestampMicros)) {
+                boolean changed = candidate != clock;
+                clock = candidate;
+                found = true;
+                return changed;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true once a frame has found the clock of the camera
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @param frameTimestampMicros timestamp of a camera frame that has just been received, used to
+     *                             find the clock of the camera if it was not found yet
+     * @return time since the frame was taken, in microseconds, on the clock of the camera
+     */
+    public long latencyMicros(long frameTimestampMicros) {
+        find(frameTimestampMicros);
+        return clock.nowMicros() - frameTimestampMicros;
+    }
+
+    /**
+     * @return the current time on the clock of the camera, in microseconds
+     */
+    @Override
+    public long nowMicros() {
+        return clock.nowMicros();
+    }
+
+    /**
+     * @return true when the value can be the latency of a frame, not the difference between two
+     * clocks
+     */
+    static boolean isLatency(long latency) {
+        return latency >= 0 && latency <= MAX_LATENCY_MICROS;
+    }
+}
@@ -0,0 +1,162 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+/**
+ * Decides which camera frames are sent to the MediaPipe graph. The graph runs at the full camera
+ * rate while hands move or the sign changes, at a reduced rate once the same sign has been held
+ * still for a while, and at an idle rate when no hand has been seen for a while. Any change seen
+ * on a processed frame brings the full rate back on the next frame.
+ * <p>
+ * {@link #onResult} is called from the packet thread with every classified frame and
+ * {@link #shouldProcess} from the thread delivering the camera frames. The mode is the only
+ * value shared between them; the counters are only written by the camera thread and can be read
+ * from any thread.
+ */
+public class FrameRatePolicy {
+
+    /** Every camera frame is processed. */
+    public static final int FULL = 0;
+    /** The same sign has been held still, frames are processed at the stable rate. */
+    public static final int STABLE = 1;
+    /** No hand has been seen for a while, frames are processed at the idle rate. */
+    public static final int IDLE = 2;
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final long stableIntervalMicros;
+    private final long idleIntervalMicros;
+    private final long stableAfterMicros;
+    private final long idleAfterMicros;
+    private final float squaredMotionThreshold;
+
+    private volatile int mode = FULL;
+
+    // Only used from the packet thread
+    private long noHandsSince = NOT_SET;
+    private long stableSince = NOT_SET;
+    private int stableGesture;
+    private int stableHandCount;
+    private float anchorX;
+    private float anchorY;
+    private int modeChanges;
+
+    // Only written from the camera thread
+    private long lastProcessed = NOT_SET;
+    private volatile long processedFrames;
+    private volatile long droppedFrames;
+
+    /**
+     * @param stableFramesPerSecond rate used while a sign is held still
+     * @param idleFramesPerSecond rate used while there are no hands
+     * @param stableAfterMicros time a sign has to be held still before the stable rate is used
+     * @param idleAfterMicros time without hands before the idle rate is used
+     * @param motionThreshold distance, in normalised image units, the palm of the first hand can
+     *                        move before it is not considered still anymore
+     */
+    public FrameRatePolicy(int stableFramesPerSecond, int idleFramesPerSecond,
+                           long stableAfterMicros, long idleAfterMicros, float motionThreshold) {
+        if (stableFramesPerSecond <= 0 || idleFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rates must be positive: "
+                    + stableFramesPerSecond + ", " + idleFramesPerSecond);
+        }
+        this.stableIntervalMicros = MICROS_PER_SECOND / stableFramesPerSecond;
+        this.idleIntervalMicros = MICROS_PER_SECOND / idleFramesPerSecond;
+        this.stableAfterMicros = stableAfterMicros;
+        this.idleAfterMicros = idleAfterMicros;
+        this.squaredMotionThreshold = motionThreshold * motionThreshold;
+    }
+
+    /**
+     * Updates the mode with the result of a processed frame, called from the packet thread.
+     *
+     * @param landmarks landmark buffer of the frame
+     * @param handCount number of hands on the buffer
+     * @param gesture gesture code recognised on the frame
+     * @param timestampMicros timestamp of the packet, in microseconds
+     * @return true when the mode has changed
+     */
+    public boolean onResult(float[] landmarks, int handCount, int gesture, long timestampMicros) {
+        int newMode;
+        if (handCount == 0) {
+            stableSince = NOT_SET;
+            if (noHandsSince == NOT_SET) {
+                noHandsSince = timestampMicros;
+            }
+            newMode = timestampMicros - noHandsSince >= idleAfterMicros ? IDLE : FULL;
+        } else {
+            noHandsSince = NOT_SET;
+            // The palm centre, between the wrist and the base of the middle finger, tells if the hand moves
+            float x = (landmarks[HandLandmarks.x(0, HandLandmarks.WRIST)]
+                    + landmarks[HandLandmarks.x(0, HandLandmarks.MIDDLE_MCP)]) * 0.5f;
+            float y = (landmarks[HandLandmarks.y(0, HandLandmarks.WRIST)]
+                    + landmarks[HandLandmarks.y(0, HandLandmarks.MIDDLE_MCP)]) * 0.5f;
+            float dx = x - anchorX;
+            float dy = y - anchorY;
+            if (stableSince == NOT_SET || gesture != stableGesture || handCount != stableHandCount
+                    || dx * dx + dy * dy > squaredMotionThreshold) {
+                stableSince = timestampMicros;
+                stableGesture = gesture;
+                stableHandCount = handCount;
+                anchorX = x;
+                anchorY = y;
+            }
+            newMode = timestampMicros - stableSince >= stableAfterMicros ? STABLE : FULL;
+        }
+        if (newMode == mode) {
+            return false;
+        }
+        mode = newMode;
+        modeChanges++;
+        return true;
+    }
+
+    /**
+     * Tells if a camera frame has to be sent to the graph, called from the camera thread.
+     *
+     * @param frameTimestampMicros timestamp of the camera frame, in microseconds
+     * @return true when the frame has to be processed, false when it can be dropped
+     */
+    public boolean shouldProcess(long frameTimestampMicros) {
+        int current = mode;
+        long interval = current == IDLE ? idleIntervalMicros : current == STABLE ? stableIntervalMicros : 0;
+        // A timestamp going backwards means the camera was restarted
+        if (lastProcessed == NOT_SET || frameTimestampMicros < lastProcessed
+                || frameTimestampMicros - lastProcessed >= interval) {
+            lastProcessed = frameTimestampMicros;
+            processedFrames++;
+            return true;
+        }
+        droppedFrames++;
+        return false;
+    }
+
+    /**
+     * @return one of {@link #FULL}, {@link #STABLE} or {@link #IDLE}
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of camera frames sent to the graph
+     */
+    public long getProcessedFrames() {
+        return processedFrames;
+    }
+
+    /**
+     * @return number of camera frames dropped before reaching the graph
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return number of times the mode has changed, to be read from the packet thread
+     */
+    public int getModeChanges() {
+        return modeChanges;
+    }
+}
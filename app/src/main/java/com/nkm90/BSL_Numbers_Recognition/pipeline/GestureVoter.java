@@ -0,0 +1,125 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+
+/**
+ * Decides when a recognised number is committed by looking at the labels of the latest frames
+ * instead of a single one. The labels are kept on a ring buffer together with the timestamp of
+ * their packet, and a label becomes the candidate once it holds the majority of the window. The
+ * candidate is committed when it has kept the majority for long enough, and it is not committed
+ * again until another label takes the majority, so a held sign is only added once and a single
+ * noisy frame can neither commit nor release it.
+ */
+public class GestureVoter {
+
+    private static final int CODE_OFFSET = -GestureCodes.MIN_CODE;
+    private static final int NO_CANDIDATE = Integer.MIN_VALUE;
+
+    private final int windowFrames;
+    private final long windowMicros;
+    private final int minStableFrames;
+    private final long minStableMicros;
+
+    // Ring buffer with the labels of the window and the number of votes of each label
+    private final int[] labels;
+    private final long[] timestamps;
+    private final int[] votes = new int[CODE_OFFSET + GestureCodes.MAX_CODE + 1];
+    private int head;
+    private int size;
+
+    private int candidate = NO_CANDIDATE;
+    private long candidateSince;
+    private int candidateFrames;
+    // Last digit committed, it cannot be committed again until another label takes the majority
+    private int committed = NO_CANDIDATE;
+
+    /**
+     * @param windowFrames maximum number of frames voting
+     * @param windowMicros frames older than this, compared to the newest frame, stop voting
+     * @param minStableFrames frames a digit has to keep the majority before it is committed
+     * @param minStableMicros time a digit has to keep the majority before it is committed
+     */
+    public GestureVoter(int windowFrames, long windowMicros, int minStableFrames, long minStableMicros) {
+        if (windowFrames <= 0) {
+            throw new IllegalArgumentException("windowFrames must be positive: " + windowFrames);
+        }
+        this.windowFrames = windowFrames;
+        this.windowMicros = windowMicros;
+        this.minStableFrames = minStableFrames;
+        this.minStableMicros = minStableMicros;
+        labels = new int[windowFrames];
+        timestamps = new long[windowFrames];
+    }
+
+    /**
+     * Adds the label of a new frame to the window.
+     *
+     * @param gesture gesture code recognised on the frame
+     * @param timestampMicros timestamp of the packet, in microseconds
+     * @return the digit committed on this frame, or {@link GestureCodes#NO_GESTURE} when nothing
+     * is committed
+     */
+    public int vote(int gesture, long timestampMicros) {
+        // Frames too old to vote leave the window first, then the oldest one if it is full
+        while (size > 0 && timestamps[head] < timestampMicros - windowMicros) {
+            removeOldest();
+        }
+        if (size == windowFrames) {
+            removeOldest();
+        }
+        int tail = (head + size) % windowFrames;
+        labels[tail] = gesture;
+        timestamps[tail] = timestampMicros;
+        votes[gesture + CODE_OFFSET]++;
+        size++;
+
+        int majority = majority();
+        if (majority != candidate) {
+            candidate = majority;
+            candidateSince = timestampMicros;
+            candidateFrames = 0;
+            if (majority != NO_CANDIDATE && majority != committed) {
+                committed = NO_CANDIDATE;
+            }
+        }
+        if (candidate == NO_CANDIDATE) {
+            return GestureCodes.NO_GESTURE;
+        }
+        candidateFrames++;
+        if (candidate != committed && GestureCodes.isNumber(candidate)
+                && candidateFrames >= minStableFrames
+                && timestampMicros - candidateSince >= minStableMicros) {
+            committed = candidate;
+            return candidate;
+        }
+        return GestureCodes.NO_GESTURE;
+    }
+
+    /**
+     * Takes the current candidate as committed, so it is not committed until another label takes
+     * the majority, as when the number is committed by a sign made by moving the same hand.
+     */
+    public void holdCandidate() {
+        if (candidate != NO_CANDIDATE) {
+            committed = candidate;
+        }
+    }
+
+    /**
+     * @return the label with more than half of the votes of the window, or {@link #NO_CANDIDATE}
+     */
+    private int majority() {
+        for (int i = 0; i < votes.length; i++) {
+            if (votes[i] * 2 > size) {
+                return i - CODE_OFFSET;
+            }
+        }
+        return NO_CANDIDATE;
+    }
+
+    private void removeOldest() {
+        votes[labels[head] + CODE_OFFSET]--;
+        head = (head + 1) % windowFrames;
+        size--;
+    }
+}
@@ -0,0 +1,131 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+/**
+ * Smooths the landmarks of every frame in place before they are classified, so the jitter of the
+ * points from one frame to the next does not make the recognised number flip. Every value of the
+ * buffer goes through a One Euro filter: a low pass filter whose cutoff frequency rises with the
+ * speed of the value, so a still hand is smoothed a lot and a moving one follows with little lag.
+ * The filters are worked out from the time between packets, so they behave the same whatever the
+ * frame rate.
+ * <p>
+ * The state of every filter is kept on primitive arrays laid out like the landmark buffer, and no
+ * object is created while smoothing. The filters start again from the raw values when the number
+ * of hands changes, when the packets are too far apart, and for a hand whose wrist jumps further
+ * than a hand can move between two frames, as when two hands swap places on the buffer.
+ * <p>
+ * It is used from the packet thread only.
+ */
+public class LandmarkSmoother {
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final float minCutoff;
+    private final float beta;
+    private final float derivativeCutoff;
+    private final long maxGapMicros;
+    private final float squaredMaxJump;
+
+    // Filtered values and filtered speeds, per second, laid out as the landmark buffer
+    private final float[] values = HandLandmarks.newBuffer();
+    private final float[] speeds = HandLandmarks.newBuffer();
+    private int handCount;
+    private long lastTimestamp = NOT_SET;
+    private int restarts;
+
+    /**
+     * @param minCutoff cutoff frequency, in hertz, used while the hand is still; lower values
+     *                  smooth more
+     * @param beta increase of the cutoff frequency per normalised unit per second of speed; higher
+     *             values lag less behind a moving hand
+     * @param derivativeCutoff cutoff frequency, in hertz, of the speed estimate
+     * @param maxGapMicros time between packets after which the filters start again
+     * @param maxJump distance, in normalised image units, the wrist can move between two frames
+     *                before the filters of that hand start again
+     */
+    public LandmarkSmoother(float minCutoff, float beta, float derivativeCutoff,
+                            long maxGapMicros, float maxJump) {
+        if (minCutoff <= 0 || derivativeCutoff <= 0 || beta < 0) {
+            throw new IllegalArgumentException("Invalid filter parameters: "
+                    + minCutoff + ", " + beta + ", " + derivativeCutoff);
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+        this.maxGapMicros = maxGapMicros;
+        this.squaredMaxJump = maxJump * maxJump;
+    }
+
+    /**
+     * Smooths the landmarks of a frame, replacing them on the buffer.
+     *
+     * @param landmarks landmark buffer of the frame
+     * @param handCount number of hands on the buffer
+     * @param timestampMicros timestamp of the packet, in microseconds
+     */
+    public void smooth(float[] landmarks, int handCount, long timestampMicros) {
+        long elapsed = timestampMicros - lastTimestamp;
+        boolean restart = handCount != this.handCount || lastTimestamp == NOT_SET
+                || elapsed <= 0 || elapsed > maxGapMicros;
+        this.handCount = handCount;
+        lastTimestamp = timestampMicros;
+        float seconds = (float) elapsed / MICROS_PER_SECOND;
+        float derivativeAlpha = restart ? 0f : alpha(derivativeCutoff, seconds);
+        for (int hand = 0; hand < handCount; hand++) {
+            int offset = HandLandmarks.handOffset(hand);
+            if (restart || jumped(landmarks, offset)) {
+                restart(landmarks, offset);
+                continue;
+            }
+            for (int i = offset; i < offset + HandLandmarks.FLOATS_PER_HAND; i++) {
+                float previous = values[i];
+                float speed = speeds[i] + derivativeAlpha * ((landmarks[i] - previous) / seconds - speeds[i]);
+                float value = previous + alpha(minCutoff + beta * Math.abs(speed), seconds)
+                        * (landmarks[i] - previous);
+                speeds[i] = speed;
+                values[i] = value;
+                landmarks[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Starts every filter again from the next frame.
+     */
+    public void reset() {
+        lastTimestamp = NOT_SET;
+    }
+
+    /**
+     * @return number of times the filters of a hand started again from the raw values
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    private boolean jumped(float[] landmarks, int offset) {
+        int x = HandLandmarks.x(offset, HandLandmarks.WRIST);
+        int y = HandLandmarks.y(offset, HandLandmarks.WRIST);
+        float dx = landmarks[x] - values[x];
+        float dy = landmarks[y] - values[y];
+        return dx * dx + dy * dy > squaredMaxJump;
+    }
+
+    private void restart(float[] landmarks, int offset) {
+        System.arraycopy(landmarks, offset, values, offset, HandLandmarks.FLOATS_PER_HAND);
+        for (int i = offset; i < offset + HandLandmarks.FLOATS_PER_HAND; i++) {
+            speeds[i] = 0f;
+        }
+        restarts++;
+    }
+
+    /**
+     * @return weight of the new value for a low pass filter with that cutoff frequency
+     */
+    private static float alpha(float cutoff, float seconds) {
+        float tau = (float) (1 / (2 * Math.PI * cutoff));
+        return 1f / (1f + tau / seconds);
+    }
+}
@@ -0,0 +1,53 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands the newest value produced on one thread over to another thread without locks. Only the
+ * latest value is kept, older ones are overwritten if the consumer has not read them yet, and the
+ * producer is told to wake the consumer only when the value changes and no wake up is pending.
+ * <p>
+ * There must be a single producer thread calling {@link #publish}.
+ */
+public final class LatestValueSlot {
+
+    private final AtomicLong value;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    // Only read and written by the producer
+    private long lastPublished;
+
+    /**
+     * @param initialValue value returned by {@link #take} before anything is published
+     */
+    public LatestValueSlot(long initialValue) {
+        value = new AtomicLong(initialValue);
+        lastPublished = initialValue;
+    }
+
+    /**
+     * Stores a new value, called from the producer thread.
+     *
+     * @param newValue value to hand over
+     * @return true when the consumer has to be scheduled to {@link #take} the value, false when
+     * the value did not change or the consumer is already scheduled
+     */
+    public boolean publish(long newValue) {
+        if (newValue == lastPublished) {
+            return false;
+        }
+        lastPublished = newValue;
+        value.set(newValue);
+        return pending.compareAndSet(false, true);
+    }
+
+    /**
+     * Reads the latest value, called from the consumer thread once it has been scheduled.
+     *
+     * @return the latest published value
+     */
+    public long take() {
+        pending.set(false);
+        return value.get();
+    }
+}
@@ -0,0 +1,154 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the resources of the camera pipeline for the life of the activity. The resources are
+ * created once and kept warm while the activity is paused, so going back and forth between the
+ * menu and the recognition screen does not rebuild them, and they are released exactly once, in
+ * the reverse order they were registered, when the activity is destroyed.
+ * <p>
+ * It also measures the time from each resume to the first landmarks packet, which is what the
+ * user perceives as the screen coming back. {@link #onLandmarks} is called from the packet
+ * thread, the other methods from the UI thread.
+ */
+public final class PipelineLifecycle {
+
+    /**
+     * Receives the errors thrown while releasing a resource, so the rest can still be released.
+     */
+    public interface ErrorListener {
+        void onReleaseError(String name, RuntimeException error);
+    }
+
+    private static final int MAX_RESOURCES = 8;
+    private static final long NO_RESUME = Long.MIN_VALUE;
+
+    private final String[] names = new String[MAX_RESOURCES];
+    private final Runnable[] releases = new Runnable[MAX_RESOURCES];
+    private int resourceCount;
+    private boolean released;
+    private boolean resumed;
+    private int resumeCount;
+
+    // Time of the latest resume until the first landmarks packet after it is seen
+    private final AtomicLong pendingResume = new AtomicLong(NO_RESUME);
+    private volatile boolean pendingColdStart;
+    private volatile long lastResumeLatencyMicros = -1;
+
+    /**
+     * Registers a resource that has been created, to be released when the activity is destroyed.
+     *
+     * @param name name used when reporting an error while releasing it
+     * @param release releases the resource
+     * @throws IllegalStateException when the resources have already been released
+     */
+    public void register(String name, Runnable release) {
+        if (released) {
+            throw new IllegalStateException("Pipeline already released, cannot register " + name);
+        }
+        if (resourceCount == MAX_RESOURCES) {
+            throw new IllegalStateException("Too many pipeline resources");
+        }
+        names[resourceCount] = name;
+        releases[resourceCount] = release;
+        resourceCount++;
+    }
+
+    /**
+     * Called when the activity is resumed.
+     *
+     * @param nowNanos current time of the monotonic clock
+     * @return true on the first resume, when the pipeline has to be started, false when it is
+     * already warm
+     * @throws IllegalStateException when the resources have already been released
+     */
+    public boolean onResume(long nowNanos) {
+        if (released) {
+            throw new IllegalStateException("Pipeline already released");
+        }
+        boolean coldStart = resumeCount == 0;
+        resumed = true;
+        resumeCount++;
+        pendingColdStart = coldStart;
+        pendingResume.set(nowNanos);
+        return coldStart;
+    }
+
+    /**
+     * Called when the activity is paused. The resources are kept.
+     */
+    public void onPause() {
+        resumed = false;
+    }
+
+    /**
+     * Called for every landmarks packet.
+     *
+     * @param nowNanos current time of the monotonic clock
+     * @return microseconds since the latest resume when this is the first packet after it, or -1
+     */
+    public long onLandmarks(long nowNanos) {
+        if (pendingResume.get() == NO_RESUME) {
+            return -1;
+        }
+        long resumedNanos = pendingResume.getAndSet(NO_RESUME);
+        if (resumedNanos == NO_RESUME) {
+            return -1;
+        }
+        long latency = (nowNanos - resumedNanos) / 1000;
+        lastResumeLatencyMicros = latency;
+        return latency;
+    }
+
+    /**
+     * @return true when the latest resume measured by {@link #onLandmarks} was the first one,
+     * which includes starting the camera and the graph
+     */
+    public boolean wasColdStart() {
+        return pendingColdStart;
+    }
+
+    /**
+     * @return time from the latest measured resume to its first landmarks packet, in
+     * microseconds, or -1 when none has been measured
+     */
+    public long getLastResumeLatencyMicros() {
+        return lastResumeLatencyMicros;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public int getResumeCount() {
+        return resumeCount;
+    }
+
+    /**
+     * Releases every registered resource, the last registered first. An error releasing one
+     * resource does not stop the others from being released. Calling it again does nothing.
+     *
+     * @param errorListener receives the errors thrown by the resources
+     */
+    public void release(ErrorListener errorListener) {
+        if (released) {
+            return;
+        }
+        released = true;
+        resumed = false;
+        for (int i = resourceCount - 1; i >= 0; i--) {
+            try {
+                releases[i].run();
+            } catch (RuntimeException e) {
+                errorListener.onReleaseError(names[i], e);
+            }
+            releases[i] = null;
+        }
+        resourceCount = 0;
+    }
+}
@@ -0,0 +1,183 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+/**
+ * Prepares an expensive object on a background thread before it is needed and hands it over to
+ * the first caller that asks for it. Only one object is prepared at a time: asking to start
+ * while one is being prepared or is ready does nothing, and taking it while it is still being
+ * prepared waits for it, which is never slower than preparing a new one.
+ * <p>
+ * An object nobody is going to take can be {@link #discard discarded}, so it is released instead
+ * of being kept for the life of the process.
+ *
+ * @param <T> type of the prepared object
+ */
+public final class Prewarmer<T> {
+
+    /**
+     * Creates the object on the background thread.
+     */
+    public interface Factory<T> {
+        T create() throws Exception;
+    }
+
+    /**
+     * Releases an object that was prepared but not taken.
+     */
+    public interface Releaser<T> {
+        void release(T object) throws Exception;
+    }
+
+    private final String threadName;
+    private final Factory<T> factory;
+    private final Releaser<T> releaser;
+
+    private boolean preparing;
+    // Set when the object being prepared has to be released as soon as it is ready
+    private boolean discardWhenReady;
+    private T ready;
+    private Throwable lastError;
+    private long lastPrepareMicros = -1;
+
+    /**
+     * @param threadName name of the background thread
+     * @param factory creates the object
+     */
+    public Prewarmer(String threadName, Factory<T> factory) {
+        this(threadName, factory, null);
+    }
+
+    /**
+     * @param threadName name of the background thread
+     * @param factory creates the object
+     * @param releaser releases the objects discarded, or null when they need nothing
+     */
+    public Prewarmer(String threadName, Factory<T> factory, Releaser<T> releaser) {
+        this.threadName = threadName;
+        this.factory = factory;
+        this.releaser = releaser;
+    }
+
+    /**
+     * Starts preparing a new object, unless one is ready or already being prepared. An object
+     * being prepared that was discarded is kept instead.
+     *
+     * @return true when a new preparation has been started
+     */
+    public synchronized boolean start() {
+        if (preparing) {
+            discardWhenReady = false;
+            return false;
+        }
+        if (ready != null) {
+            return false;
+        }
+        preparing = true;
+        Thread thread = new Thread(this::prepare, threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Takes the prepared object, waiting for it when it is still being prepared.
+     *
+     * @return the prepared object, which is no longer kept, or null when nothing was being
+     * prepared or the preparation failed
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized T take() throws InterruptedException {
+        while (preparing) {
+            wait();
+        }
+        T taken = ready;
+        ready = null;
+        return taken;
+    }
+
+    /**
+     * Releases the object ready to be taken, on the calling thread, or the one being prepared as
+     * soon as it is ready, on the background thread, unless {@link #start()} is called before.
+     *
+     * @return true when an object has been or will be released
+     */
+    public boolean discard() {
+        T discarded;
+        synchronized (this) {
+            if (preparing) {
+                discardWhenReady = true;
+                return true;
+            }
+            discarded = ready;
+            ready = null;
+        }
+        if (discarded == null) {
+            return false;
+        }
+        release(discarded);
+        return true;
+    }
+
+    /**
+     * @return true when an object is ready to be taken
+     */
+    public synchronized boolean isReady() {
+        return ready != null;
+    }
+
+    /**
+     * @return error thrown by the latest failed preparation or release, or null
+     */
+    public synchronized Throwable getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return time taken by the latest preparation, in microseconds, or -1 when none has finished
+     */
+    public synchronized long getLastPrepareMicros() {
+        return lastPrepareMicros;
+    }
+
+    private void prepare() {
+        long start = System.nanoTime();
+        T created = null;
+        Throwable error = null;
+        try {
+            created = factory.create();
+        } catch (Exception | LinkageError e) {
+            // A native library that cannot be linked fails the preparation instead of the app
+            error = e;
+        } finally {
+            // Runs on any other error too, so take() never hangs
+            T discarded = null;
+            synchronized (this) {
+                if (discardWhenReady) {
+                    discarded = created;
+                    created = null;
+                    discardWhenReady = false;
+                }
+                ready = created;
+                lastError = error;
+                lastPrepareMicros = (System.nanoTime() - start) / 1000;
+                preparing = false;
+                notifyAll();
+            }
+            if (discarded != null) {
+                release(discarded);
+            }
+        }
+    }
+
+    private void release(T object) {
+        if (releaser == null) {
+            return;
+        }
+        try {
+            releaser.release(object);
+        } catch (Exception e) {
+            synchronized (this) {
+                lastError = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionFrames;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionMatcher;
+
+/**
+ * Java side of the processing done for every landmarks packet. It runs on the packet thread,
+ * classifies the frame once, lets the {@link GestureVoter} decide when a number is committed to
+ * the result and hands both values to the UI thread through a {@link LatestValueSlot}.
+ * <p>
+ * The gesture, the committed number and the timestamp of the frame that committed it are packed
+ * together in one long, so the UI always reads consistent values, see {@link #gestureOf},
+ * {@link #committedOf} and {@link #committedTimestampOf}.
+ * <p>
+ * When a {@link LandmarkSmoother} is set, the landmarks are smoothed on the buffer before they
+ * are classified, so the gesture does not flip with the jitter of the points.
+ * <p>
+ * Frames with hands classified with less than the minimum confidence are shown but do not vote,
+ * so the hands caught on the border between two numbers cannot commit either of them, see
+ * {@link #setMinConfidence}.
+ * <p>
+ * When a {@link MotionMatcher} is set, the first hand of every frame is also followed over time
+ * to find the signs made by moving it, see {@link #lastMotion()}. A matched sign whose code is a
+ * number is committed on the frame it ends, over the number the voter commits on that frame, and
+ * the sign held by the hand while it moved is not committed after it.
+ */
+public class RecognitionPipeline {
+
+    private final float[] landmarks = HandLandmarks.newBuffer();
+    private final GestureEngine engine;
+    private final GestureVoter voter;
+    private final LatestValueSlot result =
+            new LatestValueSlot(pack(GestureCodes.NO_GESTURE, GestureCodes.NO_GESTURE, 0));
+
+    private int committed = GestureCodes.NO_GESTURE;
+    private long committedTimestamp;
+    private int lastGesture = GestureCodes.NO_HANDS;
+
+    private final MotionFrames motionFrames = new MotionFrames();
+    private final float[] motionFrame = new float[MotionFrames.DIMENSIONS];
+    private MotionMatcher motionMatcher;
+    private LandmarkSmoother smoother;
+    private float minConfidence;
+    private int weakFrames;
+    private int lastMotion = GestureCodes.NO_GESTURE;
+
+    public RecognitionPipeline(GestureEngine engine, GestureVoter voter) {
+        this.engine = engine;
+        this.voter = voter;
+    }
+
+    /**
+     * Sets the smoother applied to the landmarks before they are classified, or null to classify
+     * the raw landmarks. It has to be called before the first frame, or from the packet thread.
+     *
+     * @param smoother smoother used by this pipeline only
+     */
+    public void setSmoother(LandmarkSmoother smoother) {
+        this.smoother = smoother;
+        if (smoother != null) {
+            smoother.reset();
+        }
+    }
+
+    /**
+     * Sets the confidence, see {@link GestureEngine#getConfidence()}, a frame with hands needs to
+     * vote for the committed number. It has to be called before the first frame, or from the
+     * packet thread.
+     *
+     * @param minConfidence value from 0, every frame votes, to 1
+     */
+    public void setMinConfidence(float minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * Sets the matcher of the signs made by moving the hand, or null to stop matching them. It has
+     * to be called before the first frame, or from the packet thread.
+     *
+     * @param matcher matcher over the frames of {@link MotionFrames}
+     */
+    public void setMotionMatcher(MotionMatcher matcher) {
+        motionMatcher = matcher;
+        motionFrames.reset();
+        lastMotion = GestureCodes.NO_GESTURE;
+    }
+
+    /**
+     * @return buffer where the landmarks of the next frame have to be copied before calling
+     * {@link #onFrame}
+     */
+    public float[] landmarkBuffer() {
+        return landmarks;
+    }
+
+    /**
+     * Classifies the landmarks copied into the {@link #landmarkBuffer()} and updates the result.
+     * When there is a smoother the buffer holds the smoothed landmarks afterwards.
+     *
+     * @param handCount number of hands copied into the buffer
+     * @param timestampMicros timestamp of the packet, in microseconds
+     * @return true when the UI has to be scheduled to read the new result with {@link #takeResult()}
+     */
+    public boolean onFrame(int handCount, long timestampMicros) {
+        if (smoother != null) {
+            smoother.smooth(landmarks, handCount, timestampMicros);
+        }
+        int gesture = engine.classify(landmarks, handCount);
+        lastGesture = gesture;
+        if (motionMatcher != null) {
+            matchMotion(handCount, timestampMicros);
+        }
+        if (handCount > 0 && engine.getConfidence() < minConfidence) {
+            weakFrames++;
+        } else {
+            int voted = voter.vote(gesture, timestampMicros);
+            if (GestureCodes.isNumber(voted) && voted != committed) {
+                committed = voted;
+                committedTimestamp = timestampMicros;
+            }
+        }
+        if (GestureCodes.isNumber(lastMotion)) {
+            voter.holdCandidate();
+            committed = lastMotion;
+            committedTimestamp = timestampMicros;
+        }
+        return result.publish(pack(gesture, committed, committedTimestamp));
+    }
+
+    private void matchMotion(int handCount, long timestampMicros) {
+        if (handCount == 0) {
+            // The sign is lost with the hand
+            motionMatcher.reset();
+            motionFrames.reset();
+            lastMotion = GestureCodes.NO_GESTURE;
+            return;
+        }
+        motionFrames.next(engine.features(0), timestampMicros, motionFrame);
+        lastMotion = motionMatcher.onFrame(motionFrame);
+    }
+
+    /**
+     * @return gesture code of the last frame, to be read from the packet thread
+     */
+    public int lastGesture() {
+        return lastGesture;
+    }
+
+    /**
+     * @return number of frames that did not vote for being under the minimum confidence, to be
+     * read from the packet thread
+     */
+    public int getWeakFrames() {
+        return weakFrames;
+    }
+
+    /**
+     * @return code of the motion sign that ended on the last frame, {@link GestureCodes#NO_GESTURE}
+     * when none did or no {@link MotionMatcher} is set, to be read from the packet thread
+     */
+    public int lastMotion() {
+        return lastMotion;
+    }
+
+    /**
+     * Reads the latest result from the UI thread.
+     *
+     * @return the gesture and committed number packed together
+     */
+    public long takeResult() {
+        return result.take();
+    }
+
+    /**
+     * @param result value returned by {@link #takeResult()}
+     * @return the gesture code recognised on the latest frame
+     */
+    public static int gestureOf(long result) {
+        return (byte) result;
+    }
+
+    /**
+     * @param result value returned by {@link #takeResult()}
+     * @return the code of the latest number committed to the result, {@link GestureCodes#NO_GESTURE}
+     * when nothing has been committed yet
+     */
+    public static int committedOf(long result) {
+        return (byte) (result >>> 8);
+    }
+
+    /**
+     * @param result value returned by {@link #takeResult()}
+     * @return timestamp, in microseconds, of the frame that committed the number given by
+     * {@link #committedOf}, 0 when nothing has been committed yet
+     */
+    public static long committedTimestampOf(long result) {
+        return result >>> 16;
+    }
+
+    private static long pack(int gesture, int committed, long committedTimestamp) {
+        // The codes fit in a byte each, and 48 bits of microseconds are years of uptime
+        return committedTimestamp << 16 | (committed & 0xffL) << 8 | (gesture & 0xffL);
+    }
+}
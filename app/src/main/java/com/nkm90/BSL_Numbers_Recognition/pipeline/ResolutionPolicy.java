@@ -0,0 +1,255 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Chooses the camera resolution from the latency measured between a camera frame and the
+ * landmarks packet produced for it. The latency of the frames is collected over fixed windows,
+ * and when the 90th percentile of several windows in a row is over the budget the next smaller
+ * resolution is requested; when it stays well under the budget the next bigger one is tried.
+ * <p>
+ * A resolution that was too slow is not tried again until a backoff has passed, and the backoff
+ * doubles every time that resolution fails again, so the policy settles instead of going back
+ * and forth between two resolutions.
+ * <p>
+ * The camera can only change its resolution when it is started, so once a new level is chosen no
+ * more decisions are taken until {@link #onCameraStarted()} tells the policy the camera runs with
+ * it. {@link #onPacket} is called from the packet thread, the other methods can be called from
+ * any thread.
+ * <p>
+ * Cameras do not all stamp their frames with the same clock, so the policy can be given a few
+ * clocks and finds the one of the camera with a {@link CameraClock}. Latencies that do not make
+ * sense are left out of the windows and counted, and a window where every packet was left out is
+ * counted too, see {@link #getDroppedWindows()}, as the policy cannot decide anything then.
+ */
+public class ResolutionPolicy {
+
+    /**
+     * Source of the current time, in the time base the camera frame timestamps may be in.
+     */
+    public interface Clock {
+        /**
+         * @return the current time, in microseconds
+         */
+        long nowMicros();
+    }
+
+    private static final int MAX_SAMPLES = 128;
+    private static final int MIN_SAMPLES = 5;
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final int[][] resolutions;
+    private final CameraClock clock;
+    private final long budgetMicros;
+    private final long windowMicros;
+    private final int confirmWindows;
+    private final long initialBackoffMicros;
+
+    private volatile int level;
+    // Set when the camera starts, read on the next packet
+    private volatile boolean cameraStarted;
+    // Level the camera is running with, decisions are only taken when it matches the requested one
+    private int cameraLevel = -1;
+
+    private final long[] samples = new long[MAX_SAMPLES];
+    private final long[] sorted = new long[MAX_SAMPLES];
+    private int sampleCount;
+    private int windowDropped;
+    private long droppedSamples;
+    private int droppedWindows;
+    private long windowStart = NOT_SET;
+    private boolean warmingUp;
+    private int slowWindows;
+    private int fastWindows;
+    private long lastPercentile = -1;
+
+    // Time when each level that was too slow can be tried again, and the backoff used for it
+    private final long[] retryAfter;
+    private final long[] backoff;
+
+    /**
+     * @param resolutions width and height of every level, from the biggest to the smallest
+     * @param initialLevel level requested on the first camera start
+     * @param clock source of the current time, in the time base of the camera frame timestamps
+     * @param budgetMicros latency allowed for the 90th percentile of the frames
+     * @param windowMicros length of each measuring window
+     * @param confirmWindows windows in a row that have to agree before the level changes
+     * @param initialBackoffMicros time before a level that was too slow is tried again, doubled
+     *                             after every new failure of that level
+     */
+    public ResolutionPolicy(int[][] resolutions, int initialLevel, Clock clock, long budgetMicros,
+                            long windowMicros, int confirmWindows, long initialBackoffMicros) {
+        this(resolutions, initialLevel, new Clock[]{clock}, budgetMicros, windowMicros,
+                confirmWindows, initialBackoffMicros);
+    }
+
+    /**
+     * @param resolutions width and height of every level, from the biggest to the smallest
+     * @param initialLevel level requested on the first camera start
+     * @param clocks sources of the current time in the time bases the camera frame timestamps may
+     *               be in, the first one preferred when several fit
+     * @param budgetMicros latency allowed for the 90th percentile of the frames
+     * @param windowMicros length of each measuring window
+     * @param confirmWindows windows in a row that have to agree before the level changes
+     * @param initialBackoffMicros time before a level that was too slow is tried again, doubled
+     *                             after every new failure of that level
+     */
+    public ResolutionPolicy(int[][] resolutions, int initialLevel, Clock[] clocks, long budgetMicros,
+                            long windowMicros, int confirmWindows, long initialBackoffMicros) {
+        if (resolutions.length == 0) {
+            throw new IllegalArgumentException("At least one resolution is needed");
+        }
+        this.resolutions = resolutions;
+        this.clock = new CameraClock(clocks);
+        this.budgetMicros = budgetMicros;
+        this.windowMicros = windowMicros;
+        this.confirmWindows = confirmWindows;
+        this.initialBackoffMicros = initialBackoffMicros;
+        this.level = Math.max(0, Math.min(initialLevel, resolutions.length - 1));
+        retryAfter = new long[resolutions.length];
+        backoff = new long[resolutions.length];
+        Arrays.fill(retryAfter, NOT_SET);
+    }
+
+    /**
+     * @return level to request when the camera is started, 0 being the biggest resolution
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return width of the resolution of the current level
+     */
+    public int getWidth() {
+        return resolutions[level][0];
+    }
+
+    /**
+     * @return height of the resolution of the current level
+     */
+    public int getHeight() {
+        return resolutions[level][1];
+    }
+
+    /**
+     * @return 90th percentile of the latency on the last complete window, in microseconds, or -1
+     * when no window has been measured yet
+     */
+    public long getLastPercentile() {
+        return lastPercentile;
+    }
+
+    /**
+     * @return number of packets whose latency was left out for not making sense, on the clock
+     * used or on every clock before one was found
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    /**
+     * @return number of windows where the latency of every packet was left out, so nothing could
+     * be decided on them
+     */
+    public int getDroppedWindows() {
+        return droppedWindows;
+    }
+
+    /**
+     * Tells the policy the camera has been started with the current level. The first window after
+     * a start is not used, it includes the warm up of the camera and the graph.
+     */
+    public void onCameraStarted() {
+        cameraStarted = true;
+    }
+
+    /**
+     * Measures the latency of a landmarks packet.
+     *
+     * @param frameTimestampMicros timestamp of the camera frame the packet comes from
+     * @return true when a new level has been chosen, to be applied on the next camera start
+     */
+    public boolean onPacket(long frameTimestampMicros) {
+        if (cameraStarted) {
+            cameraStarted = false;
+            cameraLevel = level;
+            resetWindow();
+            warmingUp = true;
+            slowWindows = 0;
+            fastWindows = 0;
+        }
+        if (cameraLevel != level) {
+            return false;
+        }
+        if (clock.find(frameTimestampMicros)) {
+            // The window started on another time base
+            resetWindow();
+        }
+        long now = clock.nowMicros();
+        long latency = now - frameTimestampMicros;
+        if (windowStart == NOT_SET) {
+            windowStart = now;
+        }
+        if (!CameraClock.isLatency(latency)) {
+            windowDropped++;
+            droppedSamples++;
+        } else if (sampleCount < MAX_SAMPLES) {
+            samples[sampleCount++] = latency;
+        }
+        if (now - windowStart < windowMicros) {
+            return false;
+        }
+        if (sampleCount == 0 && windowDropped > 0) {
+            droppedWindows++;
+        }
+        boolean enoughSamples = sampleCount >= MIN_SAMPLES;
+        long percentile = enoughSamples ? percentile90() : -1;
+        boolean skip = warmingUp || !enoughSamples;
+        warmingUp = false;
+        resetWindow();
+        if (skip) {
+            return false;
+        }
+        lastPercentile = percentile;
+        return evaluate(percentile, now);
+    }
+
+    private boolean evaluate(long percentile, long now) {
+        if (percentile > budgetMicros) {
+            slowWindows++;
+            fastWindows = 0;
+        } else if (percentile < budgetMicros / 2) {
+            fastWindows++;
+            slowWindows = 0;
+        } else {
+            // Inside the band around the budget nothing changes
+            slowWindows = 0;
+            fastWindows = 0;
+        }
+        if (slowWindows >= confirmWindows && level < resolutions.length - 1) {
+            backoff[level] = backoff[level] == 0 ? initialBackoffMicros : backoff[level] * 2;
+            retryAfter[level] = now + backoff[level];
+            level++;
+            return true;
+        }
+        if (fastWindows >= confirmWindows && level > 0
+                && (retryAfter[level - 1] == NOT_SET || now >= retryAfter[level - 1])) {
+            level--;
+            return true;
+        }
+        return false;
+    }
+
+    private long percentile90() {
+        System.arraycopy(samples, 0, sorted, 0, sampleCount);
+        Arrays.sort(sorted, 0, sampleCount);
+        return sorted[(sampleCount * 9 + 9) / 10 - 1];
+    }
+
+    private void resetWindow() {
+        sampleCount = 0;
+        windowDropped = 0;
+        windowStart = NOT_SET;
+    }
+}
@@ -0,0 +1,101 @@
+package com.nkm90.BSL_Numbers_Recognition.recording;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.nkm90.BSL_Numbers_Recognition.recording.LandmarkRecordingFormat.*;
+
+/**
+ * Records the landmarks of every frame into a file of fixed size records, written through a
+ * memory-mapped buffer, so the packet thread only copies primitive values and nothing is encoded
+ * as text. The file is a bounded ring (see {@link LandmarkRecordingFormat}), so long sessions keep
+ * the latest frames without filling the storage.
+ * <p>
+ * Frames must be appended from a single thread.
+ */
+public final class LandmarkRecorder implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final FloatBuffer values;
+    private final int capacity;
+    private long written;
+
+    /**
+     * Opens a recording file. An existing file with the same layout keeps its records and new
+     * frames are added after them, any other file is replaced by an empty recording.
+     *
+     * @param path file to record into
+     * @param capacity number of frames kept on the file
+     * @throws IOException when the file cannot be opened or mapped
+     */
+    public LandmarkRecorder(File path, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        file = new RandomAccessFile(path, "rw");
+        boolean resume = file.length() == fileSize(capacity);
+        file.setLength(fileSize(capacity));
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        values = buffer.asFloatBuffer();
+
+        resume = resume
+                && buffer.getInt(MAGIC_OFFSET) == MAGIC
+                && buffer.getInt(VERSION_OFFSET) == VERSION
+                && buffer.getInt(RECORD_SIZE_OFFSET) == RECORD_SIZE
+                && buffer.getInt(CAPACITY_OFFSET) == capacity;
+        if (resume) {
+            written = buffer.getLong(WRITTEN_OFFSET);
+        } else {
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putLong(WRITTEN_OFFSET, 0);
+        }
+    }
+
+    /**
+     * Adds one frame to the recording, overwriting the oldest one when the file is full.
+     *
+     * @param timestamp timestamp of the packet
+     * @param landmarks buffer laid out as described on {@link HandLandmarks}
+     * @param handCount number of hands on the buffer
+     */
+    public void append(long timestamp, float[] landmarks, int handCount) {
+        int position = recordPosition((int) (written % capacity));
+        buffer.putLong(position + TIMESTAMP_OFFSET, timestamp);
+        buffer.putInt(position + HAND_COUNT_OFFSET, handCount);
+        values.position((position + LANDMARKS_OFFSET) / 4);
+        values.put(landmarks, 0, handCount * HandLandmarks.FLOATS_PER_HAND);
+        // The count is updated last, so a record is only visible once it is complete
+        buffer.putLong(WRITTEN_OFFSET, ++written);
+    }
+
+    /**
+     * @return number of frames appended since the recording was created, including the ones
+     * already overwritten
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Writes the pending changes to the storage and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
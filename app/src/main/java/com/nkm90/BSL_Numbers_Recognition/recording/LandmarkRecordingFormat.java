@@ -0,0 +1,49 @@
+package com.nkm90.BSL_Numbers_Recognition.recording;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+/**
+ * Layout of the landmark recording files, shared by the {@link LandmarkRecorder} and the
+ * {@link LandmarkRecordingReader}. Every value is little endian.
+ * <pre>
+ * header   magic (int) | version (int) | record size (int) | capacity (int) | records written (long)
+ * record   timestamp (long) | hand count (int) | unused (int) | 2 x 21 x 3 landmark values (float)
+ * </pre>
+ * The records form a ring: record N is stored on slot N % capacity, so once the file is full the
+ * oldest records are overwritten.
+ */
+final class LandmarkRecordingFormat {
+
+    static final int MAGIC = 0x42534C52; // "BSLR"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_SIZE_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 12;
+    static final int WRITTEN_OFFSET = 16;
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int HAND_COUNT_OFFSET = 8;
+    static final int LANDMARKS_OFFSET = 16;
+    static final int LANDMARK_VALUES = HandLandmarks.MAX_HANDS * HandLandmarks.FLOATS_PER_HAND;
+    static final int RECORD_SIZE = LANDMARKS_OFFSET + LANDMARK_VALUES * 4;
+
+    private LandmarkRecordingFormat() {
+    }
+
+    /**
+     * @return position of a record slot inside the file
+     */
+    static int recordPosition(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    /**
+     * @return size of a file holding that many records
+     */
+    static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,68 @@
+package com.nkm90.BSL_Numbers_Recognition.recording;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.nkm90.BSL_Numbers_Recognition.recording.LandmarkRecordingFormat.*;
+
+/**
+ * Reads back the frames written by a {@link LandmarkRecorder}, from the oldest frame kept on the
+ * file to the newest one.
+ */
+public final class LandmarkRecordingReader {
+
+    /**
+     * Receives the frames of the recording. The landmark buffer is reused between frames.
+     */
+    public interface FrameVisitor {
+        void visit(long timestamp, float[] landmarks, int handCount);
+    }
+
+    private LandmarkRecordingReader() {
+    }
+
+    /**
+     * @param path recording file
+     * @param visitor called once per frame kept on the file
+     * @return number of frames visited
+     * @throws IOException when the file cannot be read or is not a recording
+     */
+    public static int read(File path, FrameVisitor visitor) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (file.length() < HEADER_SIZE
+                    || buffer.getInt(MAGIC_OFFSET) != MAGIC
+                    || buffer.getInt(VERSION_OFFSET) != VERSION
+                    || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IOException(path + " is not a landmark recording");
+            }
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            long written = buffer.getLong(WRITTEN_OFFSET);
+            if (file.length() != fileSize(capacity)) {
+                throw new IOException(path + " is truncated");
+            }
+            FloatBuffer values = buffer.asFloatBuffer();
+            float[] landmarks = HandLandmarks.newBuffer();
+            long first = Math.max(0, written - capacity);
+            for (long record = first; record < written; record++) {
+                int position = recordPosition((int) (record % capacity));
+                int handCount = buffer.getInt(position + HAND_COUNT_OFFSET);
+                if (handCount < 0 || handCount > HandLandmarks.MAX_HANDS) {
+                    throw new IOException("Invalid hand count on record " + record + ": " + handCount);
+                }
+                values.position((position + LANDMARKS_OFFSET) / 4);
+                values.get(landmarks, 0, handCount * HandLandmarks.FLOATS_PER_HAND);
+                visitor.visit(buffer.getLong(position + TIMESTAMP_OFFSET), landmarks, handCount);
+            }
+            return (int) (written - first);
+        }
+    }
+}
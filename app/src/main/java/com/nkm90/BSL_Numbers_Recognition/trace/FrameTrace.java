@@ -0,0 +1,221 @@
+package com.nkm90.BSL_Numbers_Recognition.trace;
+
+import java.util.Locale;
+
+/**
+ * Records what happens on each frame into a ring buffer that is allocated once, keeping only
+ * primitive values. Nothing is converted to text until {@link #dump(Sink)} is called, so tracing
+ * can stay on while the camera is running without creating garbage on every frame.
+ * <p>
+ * Events are registered once with their level and the names of their values. Frames can be
+ * sampled so only one every N frames is recorded, and both the level and the sampling can be
+ * changed while running.
+ */
+public final class FrameTrace {
+
+    public static final int OFF = 0;
+    public static final int ERROR = 1;
+    public static final int INFO = 2;
+    public static final int DEBUG = 3;
+    public static final int VERBOSE = 4;
+
+    /** Maximum number of float values stored with each event. */
+    public static final int MAX_VALUES = 4;
+    private static final int MAX_EVENTS = 32;
+
+    /**
+     * Receives the lines produced when the trace is dumped.
+     */
+    public interface Sink {
+        void println(String line);
+    }
+
+    // Description of the registered events
+    private final String[] eventNames = new String[MAX_EVENTS];
+    private final String[] eventArgNames = new String[MAX_EVENTS];
+    private final String[][] eventValueNames = new String[MAX_EVENTS][];
+    private final int[] eventLevels = new int[MAX_EVENTS];
+    private int eventCount;
+
+    // Ring buffer with the recorded events
+    private final int capacity;
+    private final long[] timestamps;
+    private final int[] events;
+    private final int[] args;
+    private final float[] values;
+    private long recorded;
+
+    private volatile int level;
+    private volatile int sampleEvery = 1;
+    private long frameCount;
+    private boolean frameSampled = true;
+
+    /**
+     * @param capacity number of events kept, once full the oldest ones are overwritten
+     */
+    public FrameTrace(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        timestamps = new long[capacity];
+        events = new int[capacity];
+        args = new int[capacity];
+        values = new float[capacity * MAX_VALUES];
+    }
+
+    /**
+     * Registers a new kind of event. It should be called while setting things up, as it is the
+     * only place where the text for the event is given.
+     *
+     * @param level level needed for the event to be recorded
+     * @param name name written when the event is dumped
+     * @param argName name of the int value of the event, or null when it is not used
+     * @param valueNames names of the float values of the event, up to {@link #MAX_VALUES}
+     * @return id of the event, to be passed to {@link #record}
+     */
+    public synchronized int registerEvent(int level, String name, String argName, String... valueNames) {
+        if (eventCount == MAX_EVENTS) {
+            throw new IllegalStateException("Too many trace events");
+        }
+        if (valueNames.length > MAX_VALUES) {
+            throw new IllegalArgumentException("Up to " + MAX_VALUES + " values per event");
+        }
+        eventNames[eventCount] = name;
+        eventArgNames[eventCount] = argName;
+        eventValueNames[eventCount] = valueNames;
+        eventLevels[eventCount] = level;
+        return eventCount++;
+    }
+
+    /**
+     * @param level the most detailed level recorded, {@link #OFF} disables the trace
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @param sampleEvery record one frame out of this many, 1 records every frame
+     */
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    /**
+     * Marks the start of a new frame and decides if its events are recorded. It has to be called
+     * from the thread that records the events.
+     */
+    public void beginFrame() {
+        frameSampled = frameCount++ % sampleEvery == 0;
+    }
+
+    /**
+     * Allows the caller to skip the work needed to get the values of an event when the event
+     * would not be recorded.
+     *
+     * @param event id returned by {@link #registerEvent}
+     * @return true when the event would be recorded for the current frame
+     */
+    public boolean isEnabled(int event) {
+        return frameSampled && eventLevels[event] <= level;
+    }
+
+    public void record(int event, long timestamp, int arg) {
+        record(event, timestamp, arg, 0f, 0f, 0f, 0f);
+    }
+
+    public void record(int event, long timestamp, int arg, float v0, float v1, float v2) {
+        record(event, timestamp, arg, v0, v1, v2, 0f);
+    }
+
+    /**
+     * Stores an event on the ring buffer if it is enabled for the current frame. Values not used
+     * by the event are ignored.
+     *
+     * @param event id returned by {@link #registerEvent}
+     * @param timestamp timestamp of the frame
+     * @param arg int value of the event
+     */
+    public void record(int event, long timestamp, int arg, float v0, float v1, float v2, float v3) {
+        if (!isEnabled(event)) {
+            return;
+        }
+        synchronized (this) {
+            int slot = (int) (recorded % capacity);
+            timestamps[slot] = timestamp;
+            events[slot] = event;
+            args[slot] = arg;
+            int valueSlot = slot * MAX_VALUES;
+            values[valueSlot] = v0;
+            values[valueSlot + 1] = v1;
+            values[valueSlot + 2] = v2;
+            values[valueSlot + 3] = v3;
+            recorded++;
+        }
+    }
+
+    /**
+     * @return number of events recorded since the trace was created or cleared
+     */
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * Writes the events kept on the buffer as text, from the oldest to the newest one.
+     *
+     * @param sink receives one line per event
+     */
+    public synchronized void dump(Sink sink) {
+        long first = Math.max(0, recorded - capacity);
+        for (long i = first; i < recorded; i++) {
+            sink.println(format((int) (i % capacity)));
+        }
+    }
+
+    /**
+     * Removes every recorded event.
+     */
+    public synchronized void clear() {
+        recorded = 0;
+    }
+
+    private String format(int slot) {
+        int event = events[slot];
+        StringBuilder line = new StringBuilder(64)
+                .append("[TS:").append(timestamps[slot]).append("] ")
+                .append(eventNames[event]);
+        if (eventArgNames[event] != null) {
+            line.append(' ').append(eventArgNames[event]).append('=').append(args[slot]);
+        }
+        String[] valueNames = eventValueNames[event];
+        for (int i = 0; i < valueNames.length; i++) {
+            line.append(' ').append(valueNames[i]).append('=').append(values[slot * MAX_VALUES + i]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Converts the level names used on the manifest into their value.
+     *
+     * @param name one of "off", "error", "info", "debug" or "verbose"
+     * @return the level, {@link #OFF} when the name is not known
+     */
+    public static int parseLevel(String name) {
+        if (name == null) {
+            return OFF;
+        }
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "error": return ERROR;
+            case "info": return INFO;
+            case "debug": return DEBUG;
+            case "verbose": return VERBOSE;
+            default: return OFF;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.nkm90.BSL_Numbers_Recognition.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies on log-linear buckets, so it takes the same memory however many values are
+ * recorded and the percentiles keep a relative error under 1/16 at any scale. Every power of two
+ * is split into {@link #SUB_BUCKETS} linear buckets, and values under {@link #SUB_BUCKETS}
+ * microseconds have a bucket each, up to {@link #MAX_MICROS}.
+ * <p>
+ * Negative values and values over {@link #MAX_MICROS} are not latencies but the difference
+ * between two clocks, as when a timestamp is on another time base, so they are not recorded but
+ * counted apart, see {@link #getDroppedCount()}.
+ * <p>
+ * Values are recorded without locks from any thread. The percentiles are read from the live
+ * counters, so a value recorded while reading may or may not be included.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    /** Number of linear buckets each power of two is split into. */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^26 us, about 67 seconds
+    private static final int MAX_EXPONENT = 26;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    /** Biggest value recorded, about two minutes. */
+    public static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Adds a value to the histogram.
+     *
+     * @param micros latency in microseconds, only counted as dropped when negative or over
+     *               {@link #MAX_MICROS}
+     */
+    public void record(long micros) {
+        if (micros < 0 || micros > MAX_MICROS) {
+            dropped.incrementAndGet();
+            return;
+        }
+        counts.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        long currentMax = max.get();
+        while (micros > currentMax && !max.compareAndSet(currentMax, micros)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return number of values left out for being negative or over {@link #MAX_MICROS}
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return biggest value recorded, in microseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the values recorded, in microseconds, 0 when there are none
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Finds the value under which the given fraction of the recorded values falls.
+     *
+     * @param fraction between 0 and 1, 0.99 for the 99th percentile
+     * @return upper bound of the bucket holding the percentile, never over {@link #getMax()}, or 0
+     * when nothing has been recorded
+     */
+    public long getPercentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears the histogram. Values recorded at the same time from other threads may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+        dropped.set(0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return smallest value that falls on the bucket
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * @return smallest value that falls on the next bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return bucketLowerBound(index + 1);
+    }
+}
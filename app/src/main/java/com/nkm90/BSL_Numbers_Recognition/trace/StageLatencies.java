@@ -0,0 +1,82 @@
+package com.nkm90.BSL_Numbers_Recognition.trace;
+
+import java.util.Locale;
+
+/**
+ * Keeps one {@link LatencyHistogram} for each stage of the pipeline, from the camera frame to the
+ * number shown on the screen, so a slow response can be traced to the stage that caused it.
+ * Stages are registered once, like the events of a {@link FrameTrace}, and then recorded by id
+ * from any thread without locks.
+ */
+public final class StageLatencies {
+
+    private static final int MAX_STAGES = 16;
+
+    private final String[] names = new String[MAX_STAGES];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[MAX_STAGES];
+    private volatile int stageCount;
+
+    /**
+     * Registers a new stage, to be called while setting things up.
+     *
+     * @param name name written when the latencies are dumped
+     * @return id of the stage, to be passed to {@link #record}
+     */
+    public synchronized int registerStage(String name) {
+        if (stageCount == MAX_STAGES) {
+            throw new IllegalStateException("Too many latency stages");
+        }
+        names[stageCount] = name;
+        histograms[stageCount] = new LatencyHistogram();
+        return stageCount++;
+    }
+
+    /**
+     * @param stage id returned by {@link #registerStage}
+     * @param micros time spent on the stage, in microseconds
+     */
+    public void record(int stage, long micros) {
+        histograms[stage].record(micros);
+    }
+
+    /**
+     * @param stage id returned by {@link #registerStage}
+     * @return the histogram of the stage
+     */
+    public LatencyHistogram histogram(int stage) {
+        return histograms[stage];
+    }
+
+    /**
+     * Writes a line per stage with the number of values, the main percentiles, in milliseconds,
+     * and the number of values dropped for not being latencies.
+     *
+     * @param sink receives a header line and one line per stage
+     */
+    public void dump(FrameTrace.Sink sink) {
+        sink.println(String.format(Locale.ROOT, "%-16s %8s %8s %8s %8s %8s %8s %8s",
+                "stage (ms)", "count", "mean", "p50", "p95", "p99", "max", "dropped"));
+        int count = stageCount;
+        for (int stage = 0; stage < count; stage++) {
+            LatencyHistogram histogram = histograms[stage];
+            sink.println(String.format(Locale.ROOT, "%-16s %8d %8.2f %8.2f %8.2f %8.2f %8.2f %8d",
+                    names[stage], histogram.getCount(),
+                    histogram.getMean() / 1000.0,
+                    histogram.getPercentile(0.50) / 1000.0,
+                    histogram.getPercentile(0.95) / 1000.0,
+                    histogram.getPercentile(0.99) / 1000.0,
+                    histogram.getMax() / 1000.0,
+                    histogram.getDroppedCount()));
+        }
+    }
+
+    /**
+     * Clears the histograms of every stage.
+     */
+    public void reset() {
+        int count = stageCount;
+        for (int stage = 0; stage < count; stage++) {
+            histograms[stage].reset();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.nkm90.BSL_Numbers_Recognition;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureLabels;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkListDecoder;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.CameraClock;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.FrameRatePolicy;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.GestureVoter;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.LandmarkSmoother;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.PipelineLifecycle;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.RecognitionPipeline;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.ResolutionPolicy;
+import com.nkm90.BSL_Numbers_Recognition.trace.FrameTrace;
+import com.nkm90.BSL_Numbers_Recognition.trace.LatencyHistogram;
+import com.nkm90.BSL_Numbers_Recognition.trace.StageLatencies;
+import com.google.protobuf.CodedOutputStream;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Soak test of the Java side of the landmarks packet callback of {@link MediaPipeActivity}, run
+ * on the development machine. A synthetic stream replays held digits, two handed numbers, frames
+ * without hands and landmark jitter for millions of frames through the same steps and in the
+ * same order as the callback, from decoding the hands to reading the result on the UI side.
+ * <p>
+ * It fails when the frames processed per second or the bytes allocated per frame, measured on
+ * the thread with the allocation counters of {@code ThreadMXBean}, go over their budgets on any
+ * window of the run, so allocations creeping back into the packet path fail the build. The length
+ * of the run can be changed with the {@code soak.frames} system property.
+ */
+public class PacketCallbackSoakTest {
+
+    private static final int FRAMES = Integer.getInteger("soak.frames", 2_000_000);
+    private static final int WARM_UP_FRAMES = 200_000;
+    private static final int WINDOW_FRAMES = 250_000;
+    // Budgets on the development machine, the callback takes a few microseconds per frame there
+    private static final double MIN_FRAMES_PER_SECOND = 50_000;
+    private static final double MAX_BYTES_PER_FRAME = 1;
+
+    private static final long FRAME_MICROS = 33_333;
+    private static final long SLEPT_MICROS = 3_600_000_000L;
+    private static final int VARIANTS = 32;
+    private static final float JITTER = 0.002f;
+
+    // Poses of the stream besides the digits, whose pose is the digit itself
+    private static final int SEVEN_WITH_TWO_HANDS = GestureCodes.DIGIT_COUNT;
+    private static final int TEN = SEVEN_WITH_TWO_HANDS + 1;
+    private static final int NO_NUMBER = TEN + 1;
+    private static final int NO_HANDS = NO_NUMBER + 1;
+    private static final int POSE_COUNT = NO_HANDS + 1;
+
+    /**
+     * The steps of the packet callback, built like the activity builds them with the default
+     * manifest settings. The recorder is left out as it is off by default and writes to a file.
+     */
+    private static final class PacketCallback {
+
+        private final LandmarkListDecoder decoder = new LandmarkListDecoder();
+        private final PipelineLifecycle lifecycle = new PipelineLifecycle();
+        private final RecognitionPipeline pipeline = new RecognitionPipeline(
+                GestureRuleFixtures.defaultEngine(), new GestureVoter(9, 500_000, 6, 150_000));
+        private final FrameRatePolicy frameRatePolicy =
+                new FrameRatePolicy(10, 5, 1_500_000, 3_000_000, 0.03f);
+        private final FrameTrace frameTrace = new FrameTrace(2048);
+        private final StageLatencies latencies = new StageLatencies();
+        private final CameraClock cameraClock;
+        private final GestureLabels labels = new GestureLabels(code -> "label " + code);
+        private final ResolutionPolicy resolutionPolicy;
+        private final int packetEvent;
+        private final int gestureEvent;
+        private final int cameraToPacketStage;
+        private final int decodeStage;
+        private final int classifyStage;
+        private final int cameraToCommitStage;
+        private long now;
+
+        private final boolean[] committed = new boolean[GestureCodes.MAX_CODE + 1];
+        private int displayedGesture = GestureCodes.NO_HANDS;
+        private int displayedCommitted = GestureCodes.NO_GESTURE;
+        private int screenUpdates;
+
+        PacketCallback() {
+            pipeline.setMinConfidence(0.1f);
+            pipeline.setSmoother(new LandmarkSmoother(1f, 20f, 1f, 250_000, 0.2f));
+            // The frames are stamped on the boot time clock, ahead of the monotonic one by the
+            // time the device slept
+            ResolutionPolicy.Clock[] clocks = {() -> now - SLEPT_MICROS, () -> now};
+            cameraClock = new CameraClock(clocks);
+            resolutionPolicy = new ResolutionPolicy(new int[][]{{1280, 720}, {640, 480}}, 0,
+                    clocks, 120_000, 2_000_000, 2, 60_000_000);
+            packetEvent = frameTrace.registerEvent(FrameTrace.INFO, "Received multi-hand landmarks packet", "hands");
+            gestureEvent = frameTrace.registerEvent(FrameTrace.INFO, "Gesture", "code");
+            frameTrace.setSampleEvery(30);
+            cameraToPacketStage = latencies.registerStage("camera->packet");
+            decodeStage = latencies.registerStage("decode");
+            classifyStage = latencies.registerStage("classify");
+            cameraToCommitStage = latencies.registerStage("camera->commit");
+        }
+
+        /**
+         * @param hands serialised hands of the packet
+         * @param handCount number of hands on the packet
+         * @param timestamp timestamp of the packet, in microseconds
+         */
+        void onPacket(byte[][] hands, int handCount, long timestamp) {
+            // The packet arrives 40 ms after the camera frame
+            now = timestamp + 40_000;
+            frameTrace.beginFrame();
+            latencies.record(cameraToPacketStage, cameraClock.latencyMicros(timestamp));
+            lifecycle.onLandmarks(now * 1000);
+            float[] landmarks = pipeline.landmarkBuffer();
+            for (int hand = 0; hand < handCount; hand++) {
+                decoder.decode(hands[hand], landmarks, hand);
+            }
+            latencies.record(decodeStage, 20);
+            frameTrace.record(packetEvent, timestamp, handCount);
+
+            boolean changed = pipeline.onFrame(handCount, timestamp);
+            latencies.record(classifyStage, 5);
+            if (changed) {
+                updateResultViews();
+            }
+            resolutionPolicy.onPacket(timestamp);
+            frameRatePolicy.onResult(landmarks, handCount, pipeline.lastGesture(), timestamp);
+            frameRatePolicy.shouldProcess(timestamp + FRAME_MICROS);
+            frameTrace.record(gestureEvent, timestamp, pipeline.lastGesture());
+        }
+
+        /**
+         * What the UI thread does with a new result, here on the same thread.
+         */
+        private void updateResultViews() {
+            long latest = pipeline.takeResult();
+            int gestureCode = RecognitionPipeline.gestureOf(latest);
+            if (gestureCode != displayedGesture) {
+                displayedGesture = gestureCode;
+                labels.get(gestureCode, "en");
+                screenUpdates++;
+            }
+            int committedCode = RecognitionPipeline.committedOf(latest);
+            if (committedCode != displayedCommitted) {
+                displayedCommitted = committedCode;
+                labels.get(committedCode, "en");
+                committed[committedCode] = true;
+                screenUpdates++;
+                // Shown on the screen a millisecond after the packet
+                latencies.record(cameraToCommitStage,
+                        cameraClock.nowMicros() + 1_000 - RecognitionPipeline.committedTimestampOf(latest));
+            }
+        }
+    }
+
+    @Test
+    public void packetCallback_keepsItsRateWithoutAllocating() throws IOException {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        Assume.assumeTrue("Allocation counters not available", threads != null);
+        long thread = Thread.currentThread().getId();
+
+        byte[][][][] packets = packets();
+        int[] script = script();
+        PacketCallback callback = new PacketCallback();
+        int frame = 0;
+        for (; frame < WARM_UP_FRAMES; frame++) {
+            play(callback, packets, script, frame);
+        }
+
+        int end = WARM_UP_FRAMES + FRAMES;
+        while (frame < end) {
+            int windowEnd = Math.min(end, frame + WINDOW_FRAMES);
+            int frames = windowEnd - frame;
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long startNanos = System.nanoTime();
+            for (; frame < windowEnd; frame++) {
+                play(callback, packets, script, frame);
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+            double framesPerSecond = frames * 1e9 / elapsedNanos;
+            double bytesPerFrame = (double) allocated / frames;
+            String window = "frames " + (frame - frames) + " to " + frame + ": ";
+            assertTrue(window + framesPerSecond + " frames per second", framesPerSecond >= MIN_FRAMES_PER_SECOND);
+            assertTrue(window + bytesPerFrame + " bytes per frame", bytesPerFrame <= MAX_BYTES_PER_FRAME);
+        }
+
+        // The stream was still recognised along the way
+        for (int number = GestureCodes.ZERO; number <= GestureCodes.TEN; number++) {
+            assertTrue("number " + number + " committed", callback.committed[number]);
+        }
+        assertTrue(callback.screenUpdates > 0);
+        // Every latency was measured on the clock of the camera
+        for (int stage : new int[]{callback.cameraToPacketStage, callback.cameraToCommitStage}) {
+            LatencyHistogram histogram = callback.latencies.histogram(stage);
+            assertEquals(0, histogram.getDroppedCount());
+            assertTrue(histogram.getCount() > 0);
+            assertTrue(histogram.getMax() < 1_000_000);
+        }
+        assertEquals(0, callback.resolutionPolicy.getDroppedSamples());
+    }
+
+    private static void play(PacketCallback callback, byte[][][][] packets, int[] script, int frame) {
+        int pose = script[frame % script.length];
+        byte[][] hands = packets[pose][frame * 7 % VARIANTS];
+        callback.onPacket(hands, hands.length, frame * FRAME_MICROS);
+    }
+
+    /**
+     * @return pose of every frame of one pass of the stream, which is played over and over
+     */
+    private static int[] script() {
+        int[] poses = new int[4096];
+        int length = 0;
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            length = hold(poses, length, digit, 45);
+            if (digit % 3 == 2) {
+                length = hold(poses, length, NO_HANDS, 10);
+            }
+        }
+        length = hold(poses, length, SEVEN_WITH_TWO_HANDS, 45);
+        length = hold(poses, length, NO_NUMBER, 20);
+        length = hold(poses, length, TEN, 45);
+        length = hold(poses, length, NO_HANDS, 30);
+        int[] script = new int[length];
+        System.arraycopy(poses, 0, script, 0, length);
+        return script;
+    }
+
+    private static int hold(int[] poses, int length, int pose, int frames) {
+        for (int i = 0; i < frames; i++) {
+            poses[length++] = pose;
+        }
+        return length;
+    }
+
+    /**
+     * @return serialised hands of every pose, for a few jittered variants of each
+     */
+    private static byte[][][][] packets() throws IOException {
+        Random random = new Random(22);
+        byte[][][][] packets = new byte[POSE_COUNT][VARIANTS][][];
+        for (int pose = 0; pose < POSE_COUNT; pose++) {
+            float[] landmarks;
+            int handCount = 1;
+            if (pose < GestureCodes.DIGIT_COUNT) {
+                landmarks = LandmarkFixtures.digit(pose);
+            } else if (pose == SEVEN_WITH_TWO_HANDS || pose == TEN) {
+                landmarks = LandmarkFixtures.twoHands(LandmarkFixtures.digit(pose == TEN ? 5 : 2),
+                        LandmarkFixtures.digit(5));
+                handCount = 2;
+            } else if (pose == NO_NUMBER) {
+                landmarks = LandmarkFixtures.noGesture();
+            } else {
+                landmarks = HandLandmarks.newBuffer();
+                handCount = 0;
+            }
+            for (int variant = 0; variant < VARIANTS; variant++) {
+                packets[pose][variant] = new byte[handCount][];
+                for (int hand = 0; hand < handCount; hand++) {
+                    packets[pose][variant][hand] = encode(landmarks, HandLandmarks.handOffset(hand), random);
+                }
+            }
+        }
+        return packets;
+    }
+
+    /**
+     * Writes one hand as a NormalizedLandmarkList, moving every value by some jitter.
+     */
+    private static byte[] encode(float[] landmarks, int offset, Random random) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+            ByteArrayOutputStream pointBytes = new ByteArrayOutputStream();
+            CodedOutputStream point = CodedOutputStream.newInstance(pointBytes);
+            point.writeFloat(1, landmarks[HandLandmarks.x(offset, i)] + (float) random.nextGaussian() * JITTER);
+            point.writeFloat(2, landmarks[HandLandmarks.y(offset, i)] + (float) random.nextGaussian() * JITTER);
+            point.writeFloat(3, landmarks[HandLandmarks.z(offset, i)] + (float) random.nextGaussian() * JITTER);
+            point.flush();
+            output.writeByteArray(1, pointBytes.toByteArray());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the thread bean with allocation counters, or null when the JVM does not have them
+     */
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (!allocations.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        return allocations;
+    }
+}
@@ -0,0 +1,144 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link GestureEngine}, using the hands built by
+ * {@link LandmarkFixtures}.
+ */
+public class GestureEngineTest {
+
+    private final GestureEngine engine = GestureRuleFixtures.defaultEngine();
+
+    @Test
+    public void noHands_isRecognised() {
+        assertEquals(GestureCodes.NO_HANDS, engine.classify(HandLandmarks.newBuffer(), 0));
+    }
+
+    @Test
+    public void everyDigit_isRecognised() {
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            assertEquals("digit " + digit, digit, engine.classify(LandmarkFixtures.digit(digit), 1));
+        }
+    }
+
+    @Test
+    public void unknownGesture_isNoGesture() {
+        assertEquals(GestureCodes.NO_GESTURE, engine.classify(LandmarkFixtures.noGesture(), 1));
+    }
+
+    @Test
+    public void clearHands_haveHighConfidence() {
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            engine.classify(LandmarkFixtures.digit(digit), 1);
+            assertTrue("digit " + digit + ": " + engine.getConfidence(), engine.getConfidence() > 0.5f);
+        }
+        engine.classify(HandLandmarks.newBuffer(), 0);
+        assertEquals(1f, engine.getConfidence(), 0f);
+    }
+
+    @Test
+    public void fingerOnTheBorder_hasLowConfidence() {
+        assertEquals(GestureCodes.ONE, engine.classify(LandmarkFixtures.barelyUpOne(), 1));
+        assertTrue("confidence " + engine.getConfidence(), engine.getConfidence() < 0.1f);
+    }
+
+    @Test
+    public void twoHands_takeTheLowestConfidence() {
+        float[] landmarks = LandmarkFixtures.twoHands(
+                LandmarkFixtures.digit(GestureCodes.FIVE), LandmarkFixtures.barelyUpOne());
+        assertEquals(GestureCodes.SIX, engine.classify(landmarks, 2));
+        assertTrue(engine.handConfidence(0) > 0.5f);
+        assertEquals(engine.handConfidence(1), engine.getConfidence(), 0f);
+        assertTrue(engine.getConfidence() < 0.1f);
+    }
+
+    @Test
+    public void leftHandSeven_isRecognised() {
+        float[] left = LandmarkFixtures.mirror(LandmarkFixtures.digit(GestureCodes.SEVEN));
+        assertEquals(GestureCodes.SEVEN, engine.classify(left, 1));
+    }
+
+    @Test
+    public void tiltedHand_isRecognised() {
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            for (int degrees = -120; degrees <= 120; degrees += 30) {
+                float[] tilted = LandmarkFixtures.rotate(LandmarkFixtures.digit(digit), degrees);
+                assertEquals("digit " + digit + " at " + degrees, digit, engine.classify(tilted, 1));
+            }
+        }
+    }
+
+    @Test
+    public void unknownFirstHand_letsSecondHandDecide() {
+        float[] landmarks = LandmarkFixtures.twoHands(
+                LandmarkFixtures.noGesture(), LandmarkFixtures.digit(GestureCodes.FIVE));
+        assertEquals(GestureCodes.FIVE, engine.classify(landmarks, 2));
+    }
+
+    @Test
+    public void openHandAndOneToFive_makeSixToTen() {
+        for (int digit = GestureCodes.ONE; digit <= GestureCodes.FIVE; digit++) {
+            float[] landmarks = LandmarkFixtures.twoHands(
+                    LandmarkFixtures.digit(digit), LandmarkFixtures.digit(GestureCodes.FIVE));
+            assertEquals(GestureCodes.FIVE + digit, engine.classify(landmarks, 2));
+            assertEquals(digit, engine.handCode(0));
+            assertEquals(GestureCodes.FIVE, engine.handCode(1));
+        }
+        float[] landmarks = LandmarkFixtures.twoHands(
+                LandmarkFixtures.digit(GestureCodes.FIVE), LandmarkFixtures.digit(GestureCodes.FIVE));
+        assertEquals(GestureCodes.TEN, engine.classify(landmarks, 2));
+    }
+
+    @Test
+    public void handSeenFirst_decidesNumbersThatDoNotGoTogether() {
+        float[] three = LandmarkFixtures.digit(GestureCodes.THREE);
+        float[] two = LandmarkFixtures.mirror(LandmarkFixtures.digit(GestureCodes.TWO));
+        assertEquals(GestureCodes.THREE, engine.classify(three, 1));
+
+        // The graph lists the new hand first, then the other way round
+        float[] landmarks = HandLandmarks.newBuffer();
+        System.arraycopy(two, 0, landmarks, 0, HandLandmarks.FLOATS_PER_HAND);
+        System.arraycopy(three, 0, landmarks, HandLandmarks.FLOATS_PER_HAND, HandLandmarks.FLOATS_PER_HAND);
+        assertEquals(GestureCodes.THREE, engine.classify(landmarks, 2));
+        assertEquals(GestureCodes.THREE, engine.classify(
+                LandmarkFixtures.twoHands(three, LandmarkFixtures.digit(GestureCodes.TWO)), 2));
+    }
+
+    @Test
+    public void reset_forgetsTheHandSeenFirst() {
+        float[] three = LandmarkFixtures.digit(GestureCodes.THREE);
+        float[] landmarks = HandLandmarks.newBuffer();
+        System.arraycopy(LandmarkFixtures.mirror(LandmarkFixtures.digit(GestureCodes.TWO)), 0, landmarks, 0,
+                HandLandmarks.FLOATS_PER_HAND);
+        System.arraycopy(three, 0, landmarks, HandLandmarks.FLOATS_PER_HAND, HandLandmarks.FLOATS_PER_HAND);
+        int firstFrame = GestureRuleFixtures.defaultEngine().classify(landmarks, 2);
+
+        engine.classify(three, 1);
+        engine.reset();
+        assertEquals(firstFrame, engine.classify(landmarks, 2));
+    }
+
+    @Test
+    public void handsAppearingTogether_giveTheSameNumberInAnyOrder() {
+        float[] three = LandmarkFixtures.digit(GestureCodes.THREE);
+        float[] two = LandmarkFixtures.digit(GestureCodes.TWO);
+        int listedFirst = engine.classify(LandmarkFixtures.twoHands(three, two), 2);
+        GestureEngine other = GestureRuleFixtures.defaultEngine();
+        float[] swapped = HandLandmarks.newBuffer();
+        System.arraycopy(LandmarkFixtures.mirror(two), 0, swapped, 0, HandLandmarks.FLOATS_PER_HAND);
+        System.arraycopy(three, 0, swapped, HandLandmarks.FLOATS_PER_HAND, HandLandmarks.FLOATS_PER_HAND);
+        assertEquals(listedFirst, other.classify(swapped, 2));
+    }
+
+    @Test
+    public void geometry_matchesFormulas() {
+        assertEquals(5.0, LandmarkGeometry.getEuclideanDistanceAB(0, 0, 3, 4), 1e-9);
+        assertEquals(25.0, LandmarkGeometry.getSquaredDistanceAB(0, 0, 3, 4), 1e-9);
+        assertEquals(90, LandmarkGeometry.radianToDegree(
+                LandmarkGeometry.getAngleABC(1, 0, 0, 0, 0, 1)));
+        assertEquals(180, LandmarkGeometry.radianToDegree(Math.PI));
+    }
+}
@@ -0,0 +1,59 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link GestureLabels}.
+ */
+public class GestureLabelsTest {
+
+    private static final String[] ENGLISH = {"ZERO", "ONE", "TWO", "THREE", "FOUR", "FIVE",
+            "SIX", "SEVEN", "EIGHT", "NINE"};
+    private static final String[] SPANISH = {"CERO", "UNO", "DOS", "TRES", "CUATRO", "CINCO",
+            "SEIS", "SIETE", "OCHO", "NUEVE"};
+
+    private String language = "en";
+    private final GestureLabels labels = new GestureLabels(this::resolve);
+
+    @Test
+    public void everyCode_hasItsLabel() {
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            assertEquals(ENGLISH[digit], labels.get(digit, "en"));
+        }
+        assertEquals("No Hand found", labels.get(GestureCodes.NO_HANDS, "en"));
+        assertEquals(" ", labels.get(GestureCodes.NO_GESTURE, "en"));
+    }
+
+    @Test
+    public void sameLanguage_isResolvedOnce() {
+        for (int i = 0; i < 1000; i++) {
+            labels.get(i % GestureCodes.DIGIT_COUNT, "en");
+        }
+        assertEquals(1, labels.getResolveCount());
+    }
+
+    @Test
+    public void newLanguage_resolvesTheLabelsAgain() {
+        assertEquals("FIVE", labels.get(GestureCodes.FIVE, "en"));
+        language = "es";
+        assertEquals("CINCO", labels.get(GestureCodes.FIVE, "es"));
+        assertEquals("No se encuentra la mano", labels.get(GestureCodes.NO_HANDS, "es"));
+        assertEquals(2, labels.getResolveCount());
+        language = "en";
+        assertEquals("FIVE", labels.get(GestureCodes.FIVE, "en"));
+        assertEquals(3, labels.getResolveCount());
+    }
+
+    private String resolve(int code) {
+        boolean spanish = language.equals("es");
+        if (GestureCodes.isDigit(code)) {
+            return spanish ? SPANISH[code] : ENGLISH[code];
+        }
+        if (code == GestureCodes.NO_HANDS) {
+            return spanish ? "No se encuentra la mano" : "No Hand found";
+        }
+        return " ";
+    }
+}
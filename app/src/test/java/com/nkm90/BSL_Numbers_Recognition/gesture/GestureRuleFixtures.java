@@ -0,0 +1,37 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the rule file shipped in the app assets, so the tests and benchmarks run the same rules
+ * as the app. The path is relative to the module directory, which is where Gradle runs them.
+ */
+public final class GestureRuleFixtures {
+
+    public static final String RULES_PATH = "../app/src/main/assets/gesture_rules.txt";
+
+    private GestureRuleFixtures() {
+    }
+
+    /**
+     * @return the table compiled from the rule file of the app
+     */
+    public static GestureRuleTable defaultRules() {
+        try (Reader reader = new InputStreamReader(new FileInputStream(RULES_PATH), StandardCharsets.UTF_8)) {
+            return GestureRuleTable.parse(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + RULES_PATH, e);
+        }
+    }
+
+    /**
+     * @return an engine using the rule file of the app
+     */
+    public static GestureEngine defaultEngine() {
+        return new GestureEngine(defaultRules());
+    }
+}
@@ -0,0 +1,76 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable.*;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the parsing and lookup of the {@link GestureRuleTable}.
+ */
+public class GestureRuleTableTest {
+
+    private static final int ALL_UP = fingerBits(0, UP) | fingerBits(1, UP) | fingerBits(2, UP) | fingerBits(3, UP);
+
+    private static GestureRuleTable parse(String rules) throws IOException {
+        return GestureRuleTable.parse(new StringReader(rules));
+    }
+
+    private static float[] features(float[] landmarks) {
+        float[] features = HandFeatures.newVector();
+        HandFeatures.extract(landmarks, 0, features);
+        return features;
+    }
+
+    @Test
+    public void rule_fillsItsMask() throws IOException {
+        GestureRuleTable table = parse("# comment\n\n5 open up up up up\n");
+        float[] features = HandFeatures.newVector();
+        assertEquals(5, table.lookup(THUMB_OPEN | ALL_UP, features));
+        assertEquals(GestureCodes.NO_GESTURE, table.lookup(ALL_UP, features));
+    }
+
+    @Test
+    public void any_expandsToEveryState() throws IOException {
+        GestureRuleTable table = parse("3 any up up up any\n");
+        float[] features = HandFeatures.newVector();
+        int threeUp = fingerBits(0, UP) | fingerBits(1, UP) | fingerBits(2, UP);
+        for (int pinky = NEITHER; pinky <= DOWN; pinky++) {
+            assertEquals(3, table.lookup(threeUp | fingerBits(3, pinky), features));
+            assertEquals(3, table.lookup(THUMB_OPEN | threeUp | fingerBits(3, pinky), features));
+        }
+    }
+
+    @Test
+    public void conditions_areCheckedInFileOrder() throws IOException {
+        GestureRuleTable table = parse(
+                "7 open up down down down if leftHand\n"
+                        + "1 open up down down down\n");
+        int mask = THUMB_OPEN | fingerBits(0, UP) | fingerBits(1, DOWN) | fingerBits(2, DOWN) | fingerBits(3, DOWN);
+        float[] right = LandmarkFixtures.digit(GestureCodes.SEVEN);
+        assertEquals(1, table.lookup(mask, features(right)));
+        assertEquals(7, table.lookup(mask, features(LandmarkFixtures.mirror(right))));
+    }
+
+    @Test
+    public void angleCondition_comparesDegrees() throws IOException {
+        int mask = THUMB_OPEN | fingerBits(0, UP) | fingerBits(1, DOWN) | fingerBits(2, DOWN) | fingerBits(3, DOWN);
+        float[] seven = features(LandmarkFixtures.digit(GestureCodes.SEVEN));
+        assertEquals(7, parse("7 open up down down down if thumbIndexAngle>=65\n").lookup(mask, seven));
+        assertEquals(GestureCodes.NO_GESTURE,
+                parse("7 open up down down down if thumbIndexAngle < 65 | leftHand\n").lookup(mask, seven));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownState_isRejected() throws IOException {
+        parse("5 open up up sideways up\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCondition_isRejected() throws IOException {
+        parse("5 open up up up up if wristAngle>10\n");
+    }
+}
@@ -0,0 +1,73 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures.*;
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link HandFeatures}.
+ */
+public class HandFeaturesTest {
+
+    private static float[] features(float[] landmarks) {
+        float[] features = HandFeatures.newVector();
+        HandFeatures.extract(landmarks, 0, features);
+        return features;
+    }
+
+    @Test
+    public void palmAxis_pointsUpWithUnitLength() {
+        float[] features = features(LandmarkFixtures.rotate(LandmarkFixtures.digit(GestureCodes.FIVE), 50));
+        assertEquals(0f, pointX(features, WRIST), 1e-6f);
+        assertEquals(0f, pointY(features, WRIST), 1e-6f);
+        assertEquals(0f, pointX(features, MIDDLE_MCP), 1e-5f);
+        assertEquals(-1f, pointY(features, MIDDLE_MCP), 1e-5f);
+    }
+
+    @Test
+    public void tiltedOrScaledHand_hasTheSameFeatures() {
+        float[] upright = features(LandmarkFixtures.digit(GestureCodes.SEVEN));
+        float[][] moved = {
+                features(LandmarkFixtures.rotate(LandmarkFixtures.digit(GestureCodes.SEVEN), -60)),
+                features(LandmarkFixtures.rotate(LandmarkFixtures.digit(GestureCodes.SEVEN), 35)),
+                features(LandmarkFixtures.scale(LandmarkFixtures.digit(GestureCodes.SEVEN), 0.5f)),
+        };
+        for (float[] features : moved) {
+            for (int i = 0; i < PALM_SIZE; i++) {
+                assertEquals("feature " + i, upright[i], features[i], 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void extension_tellsOpenFromFolded() {
+        float[] features = features(LandmarkFixtures.digit(GestureCodes.SEVEN));
+        assertTrue(features[EXTENSION] > 1f);
+        assertTrue(features[EXTENSION + 1] > 1f);
+        for (int finger = 2; finger < FINGER_COUNT; finger++) {
+            assertTrue(features[EXTENSION + finger] < 1f);
+        }
+        assertEquals(180f, features[JOINT_ANGLE + 1], 1e-3f);
+        assertTrue(features[JOINT_ANGLE + 2] < 150f);
+    }
+
+    @Test
+    public void mirroredHand_isLeftWithTheOppositeAngle() {
+        float[] right = features(LandmarkFixtures.digit(GestureCodes.SEVEN));
+        float[] left = features(LandmarkFixtures.mirror(LandmarkFixtures.digit(GestureCodes.SEVEN)));
+        assertEquals(0f, right[LEFT_HAND], 0f);
+        assertEquals(1f, left[LEFT_HAND], 0f);
+        assertTrue(right[THUMB_INDEX_ANGLE] >= 65);
+        assertEquals(-right[THUMB_INDEX_ANGLE], left[THUMB_INDEX_ANGLE], 1e-3f);
+    }
+
+    @Test
+    public void emptyHand_doesNotDivideByZero() {
+        float[] features = features(HandLandmarks.newBuffer());
+        for (float value : features) {
+            assertFalse(Float.isNaN(value) || Float.isInfinite(value));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link HandTracker}.
+ */
+public class HandTrackerTest {
+
+    private final HandTracker tracker = new HandTracker(0.25f, 0.0025f);
+    private final float[][] features = new float[HandLandmarks.MAX_HANDS][HandFeatures.SIZE];
+
+    private void hand(int hand, float wristX, float wristY, boolean left) {
+        features[hand][HandFeatures.WRIST_X] = wristX;
+        features[hand][HandFeatures.WRIST_Y] = wristY;
+        features[hand][HandFeatures.LEFT_HAND] = left ? 1f : 0f;
+    }
+
+    @Test
+    public void hands_keepTheirIdentityWhenTheOrderChanges() {
+        hand(0, 0.3f, 0.8f, false);
+        hand(1, 0.7f, 0.8f, true);
+        tracker.update(features, 2);
+        int right = tracker.identity(0);
+        int left = tracker.identity(1);
+        assertNotEquals(right, left);
+
+        hand(0, 0.68f, 0.79f, true);
+        hand(1, 0.32f, 0.8f, false);
+        tracker.update(features, 2);
+        assertEquals(left, tracker.identity(0));
+        assertEquals(right, tracker.identity(1));
+        assertEquals(2, tracker.trackedFrames(0));
+    }
+
+    @Test
+    public void secondHand_getsANewIdentity() {
+        hand(0, 0.5f, 0.8f, false);
+        tracker.update(features, 1);
+        int first = tracker.identity(0);
+
+        // Listed first while the hand already seen comes second
+        hand(0, 0.45f, 0.8f, true);
+        hand(1, 0.51f, 0.8f, false);
+        tracker.update(features, 2);
+        assertEquals(first, tracker.identity(1));
+        assertEquals(2, tracker.trackedFrames(1));
+        assertNotEquals(first, tracker.identity(0));
+        assertEquals(1, tracker.trackedFrames(0));
+    }
+
+    @Test
+    public void handLeaving_leavesTheOtherOne() {
+        hand(0, 0.3f, 0.8f, false);
+        hand(1, 0.7f, 0.8f, true);
+        tracker.update(features, 2);
+        int left = tracker.identity(1);
+
+        hand(0, 0.7f, 0.8f, true);
+        tracker.update(features, 1);
+        assertEquals(left, tracker.identity(0));
+        assertEquals(1, tracker.getHandCount());
+    }
+
+    @Test
+    public void jumpOrNoHands_giveANewIdentity() {
+        hand(0, 0.2f, 0.8f, false);
+        tracker.update(features, 1);
+        int first = tracker.identity(0);
+
+        hand(0, 0.8f, 0.8f, false);
+        tracker.update(features, 1);
+        int second = tracker.identity(0);
+        assertNotEquals(first, second);
+
+        tracker.update(features, 0);
+        tracker.update(features, 1);
+        assertNotEquals(second, tracker.identity(0));
+        assertEquals(1, tracker.trackedFrames(0));
+    }
+
+    @Test
+    public void reset_makesEveryHandNew() {
+        hand(0, 0.3f, 0.8f, false);
+        tracker.update(features, 1);
+        tracker.update(features, 1);
+        int first = tracker.identity(0);
+
+        tracker.reset();
+        assertEquals(0, tracker.getHandCount());
+        tracker.update(features, 1);
+        assertNotEquals(first, tracker.identity(0));
+        assertEquals(1, tracker.trackedFrames(0));
+    }
+}
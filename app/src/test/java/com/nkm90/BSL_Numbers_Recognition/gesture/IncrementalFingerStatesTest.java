@@ -0,0 +1,265 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import com.nkm90.BSL_Numbers_Recognition.pipeline.GestureVoter;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.LandmarkSmoother;
+import com.nkm90.BSL_Numbers_Recognition.pipeline.RecognitionPipeline;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link IncrementalFingerStates}, and a differential test checking that
+ * a {@link GestureEngine} keeping the states of the fingers that did not move gives the masks, the
+ * numbers and the confidences of one measuring every finger on every frame.
+ */
+public class IncrementalFingerStatesTest {
+
+    private static final float EPSILON = 0.03f;
+
+    private final IncrementalFingerStates states = new IncrementalFingerStates(EPSILON);
+    private final float[] features = HandFeatures.newVector();
+    private final float[] expected = HandFeatures.newVector();
+
+    @Test
+    public void firstFrame_givesTheStatesOfAFullMeasure() {
+        float[] landmarks = LandmarkFixtures.digit(3);
+        states.extract(landmarks, 0, features);
+
+        assertSameStates(landmarks);
+        assertEquals(HandFeatures.FINGER_COUNT, states.getMeasuredFingers());
+        assertEquals(0, states.getKeptFingers());
+    }
+
+    @Test
+    public void jointAngles_areNotMeasured() {
+        states.extract(LandmarkFixtures.digit(3), 0, features);
+
+        for (int finger = 0; finger < HandFeatures.FINGER_COUNT; finger++) {
+            assertEquals(0f, features[HandFeatures.JOINT_ANGLE + finger], 0f);
+        }
+    }
+
+    @Test
+    public void heldHand_keepsTheFingersThatCannotGiveTheConfidence() {
+        float[] landmarks = LandmarkFixtures.digit(GestureCodes.FIVE);
+        states.extract(landmarks, 0, features);
+        states.extract(landmarks, 0, features);
+
+        assertSameStates(landmarks);
+        // The thumb, open near its border, gives the confidence and is measured again
+        assertEquals(HandFeatures.FINGER_COUNT - 1, states.getKeptFingers());
+        assertEquals(HandFeatures.FINGER_COUNT + 1, states.getMeasuredFingers());
+    }
+
+    @Test
+    public void fingerNearItsBorder_isMeasuredOnEveryFrame() {
+        float[] landmarks = LandmarkFixtures.barelyUpOne();
+        for (int frame = 0; frame < 5; frame++) {
+            states.extract(landmarks, 0, features);
+        }
+        assertSameStates(landmarks);
+        assertTrue(states.getMargin() < 1f);
+        // The index is measured every time, the other fingers only the first time
+        assertEquals(HandFeatures.FINGER_COUNT + 4, states.getMeasuredFingers());
+    }
+
+    @Test
+    public void movedFinger_isMeasuredAgain() {
+        float[] landmarks = LandmarkFixtures.digit(GestureCodes.FIVE);
+        states.extract(landmarks, 0, features);
+        // Sideways, so the finger keeps its confidence
+        landmarks[x(0, RING_PIP)] += 0.02f;
+        states.extract(landmarks, 0, features);
+
+        assertSameStates(landmarks);
+        assertEquals("the thumb and the ring", HandFeatures.FINGER_COUNT + 2, states.getMeasuredFingers());
+    }
+
+    @Test
+    public void slowDrift_isMeasuredOnceFarFromTheLastMeasure() {
+        float[] landmarks = LandmarkFixtures.digit(GestureCodes.FIVE);
+        states.extract(landmarks, 0, features);
+        // Steps well under the epsilon, about 0.27 image units being a palm length
+        for (int step = 1; step <= 20; step++) {
+            landmarks[x(0, INDEX_PIP)] += 0.0005f;
+            states.extract(landmarks, 0, features);
+        }
+        assertEquals("the thumb on every frame, the index once the drift went over the epsilon",
+                HandFeatures.FINGER_COUNT + 20 + 1, states.getMeasuredFingers());
+    }
+
+    @Test
+    public void heldSignWithJitter_keepsMostFingers() {
+        Random random = new Random(5);
+        float[] hand = LandmarkFixtures.digit(GestureCodes.FIVE);
+        float[] landmarks = newBuffer();
+        for (int frame = 0; frame < 300; frame++) {
+            for (int i = 0; i < FLOATS_PER_HAND; i++) {
+                landmarks[i] = hand[i] + (float) random.nextGaussian() * 0.001f;
+            }
+            states.extract(landmarks, 0, features);
+            assertSameStates(landmarks);
+        }
+        assertTrue("measured " + states.getMeasuredFingers() + " times",
+                states.getKeptFingers() > 3 * states.getMeasuredFingers());
+    }
+
+    @Test
+    public void reset_measuresEveryFingerAgain() {
+        float[] landmarks = LandmarkFixtures.digit(3);
+        states.extract(landmarks, 0, features);
+        states.reset();
+        states.extract(landmarks, 0, features);
+
+        assertEquals(2 * HandFeatures.FINGER_COUNT, states.getMeasuredFingers());
+    }
+
+    /**
+     * Plays signers holding numbers with some jitter, turning and scaling their hands, adding a
+     * second hand, moving slowly from one number to another so the fingers cross the border
+     * between two states, hovering halfway between two numbers so the fingers stay near the
+     * borders, and waving a motion sign. Every frame is compared with a full measure: the mask and
+     * the confidence of the first hand, the numbers and the confidences of the engines, the
+     * features they share, and what a pipeline built as the activity builds it commits and matches.
+     */
+    @Test
+    public void incrementalEngine_givesTheResultsOfAFullMeasure() {
+        GestureRuleTable rules = GestureRuleFixtures.defaultRules();
+        GestureEngine full = new GestureEngine(new RuleClassifier(rules), 0f);
+        GestureEngine[] engines = {
+                new GestureEngine(new RuleClassifier(rules), EPSILON),
+                new GestureEngine(new RuleClassifier(rules), 0.1f),
+        };
+        RecognitionPipeline fullPipeline = pipeline(new GestureEngine(new RuleClassifier(rules), 0f));
+        RecognitionPipeline incrementalPipeline = pipeline(new GestureEngine(new RuleClassifier(rules), EPSILON));
+        Random random = new Random(25);
+        float[] landmarks = newBuffer();
+        int frames = 0;
+        int matches = 0;
+        while (frames < 200_000) {
+            float[] from = pose(random);
+            int sequence = random.nextInt(4);
+            float[] to = sequence == 1 || sequence == 2 ? pose(random) : from;
+            // Hovering stays at the same point between both poses
+            float hover = sequence == 2 ? random.nextFloat() : -1f;
+            boolean wave = sequence == 3 && random.nextBoolean();
+            double degrees = random.nextInt(90) - 45;
+            float scale = 0.6f + random.nextFloat();
+            int handCount = random.nextInt(4) == 0 ? 2 : 1;
+            float[] second = LandmarkFixtures.digit(random.nextInt(GestureCodes.DIGIT_COUNT));
+            float jitter = new float[]{0.0005f, 0.002f, 0.006f}[random.nextInt(3)];
+            int length = wave ? 24 : 10 + random.nextInt(80);
+            for (int i = 0; i < length; i++, frames++) {
+                float t = hover >= 0 ? hover : (float) i / length;
+                float[] hand = newBuffer();
+                for (int j = 0; j < FLOATS_PER_HAND; j++) {
+                    hand[j] = from[j] + (to[j] - from[j]) * t + (float) random.nextGaussian() * jitter;
+                }
+                hand = LandmarkFixtures.rotate(hand, wave ? degrees + wave(i, length) : degrees);
+                hand = LandmarkFixtures.scale(hand, scale);
+                System.arraycopy(handCount == 2 ? LandmarkFixtures.twoHands(hand, second) : hand,
+                        0, landmarks, 0, handCount * FLOATS_PER_HAND);
+
+                states.extract(landmarks, 0, features);
+                assertSameStates(landmarks);
+
+                int code = full.classify(landmarks, handCount);
+                for (GestureEngine engine : engines) {
+                    assertEquals("frame " + frames, code, engine.classify(landmarks, handCount));
+                    assertEquals("confidence on frame " + frames,
+                            full.getConfidence(), engine.getConfidence(), 0f);
+                    for (int h = 0; h < handCount; h++) {
+                        assertSameMeasures(frames, full.features(h), engine.features(h));
+                        assertEquals(full.handCode(h), engine.handCode(h));
+                        assertEquals(full.handConfidence(h), engine.handConfidence(h), 0f);
+                    }
+                }
+                long micros = frames * 33_333L;
+                System.arraycopy(landmarks, 0, fullPipeline.landmarkBuffer(), 0, handCount * FLOATS_PER_HAND);
+                System.arraycopy(landmarks, 0, incrementalPipeline.landmarkBuffer(), 0, handCount * FLOATS_PER_HAND);
+                assertEquals(fullPipeline.onFrame(handCount, micros), incrementalPipeline.onFrame(handCount, micros));
+                assertEquals("pipeline result on frame " + frames,
+                        fullPipeline.takeResult(), incrementalPipeline.takeResult());
+                assertEquals("motion on frame " + frames, fullPipeline.lastMotion(), incrementalPipeline.lastMotion());
+                if (fullPipeline.lastMotion() != GestureCodes.NO_GESTURE) {
+                    matches++;
+                }
+            }
+        }
+        assertEquals(fullPipeline.getWeakFrames(), incrementalPipeline.getWeakFrames());
+        assertTrue(fullPipeline.getWeakFrames() > 0);
+        assertTrue(matches > 0);
+        // Both ways went through many frames
+        assertTrue("only " + states.getKeptFingers() + " fingers kept",
+                states.getKeptFingers() * 4 > states.getMeasuredFingers());
+        assertTrue("only " + states.getMeasuredFingers() + " fingers measured",
+                states.getMeasuredFingers() * 10 > states.getKeptFingers());
+    }
+
+    private void assertSameStates(float[] landmarks) {
+        HandFeatures.extract(landmarks, 0, expected);
+        assertEquals("mask", RuleClassifier.fingerMask(expected), states.getMask());
+        assertEquals("margin", RuleClassifier.margin(expected), states.getMargin(), 0f);
+    }
+
+    /**
+     * @return pipeline with the default settings of the activity, matching a waving hand
+     */
+    private static RecognitionPipeline pipeline(GestureEngine engine) {
+        RecognitionPipeline pipeline = new RecognitionPipeline(engine, new GestureVoter(9, 500_000, 6, 150_000));
+        pipeline.setMinConfidence(0.1f);
+        pipeline.setSmoother(new LandmarkSmoother(1f, 20f, 1f, 250_000, 0.2f));
+
+        GestureEngine templateEngine = GestureRuleFixtures.defaultEngine();
+        MotionFrames motionFrames = new MotionFrames();
+        float[] template = new float[20 * MotionFrames.DIMENSIONS];
+        float[] motionFrame = new float[MotionFrames.DIMENSIONS];
+        for (int i = 0; i < 20; i++) {
+            templateEngine.classify(LandmarkFixtures.rotate(LandmarkFixtures.digit(5), wave(i, 20)), 1);
+            motionFrames.next(templateEngine.features(0), i * 33_333L, motionFrame);
+            System.arraycopy(motionFrame, 0, template, i * MotionFrames.DIMENSIONS, MotionFrames.DIMENSIONS);
+        }
+        MotionMatcher matcher = new MotionMatcher(MotionFrames.DIMENSIONS, 6, 0.1f);
+        matcher.addTemplate(10, template, 20);
+        pipeline.setMotionMatcher(matcher);
+        return pipeline;
+    }
+
+    /**
+     * @return turn of a waving hand, in degrees, on a frame of the sign
+     */
+    private static double wave(int frame, int frames) {
+        return 30 * Math.sin(2 * Math.PI * frame / frames);
+    }
+
+    /**
+     * Compares every feature both engines measure: all of them but the joint angles, which are
+     * not measured, and the extensions, which are compared as the motion frames measure them.
+     */
+    private static void assertSameMeasures(int frame, float[] expected, float[] actual) {
+        for (int i = 0; i < HandFeatures.SIZE; i++) {
+            if (i < HandFeatures.EXTENSION || i >= HandFeatures.JOINT_ANGLE + HandFeatures.FINGER_COUNT) {
+                assertEquals("feature " + i + " on frame " + frame, expected[i], actual[i], 0f);
+            }
+        }
+        for (int finger = 0; finger < HandFeatures.FINGER_COUNT; finger++) {
+            assertEquals("extension " + finger + " on frame " + frame, expected[HandFeatures.EXTENSION + finger],
+                    HandFeatures.extension(actual, finger), 0f);
+        }
+    }
+
+    private static float[] pose(Random random) {
+        switch (random.nextInt(12)) {
+            case 10:
+                return LandmarkFixtures.noGesture();
+            case 11:
+                return LandmarkFixtures.barelyUpOne();
+            default:
+                return LandmarkFixtures.digit(random.nextInt(GestureCodes.DIGIT_COUNT));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Landmark frames shaped like the ones MediaPipe returns for an upright right hand facing the
+ * camera, used by the tests and the benchmarks. The points are given in normalised image
+ * coordinates, so Y grows towards the bottom of the image.
+ */
+public final class LandmarkFixtures {
+
+    // Finger states for each digit, thumb first and then index, middle, ring and pinky
+    private static final boolean[][] DIGIT_FINGERS = {
+            {false, false, false, false, false}, // zero
+            {false, true, false, false, false},  // one
+            {false, true, true, false, false},   // two
+            {false, true, true, true, false},    // three
+            {false, true, true, true, true},     // four
+            {true, true, true, true, true},      // five
+            {true, false, false, false, false},  // six
+            {true, true, false, false, false},   // seven
+            {true, true, true, false, false},    // eight
+            {true, true, true, true, false},     // nine
+    };
+
+    private static final float WRIST_X = 0.52f;
+    private static final float WRIST_Y = 0.85f;
+    // Base of the index, middle, ring and pinky fingers
+    private static final float[] MCP_X = {0.44f, 0.50f, 0.56f, 0.62f};
+    private static final float[] MCP_Y = {0.60f, 0.58f, 0.59f, 0.62f};
+
+    private LandmarkFixtures() {
+    }
+
+    /**
+     * @param digit number between 0 and 9
+     * @return a buffer holding one right hand signing that number
+     */
+    public static float[] digit(int digit) {
+        boolean[] fingers = DIGIT_FINGERS[digit];
+        return hand(fingers[0], fingers[1], fingers[2], fingers[3], fingers[4]);
+    }
+
+    /**
+     * Builds one right hand with the fingers either straight up or folded towards the palm.
+     *
+     * @return a buffer holding the hand on its first slot
+     */
+    public static float[] hand(boolean thumbOpen, boolean indexUp, boolean middleUp,
+                               boolean ringUp, boolean pinkyUp) {
+        float[] landmarks = newBuffer();
+        set(landmarks, 0, WRIST, WRIST_X, WRIST_Y, 0f);
+        set(landmarks, 0, THUMB_CMC, 0.45f, 0.80f, -0.01f);
+        set(landmarks, 0, THUMB_MCP, 0.39f, 0.74f, -0.02f);
+        if (thumbOpen) {
+            // thumb pointing sideways, away from the palm
+            set(landmarks, 0, THUMB_IP, 0.30f, 0.72f, -0.03f);
+            set(landmarks, 0, THUMB_TIP, 0.22f, 0.70f, -0.04f);
+        } else {
+            // thumb folded across the palm
+            set(landmarks, 0, THUMB_IP, 0.40f, 0.68f, -0.03f);
+            set(landmarks, 0, THUMB_TIP, 0.46f, 0.66f, -0.04f);
+        }
+        boolean[] up = {indexUp, middleUp, ringUp, pinkyUp};
+        for (int finger = 0; finger < 4; finger++) {
+            int mcp = INDEX_MCP + finger * 4;
+            float x = MCP_X[finger];
+            float y = MCP_Y[finger];
+            set(landmarks, 0, mcp, x, y, -0.01f);
+            if (up[finger]) {
+                set(landmarks, 0, mcp + 1, x, y - 0.08f, -0.02f);
+                set(landmarks, 0, mcp + 2, x, y - 0.14f, -0.03f);
+                set(landmarks, 0, mcp + 3, x, y - 0.19f, -0.04f);
+            } else {
+                set(landmarks, 0, mcp + 1, x, y - 0.03f, -0.04f);
+                set(landmarks, 0, mcp + 2, x, y + 0.03f, -0.05f);
+                set(landmarks, 0, mcp + 3, x, y + 0.06f, -0.04f);
+            }
+        }
+        return landmarks;
+    }
+
+    /**
+     * @return a buffer with a hand whose fingers do not match any number
+     */
+    public static float[] noGesture() {
+        return hand(true, true, false, true, false);
+    }
+
+    /**
+     * @return a buffer holding a right hand signing one, with the tip of the index finger barely
+     * higher than its last joint, right on the border between up and not up
+     */
+    public static float[] barelyUpOne() {
+        float[] landmarks = digit(1);
+        landmarks[HandLandmarks.y(0, INDEX_TIP)] = landmarks[HandLandmarks.y(0, INDEX_DIP)] - 0.002f;
+        return landmarks;
+    }
+
+    /**
+     * Mirrors the first hand of the buffer horizontally, turning a right hand into a left one.
+     *
+     * @param landmarks buffer holding one hand
+     * @return a new buffer with the mirrored hand
+     */
+    public static float[] mirror(float[] landmarks) {
+        float[] mirrored = landmarks.clone();
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            mirrored[x(0, i)] = 1f - landmarks[x(0, i)];
+        }
+        return mirrored;
+    }
+
+    /**
+     * Turns the first hand of the buffer around its wrist, like a signer tilting it.
+     *
+     * @param landmarks buffer holding one hand
+     * @param degrees angle to turn, clockwise on the image when positive
+     * @return a new buffer with the turned hand
+     */
+    public static float[] rotate(float[] landmarks, double degrees) {
+        float[] rotated = landmarks.clone();
+        double cos = Math.cos(Math.toRadians(degrees));
+        double sin = Math.sin(Math.toRadians(degrees));
+        float wristX = landmarks[x(0, WRIST)];
+        float wristY = landmarks[y(0, WRIST)];
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            double dx = landmarks[x(0, i)] - wristX;
+            double dy = landmarks[y(0, i)] - wristY;
+            rotated[x(0, i)] = (float) (wristX + dx * cos - dy * sin);
+            rotated[y(0, i)] = (float) (wristY + dx * sin + dy * cos);
+        }
+        return rotated;
+    }
+
+    /**
+     * Scales the first hand of the buffer around its wrist, as if it was closer to the camera.
+     *
+     * @param landmarks buffer holding one hand
+     * @param factor size of the new hand compared to the given one
+     * @return a new buffer with the scaled hand
+     */
+    public static float[] scale(float[] landmarks, float factor) {
+        float[] scaled = landmarks.clone();
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            for (int axis = 0; axis < STRIDE; axis++) {
+                int index = x(0, i) + axis;
+                float wrist = landmarks[x(0, WRIST) + axis];
+                scaled[index] = wrist + (landmarks[index] - wrist) * factor;
+            }
+        }
+        return scaled;
+    }
+
+    /**
+     * Puts two single hand buffers together, the second hand being moved to the other side of
+     * the image.
+     *
+     * @param first buffer holding the first hand
+     * @param second buffer holding the second hand
+     * @return a buffer with both hands
+     */
+    public static float[] twoHands(float[] first, float[] second) {
+        float[] landmarks = newBuffer();
+        System.arraycopy(first, 0, landmarks, 0, FLOATS_PER_HAND);
+        System.arraycopy(mirror(second), 0, landmarks, FLOATS_PER_HAND, FLOATS_PER_HAND);
+        return landmarks;
+    }
+
+    private static void set(float[] landmarks, int hand, int landmark, float x, float y, float z) {
+        int offset = handOffset(hand);
+        landmarks[HandLandmarks.x(offset, landmark)] = x;
+        landmarks[HandLandmarks.y(offset, landmark)] = y;
+        landmarks[HandLandmarks.z(offset, landmark)] = z;
+    }
+}
@@ -0,0 +1,170 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnknownFieldSet;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the {@link LandmarkListDecoder} against protobuf-java. The messages are written with
+ * {@link CodedOutputStream} in the NormalizedLandmarkList layout and the values expected are
+ * read back with the generic protobuf parser.
+ */
+public class LandmarkListDecoderTest {
+
+    private final LandmarkListDecoder decoder = new LandmarkListDecoder();
+
+    @Test
+    public void fixtureHands_matchProtobuf() throws IOException {
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            byte[] message = encode(LandmarkFixtures.digit(digit), 0, false);
+            float[] landmarks = HandLandmarks.newBuffer();
+            assertEquals(HandLandmarks.LANDMARK_COUNT, decoder.decode(message, landmarks, 0));
+            assertMatchesProtobuf(message, landmarks, 0);
+        }
+    }
+
+    @Test
+    public void randomHands_matchProtobuf() throws IOException {
+        Random random = new Random(42);
+        float[] source = HandLandmarks.newBuffer();
+        float[] landmarks = HandLandmarks.newBuffer();
+        for (int round = 0; round < 500; round++) {
+            for (int i = 0; i < HandLandmarks.FLOATS_PER_HAND; i++) {
+                // zeros are left out of the message by protobuf and must still be read back
+                source[i] = random.nextInt(8) == 0 ? 0f : random.nextFloat() * 2f - 0.5f;
+            }
+            int hand = round % HandLandmarks.MAX_HANDS;
+            byte[] message = encode(source, 0, round % 3 == 0);
+            decoder.decode(message, landmarks, hand);
+            assertMatchesProtobuf(message, landmarks, HandLandmarks.handOffset(hand));
+        }
+    }
+
+    @Test
+    public void secondHand_leavesFirstHandUntouched() throws IOException {
+        float[] landmarks = HandLandmarks.newBuffer();
+        decoder.decode(encode(LandmarkFixtures.digit(5), 0, false), landmarks, 0);
+        decoder.decode(encode(LandmarkFixtures.digit(2), 0, false), landmarks, 1);
+        float[] expected = LandmarkFixtures.digit(5);
+        for (int i = 0; i < HandLandmarks.FLOATS_PER_HAND; i++) {
+            assertEquals(expected[i], landmarks[i], 0f);
+        }
+        assertEquals(GestureCodes.FIVE,
+                GestureRuleFixtures.defaultEngine().classify(landmarks, 1));
+    }
+
+    @Test
+    public void shortList_clearsMissingPoints() throws IOException {
+        float[] landmarks = LandmarkFixtures.digit(5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeByteArray(1, landmark(0.5f, 0.25f, -0.1f));
+        output.flush();
+        assertEquals(1, decoder.decode(bytes.toByteArray(), landmarks, 0));
+        assertEquals(0.5f, landmarks[HandLandmarks.x(0, 0)], 0f);
+        assertEquals(0.25f, landmarks[HandLandmarks.y(0, 0)], 0f);
+        for (int i = HandLandmarks.STRIDE; i < HandLandmarks.FLOATS_PER_HAND; i++) {
+            assertEquals(0f, landmarks[i], 0f);
+        }
+    }
+
+    @Test
+    public void emptyMessage_hasNoPoints() {
+        assertEquals(0, decoder.decode(new byte[0], HandLandmarks.newBuffer(), 0));
+    }
+
+    @Test
+    public void truncatedMessage_isRejected() throws IOException {
+        byte[] message = encode(LandmarkFixtures.digit(3), 0, false);
+        for (int length : new int[]{1, 2, 7, message.length / 2, message.length - 1}) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(message, 0, truncated, 0, length);
+            try {
+                decoder.decode(truncated, HandLandmarks.newBuffer(), 0);
+                fail("length " + length);
+            } catch (IllegalArgumentException expected) {
+                // the decoder is still usable afterwards
+            }
+        }
+        assertEquals(HandLandmarks.LANDMARK_COUNT, decoder.decode(message, HandLandmarks.newBuffer(), 0));
+    }
+
+    /**
+     * Compares the buffer with the values protobuf-java reads from the message.
+     */
+    private static void assertMatchesProtobuf(byte[] message, float[] landmarks, int offset) throws IOException {
+        List<ByteString> points = UnknownFieldSet.parseFrom(message).getField(1).getLengthDelimitedList();
+        assertEquals(HandLandmarks.LANDMARK_COUNT, points.size());
+        for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+            UnknownFieldSet point = UnknownFieldSet.parseFrom(points.get(i));
+            assertEquals("x of " + i, value(point, 1), landmarks[HandLandmarks.x(offset, i)], 0f);
+            assertEquals("y of " + i, value(point, 2), landmarks[HandLandmarks.y(offset, i)], 0f);
+            assertEquals("z of " + i, value(point, 3), landmarks[HandLandmarks.z(offset, i)], 0f);
+        }
+    }
+
+    private static float value(UnknownFieldSet point, int field) {
+        List<Integer> values = point.getField(field).getFixed32List();
+        // the last value wins like on a generated message
+        return values.isEmpty() ? 0f : Float.intBitsToFloat(values.get(values.size() - 1));
+    }
+
+    /**
+     * Writes the hand as a NormalizedLandmarkList.
+     *
+     * @param extraFields adds visibility, presence and unknown fields on other wire types, like
+     *                    a newer graph would
+     */
+    private static byte[] encode(float[] landmarks, int offset, boolean extraFields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+            byte[] point = landmark(landmarks[HandLandmarks.x(offset, i)],
+                    landmarks[HandLandmarks.y(offset, i)], landmarks[HandLandmarks.z(offset, i)]);
+            if (extraFields) {
+                ByteArrayOutputStream extended = new ByteArrayOutputStream();
+                CodedOutputStream extra = CodedOutputStream.newInstance(extended);
+                extra.writeFloat(4, 0.9f);
+                extra.writeRawBytes(point);
+                extra.writeFloat(5, 0.8f);
+                extra.writeUInt64(9, Long.MAX_VALUE);
+                extra.writeDouble(10, 1.5);
+                extra.flush();
+                point = extended.toByteArray();
+                output.writeInt32(7, -1);
+            }
+            output.writeByteArray(1, point);
+        }
+        if (extraFields) {
+            output.writeString(6, "unknown");
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] landmark(float x, float y, float z) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        // proto2 optional fields, default values are left out like the generated code does
+        if (x != 0f) {
+            output.writeFloat(1, x);
+        }
+        if (y != 0f) {
+            output.writeFloat(2, y);
+        }
+        if (z != 0f) {
+            output.writeFloat(3, z);
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+}
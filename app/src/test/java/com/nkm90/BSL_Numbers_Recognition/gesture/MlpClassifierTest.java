@@ -0,0 +1,116 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link MlpClassifier}.
+ */
+public class MlpClassifierTest {
+
+    private static final int OUTPUTS = MlpClassifier.OUTPUT_COUNT;
+
+    /**
+     * One input and no hidden layer, every output scores the input times its weight.
+     */
+    private static MlpClassifier linear(float minConfidence, float... outputWeights) {
+        return new MlpClassifier(minConfidence, new float[]{0f}, new float[]{1f},
+                new float[][]{outputWeights}, new float[][]{new float[OUTPUTS]});
+    }
+
+    private static float[] input(float value) {
+        float[] features = HandFeatures.newVector();
+        features[0] = value;
+        return features;
+    }
+
+    @Test
+    public void bestScore_givesTheDigit() {
+        float[] weights = new float[OUTPUTS];
+        weights[GestureCodes.SEVEN] = 10f;
+        MlpClassifier classifier = linear(0.5f, weights);
+        assertEquals(GestureCodes.SEVEN, classifier.classify(input(1f)));
+        assertTrue(classifier.getLastConfidence() > 0.99f);
+    }
+
+    @Test
+    public void lowConfidence_isNoGesture() {
+        MlpClassifier classifier = linear(0.5f, new float[OUTPUTS]);
+        assertEquals(GestureCodes.NO_GESTURE, classifier.classify(input(1f)));
+        assertEquals(1f / OUTPUTS, classifier.getLastConfidence(), 1e-6f);
+    }
+
+    @Test
+    public void lastOutput_isNoGesture() {
+        float[] weights = new float[OUTPUTS];
+        weights[OUTPUTS - 1] = 10f;
+        assertEquals(GestureCodes.NO_GESTURE, linear(0f, weights).classify(input(1f)));
+    }
+
+    @Test
+    public void hiddenLayer_cutsNegativeValues() {
+        // The hidden unit follows the input only when it is positive, and pushes the digit two
+        float[] output = new float[OUTPUTS];
+        output[GestureCodes.TWO] = 10f;
+        float[] outputBiases = new float[OUTPUTS];
+        outputBiases[GestureCodes.ONE] = 5f;
+        MlpClassifier classifier = new MlpClassifier(0f, new float[]{0f}, new float[]{1f},
+                new float[][]{{1f}, output}, new float[][]{{0f}, outputBiases});
+        assertEquals(GestureCodes.TWO, classifier.classify(input(1f)));
+        assertEquals(GestureCodes.ONE, classifier.classify(input(-1f)));
+    }
+
+    @Test
+    public void writtenModel_isReadBack() {
+        float[] hidden = new float[3 * 2];
+        float[] output = new float[OUTPUTS * 3];
+        for (int i = 0; i < hidden.length; i++) {
+            hidden[i] = i - 2.5f;
+        }
+        for (int i = 0; i < output.length; i++) {
+            output[i] = (i % 7) - 3f;
+        }
+        MlpClassifier model = new MlpClassifier(0.2f, new float[]{0.1f, 0.2f}, new float[]{2f, 3f},
+                new float[][]{hidden, output}, new float[][]{{0.5f, -0.5f, 0f}, new float[OUTPUTS]});
+        ByteBuffer file = model.write();
+        MlpClassifier read = MlpClassifier.read(file);
+        assertEquals(0, file.position());
+        assertEquals(2, read.getInputCount());
+        for (float value = -2f; value <= 2f; value += 0.25f) {
+            float[] features = input(value);
+            features[1] = -value;
+            assertEquals(model.classify(features), read.classify(features));
+            assertEquals(model.getLastConfidence(), read.getLastConfidence(), 0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedModel_isRejected() {
+        ByteBuffer file = linear(0f, new float[OUTPUTS]).write();
+        file.limit(file.limit() - 4);
+        MlpClassifier.read(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherFile_isRejected() {
+        MlpClassifier.read(ByteBuffer.wrap("# BSL numbers recognised".getBytes()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingNoGestureOutput_isRejected() {
+        linear(0f, new float[GestureCodes.DIGIT_COUNT]);
+    }
+
+    @Test
+    public void engine_runsTheModel() {
+        float[] weights = new float[OUTPUTS];
+        weights[GestureCodes.FOUR] = 10f;
+        GestureEngine engine = new GestureEngine(linear(0.5f, weights));
+        // The first feature is the X of the wrist, which is always zero
+        assertEquals(GestureCodes.NO_GESTURE, engine.classify(LandmarkFixtures.digit(GestureCodes.FIVE), 1));
+        assertEquals(GestureCodes.NO_HANDS, engine.classify(HandLandmarks.newBuffer(), 0));
+    }
+}
@@ -0,0 +1,142 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link MotionMatcher} and the {@link MotionFrames}.
+ */
+public class MotionMatcherTest {
+
+    private static final int TEN = 10;
+    private static final int ELEVEN = 11;
+
+    /**
+     * Two values per frame following a circle, the sign of the turn telling both templates apart.
+     */
+    private static float[] circle(int frames, int turn) {
+        float[] values = new float[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            double angle = 2 * Math.PI * i / frames;
+            values[i * 2] = (float) Math.cos(angle);
+            values[i * 2 + 1] = (float) Math.sin(angle) * turn;
+        }
+        return values;
+    }
+
+    private static MotionMatcher matcher() {
+        MotionMatcher matcher = new MotionMatcher(2, 8, 0.2f);
+        matcher.addTemplate(TEN, circle(20, 1), 20);
+        matcher.addTemplate(ELEVEN, circle(20, -1), 20);
+        return matcher;
+    }
+
+    /**
+     * Feeds frames resting on the origin, then the frames given, then more resting frames.
+     *
+     * @return codes reported, with the frame they were reported on
+     */
+    private static List<int[]> play(MotionMatcher matcher, float[] sign, int signFrames) {
+        List<int[]> matches = new ArrayList<>();
+        float[] frame = new float[2];
+        for (int i = 0; i < 30 + signFrames + 30; i++) {
+            int signFrame = i - 30;
+            frame[0] = signFrame >= 0 && signFrame < signFrames ? sign[signFrame * 2] : 0f;
+            frame[1] = signFrame >= 0 && signFrame < signFrames ? sign[signFrame * 2 + 1] : 0f;
+            int code = matcher.onFrame(frame);
+            if (code != GestureCodes.NO_GESTURE) {
+                matches.add(new int[]{code, i});
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void slowerSign_isMatchedOnceAfterItEnds() {
+        MotionMatcher matcher = matcher();
+        List<int[]> matches = play(matcher, circle(26, -1), 26);
+        assertEquals(1, matches.size());
+        assertEquals(ELEVEN, matches.get(0)[0]);
+        assertTrue(matches.get(0)[1] >= 30 + 26 - 1);
+        assertEquals(30, matcher.getLastStartFrame(), 2);
+        assertTrue(matcher.getLastDistance() < 0.2f);
+    }
+
+    @Test
+    public void otherMovement_isNotMatched() {
+        float[] line = new float[40 * 2];
+        for (int i = 0; i < 40; i++) {
+            line[i * 2] = i / 20f;
+        }
+        assertTrue(play(matcher(), line, 40).isEmpty());
+    }
+
+    @Test
+    public void signOutsideTheBand_isNotMatched() {
+        // Three times slower drifts 40 frames away from the diagonal
+        assertTrue(play(matcher(), circle(60, 1), 60).isEmpty());
+        assertEquals(1, play(matcher(), circle(20, 1), 20).size());
+    }
+
+    @Test
+    public void reset_dropsTheSignSoFar() {
+        MotionMatcher matcher = matcher();
+        float[] sign = circle(20, 1);
+        float[] frame = new float[2];
+        for (int i = 0; i < 15; i++) {
+            frame[0] = sign[i * 2];
+            frame[1] = sign[i * 2 + 1];
+            assertEquals(GestureCodes.NO_GESTURE, matcher.onFrame(frame));
+        }
+        matcher.reset();
+        frame[0] = 0f;
+        frame[1] = 0f;
+        for (int i = 0; i < 30; i++) {
+            assertEquals(GestureCodes.NO_GESTURE, matcher.onFrame(frame));
+        }
+    }
+
+    @Test
+    public void farFrames_areAbandonedWithoutComparingThem() {
+        MotionMatcher matcher = matcher();
+        float[] far = {50f, 50f};
+        for (int i = 0; i < 1000; i++) {
+            matcher.onFrame(far);
+        }
+        // Only the first frame of every template is compared, the rest of the column is abandoned
+        assertEquals(2 * 1000, matcher.getCellsCompared());
+        assertEquals(1000, matcher.getFrameCount());
+    }
+
+    @Test
+    public void speed_dependsOnTheTimeNotOnTheFrameRate() {
+        float[] features = HandFeatures.newVector();
+        HandFeatures.extract(LandmarkFixtures.digit(GestureCodes.FIVE), 0, features);
+        float palm = features[HandFeatures.PALM_SIZE];
+        float startX = features[HandFeatures.WRIST_X];
+        float[] slow = new float[MotionFrames.DIMENSIONS];
+        float[] fast = new float[MotionFrames.DIMENSIONS];
+        MotionFrames slowFrames = new MotionFrames();
+        MotionFrames fastFrames = new MotionFrames();
+        slowFrames.next(features, 0, slow);
+        fastFrames.next(features, 0, fast);
+        assertEquals(0f, slow[HandFeatures.FINGER_COUNT], 0f);
+
+        // One palm length per second to the right, seen at 10 and at 30 frames per second
+        features[HandFeatures.WRIST_X] = startX + palm / 10;
+        slowFrames.next(features, 100_000, slow);
+        features[HandFeatures.WRIST_X] = startX + palm / 30;
+        fastFrames.next(features, 33_333, fast);
+        assertEquals(slow[HandFeatures.FINGER_COUNT], fast[HandFeatures.FINGER_COUNT], 1e-3f);
+        assertTrue(slow[HandFeatures.FINGER_COUNT] > 0f);
+        assertEquals(0f, slow[HandFeatures.FINGER_COUNT + 1], 1e-6f);
+
+        slowFrames.reset();
+        slowFrames.next(features, 200_000, slow);
+        assertEquals(0f, slow[HandFeatures.FINGER_COUNT], 0f);
+    }
+}
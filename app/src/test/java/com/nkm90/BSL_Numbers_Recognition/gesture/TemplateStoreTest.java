@@ -0,0 +1,129 @@
+package com.nkm90.BSL_Numbers_Recognition.gesture;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link TemplateStore} and the {@link TemplateClassifier}.
+ */
+public class TemplateStoreTest {
+
+    private final Random random = new Random(18);
+
+    /**
+     * Features whose points are spread around one of a few centres, like the poses of a digit.
+     */
+    private float[] randomFeatures(int centre) {
+        float[] features = HandFeatures.newVector();
+        for (int i = 0; i < TemplateStore.DIMENSIONS; i++) {
+            features[HandFeatures.POINTS + i] = centre * ((i % 5) - 2) * 0.3f + (float) random.nextGaussian() * 0.1f;
+        }
+        return features;
+    }
+
+    private static float bruteForceDistance(TemplateStore store, float[][] added, float[] query, int k) {
+        float[] distances = new float[store.size()];
+        for (int t = 0; t < store.size(); t++) {
+            float sum = 0f;
+            for (int i = 0; i < TemplateStore.DIMENSIONS; i++) {
+                float difference = added[t][i] - query[i];
+                sum += difference * difference;
+            }
+            distances[t] = (float) Math.sqrt(sum);
+        }
+        Arrays.sort(distances);
+        return distances[k - 1];
+    }
+
+    @Test
+    public void search_findsTheSameNeighboursAsAScan() {
+        TemplateStore store = new TemplateStore(16);
+        float[][] added = new float[3000][];
+        int k = 5;
+        TemplateStore.Search search = store.newSearch(k);
+        long visited = 0;
+        for (int t = 0; t < added.length; t++) {
+            float[] features = randomFeatures(t % 10);
+            added[t] = Arrays.copyOf(features, TemplateStore.DIMENSIONS);
+            store.add(t % 10, features);
+            if (t > k && t % 97 == 0) {
+                float[] query = randomFeatures(t % 10);
+                assertEquals(k, search.run(query, Float.MAX_VALUE));
+                assertEquals(bruteForceDistance(store, added, query, k), search.distance(k - 1), 1e-4f);
+                assertTrue(search.distance(0) <= search.distance(k - 1));
+                visited += search.getVisited();
+            }
+        }
+        assertTrue(store.getIndexedCount() > 0);
+
+        // Clustered poses are found without comparing the hand with most of the templates
+        float[] query = randomFeatures(3);
+        search.run(query, Float.MAX_VALUE);
+        assertTrue("visited " + search.getVisited(), search.getVisited() < store.size() / 4);
+        assertTrue(visited > 0);
+    }
+
+    @Test
+    public void maxDistance_limitsTheNeighbours() {
+        TemplateStore store = new TemplateStore(1);
+        for (int t = 0; t < 100; t++) {
+            store.add(t % 10, randomFeatures(t % 10));
+        }
+        TemplateStore.Search search = store.newSearch(3);
+        assertEquals(0, search.run(randomFeatures(40), 1f));
+    }
+
+    @Test
+    public void writtenStore_isReadBack() {
+        TemplateStore store = new TemplateStore(1);
+        for (int t = 0; t < 500; t++) {
+            store.add(t % 11 == 10 ? GestureCodes.NO_GESTURE : t % 11, randomFeatures(t % 11));
+        }
+        ByteBuffer file = store.write();
+        TemplateStore read = TemplateStore.read(file);
+        assertEquals(store.size(), read.size());
+        assertEquals(read.size(), read.getIndexedCount());
+        TemplateStore.Search original = store.newSearch(1);
+        TemplateStore.Search copy = read.newSearch(1);
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomFeatures(q % 11);
+            original.run(query, Float.MAX_VALUE);
+            copy.run(query, Float.MAX_VALUE);
+            assertEquals(store.label(original.template(0)), read.label(copy.template(0)));
+            assertEquals(original.distance(0), copy.distance(0), 0.01f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedFile_isRejected() {
+        TemplateStore store = new TemplateStore(1);
+        store.add(1, randomFeatures(1));
+        ByteBuffer file = store.write();
+        file.limit(file.limit() - 1);
+        TemplateStore.read(file);
+    }
+
+    @Test
+    public void classifier_recognisesTiltedFixtures() {
+        TemplateStore store = new TemplateStore(1);
+        float[] features = HandFeatures.newVector();
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            HandFeatures.extract(LandmarkFixtures.digit(digit), 0, features);
+            store.add(digit, features);
+        }
+        HandFeatures.extract(LandmarkFixtures.noGesture(), 0, features);
+        store.add(GestureCodes.NO_GESTURE, features);
+
+        GestureEngine engine = new GestureEngine(new TemplateClassifier(store, 1, 1f));
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            float[] tilted = LandmarkFixtures.rotate(LandmarkFixtures.digit(digit), 30);
+            assertEquals("digit " + digit, digit, engine.classify(tilted, 1));
+        }
+        assertEquals(GestureCodes.NO_GESTURE, engine.classify(LandmarkFixtures.noGesture(), 1));
+    }
+}
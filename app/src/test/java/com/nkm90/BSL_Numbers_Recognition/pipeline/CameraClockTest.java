@@ -0,0 +1,61 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.trace.LatencyHistogram;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link CameraClock}.
+ */
+public class CameraClockTest {
+
+    // Boot time ahead of the monotonic clock by the time the device slept
+    private static final long SLEPT_MICROS = 3_600_000_000L;
+
+    private long now = 10_000_000;
+    private final CameraClock clock = new CameraClock(() -> now, () -> now + SLEPT_MICROS);
+
+    @Test
+    public void bootTimeStampedFrame_isMeasuredOnTheBootClock() {
+        long frameTimestamp = now + SLEPT_MICROS - 40_000;
+        LatencyHistogram histogram = new LatencyHistogram();
+        // Measured on the monotonic clock the frame would come from the future
+        histogram.record(now - frameTimestamp);
+        histogram.record(clock.latencyMicros(frameTimestamp));
+
+        assertTrue(clock.isFound());
+        assertEquals(1, histogram.getCount());
+        assertEquals(1, histogram.getDroppedCount());
+        assertEquals(40_000, histogram.getMax());
+
+        now += 100_000;
+        assertEquals(now + SLEPT_MICROS, clock.nowMicros());
+    }
+
+    @Test
+    public void monotonicFrame_prefersTheFirstClock() {
+        assertFalse(clock.find(now - 40_000));
+        assertTrue(clock.isFound());
+        assertEquals(40_000, clock.latencyMicros(now - 40_000));
+    }
+
+    @Test
+    public void clockFound_isNotLookedForAgain() {
+        assertTrue(clock.find(now + SLEPT_MICROS - 40_000));
+        // A late frame on the first clock does not take it back
+        assertFalse(clock.find(now - 40_000));
+        assertEquals(now + SLEPT_MICROS, clock.nowMicros());
+    }
+
+    @Test
+    public void unknownClock_keepsLookingWithTheFirstOne() {
+        long latency = clock.latencyMicros(now + 2 * SLEPT_MICROS);
+
+        assertFalse(clock.isFound());
+        assertFalse(CameraClock.isLatency(latency));
+        assertEquals(40_000, clock.latencyMicros(now - 40_000));
+        assertTrue(clock.isFound());
+    }
+}
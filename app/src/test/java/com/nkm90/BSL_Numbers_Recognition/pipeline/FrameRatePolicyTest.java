@@ -0,0 +1,102 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link FrameRatePolicy}, with the camera delivering a frame every
+ * 33 ms like a 30 fps preview.
+ */
+public class FrameRatePolicyTest {
+
+    private static final long FRAME_MICROS = 33_333;
+
+    // 10 fps once held for 1 s, 5 fps after 2 s without hands
+    private final FrameRatePolicy policy = new FrameRatePolicy(10, 5, 1_000_000, 2_000_000, 0.03f);
+    private final float[] five = LandmarkFixtures.digit(GestureCodes.FIVE);
+    private long now;
+
+    @Test
+    public void newPolicy_processesEveryFrame() {
+        assertEquals(FrameRatePolicy.FULL, policy.getMode());
+        assertEquals(30, run(30, five, 1, GestureCodes.FIVE));
+    }
+
+    @Test
+    public void heldSign_usesStableRate() {
+        run(45, five, 1, GestureCodes.FIVE);
+        assertEquals(FrameRatePolicy.STABLE, policy.getMode());
+        long dropped = policy.getDroppedFrames();
+        int processed = run(60, five, 1, GestureCodes.FIVE);
+        // two seconds at 10 fps, with the camera frames not falling exactly on the interval
+        assertTrue("processed " + processed, processed >= 14 && processed <= 20);
+        assertEquals(60 - processed, policy.getDroppedFrames() - dropped);
+    }
+
+    @Test
+    public void noHands_usesIdleRate() {
+        run(90, HandLandmarks.newBuffer(), 0, GestureCodes.NO_HANDS);
+        assertEquals(FrameRatePolicy.IDLE, policy.getMode());
+        int processed = run(60, HandLandmarks.newBuffer(), 0, GestureCodes.NO_HANDS);
+        assertTrue("processed " + processed, processed >= 8 && processed <= 10);
+    }
+
+    @Test
+    public void changedSign_restoresFullRate() {
+        run(45, five, 1, GestureCodes.FIVE);
+        assertEquals(FrameRatePolicy.STABLE, policy.getMode());
+        run(5, LandmarkFixtures.digit(GestureCodes.TWO), 1, GestureCodes.TWO);
+        assertEquals(FrameRatePolicy.FULL, policy.getMode());
+        assertEquals(10, run(10, LandmarkFixtures.digit(GestureCodes.TWO), 1, GestureCodes.TWO));
+    }
+
+    @Test
+    public void handAppearing_restoresFullRate() {
+        run(90, HandLandmarks.newBuffer(), 0, GestureCodes.NO_HANDS);
+        assertEquals(FrameRatePolicy.IDLE, policy.getMode());
+        run(10, five, 1, GestureCodes.FIVE);
+        assertEquals(FrameRatePolicy.FULL, policy.getMode());
+    }
+
+    @Test
+    public void movingHand_keepsFullRate() {
+        float[] moving = five.clone();
+        for (int frame = 0; frame < 90; frame++) {
+            // the whole hand slides sideways a bit more than a centimetre a second
+            for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+                moving[HandLandmarks.x(0, i)] += 0.002f;
+            }
+            run(1, moving, 1, GestureCodes.FIVE);
+            assertEquals("frame " + frame, FrameRatePolicy.FULL, policy.getMode());
+        }
+    }
+
+    @Test
+    public void restartedCamera_processesFirstFrame() {
+        run(45, five, 1, GestureCodes.FIVE);
+        now = 0;
+        assertTrue(policy.shouldProcess(now));
+    }
+
+    /**
+     * Offers camera frames to the policy and feeds back the result of the processed ones.
+     *
+     * @return number of frames processed
+     */
+    private int run(int frames, float[] landmarks, int handCount, int gesture) {
+        int processed = 0;
+        for (int i = 0; i < frames; i++) {
+            now += FRAME_MICROS;
+            if (policy.shouldProcess(now)) {
+                processed++;
+                policy.onResult(landmarks, handCount, gesture, now);
+            }
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,99 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link GestureVoter}, with frames 33 ms apart as at 30 fps.
+ */
+public class GestureVoterTest {
+
+    private static final long FRAME_MICROS = 33_000;
+
+    private final GestureVoter voter = new GestureVoter(5, 500_000, 3, 0);
+    private long frame;
+
+    private int vote(int gesture) {
+        return voter.vote(gesture, frame++ * FRAME_MICROS);
+    }
+
+    @Test
+    public void stableDigit_isCommittedOnce() {
+        assertEquals(GestureCodes.NO_GESTURE, vote(4));
+        assertEquals(GestureCodes.NO_GESTURE, vote(4));
+        assertEquals(4, vote(4));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(GestureCodes.NO_GESTURE, vote(4));
+        }
+    }
+
+    @Test
+    public void singleNoisyFrame_doesNotCommitOrRelease() {
+        vote(4);
+        vote(4);
+        assertEquals(4, vote(4));
+        assertEquals(GestureCodes.NO_GESTURE, vote(3));
+        assertEquals(GestureCodes.NO_GESTURE, vote(4));
+        assertEquals(GestureCodes.NO_GESTURE, vote(4));
+    }
+
+    @Test
+    public void sameDigit_isCommittedAgainAfterRelease() {
+        vote(2);
+        vote(2);
+        assertEquals(2, vote(2));
+        for (int i = 0; i < 5; i++) {
+            vote(GestureCodes.NO_HANDS);
+        }
+        int committed = GestureCodes.NO_GESTURE;
+        for (int i = 0; i < 5 && committed == GestureCodes.NO_GESTURE; i++) {
+            committed = vote(2);
+        }
+        assertEquals(2, committed);
+    }
+
+    @Test
+    public void heldCandidate_isNotCommitted() {
+        vote(6);
+        voter.holdCandidate();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(GestureCodes.NO_GESTURE, vote(6));
+        }
+        for (int i = 0; i < 5; i++) {
+            vote(GestureCodes.NO_HANDS);
+        }
+        int committed = GestureCodes.NO_GESTURE;
+        for (int i = 0; i < 5 && committed == GestureCodes.NO_GESTURE; i++) {
+            committed = vote(6);
+        }
+        assertEquals(6, committed);
+    }
+
+    @Test
+    public void nonDigits_areNeverCommitted() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(GestureCodes.NO_GESTURE, vote(GestureCodes.NO_HANDS));
+        }
+    }
+
+    @Test
+    public void minimumTime_delaysCommit() {
+        GestureVoter timed = new GestureVoter(5, 500_000, 1, 100_000);
+        assertEquals(GestureCodes.NO_GESTURE, timed.vote(8, 0));
+        assertEquals(GestureCodes.NO_GESTURE, timed.vote(8, 66_000));
+        assertEquals(8, timed.vote(8, 100_000));
+    }
+
+    @Test
+    public void oldFrames_stopVoting() {
+        vote(6);
+        vote(6);
+        // after a long gap only the new frame is on the window
+        assertEquals(GestureCodes.NO_GESTURE, voter.vote(1, 10_000_000));
+        assertEquals(GestureCodes.NO_GESTURE, voter.vote(1, 10_033_000));
+        assertEquals(1, voter.vote(1, 10_066_000));
+    }
+}
@@ -0,0 +1,116 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link LandmarkSmoother}.
+ */
+public class LandmarkSmootherTest {
+
+    private final LandmarkSmoother smoother = new LandmarkSmoother(1f, 20f, 1f, 250_000, 0.2f);
+
+    private static float[] moved(float[] landmarks, float dx) {
+        float[] moved = landmarks.clone();
+        for (int i = 0; i < LANDMARK_COUNT; i++) {
+            moved[x(0, i)] += dx;
+        }
+        return moved;
+    }
+
+    @Test
+    public void stillHand_jitterIsReduced() {
+        Random random = new Random(20);
+        float[] hand = LandmarkFixtures.digit(3);
+        int tip = x(0, INDEX_TIP);
+        double rawError = 0;
+        double smoothedError = 0;
+        float[] frame = HandLandmarks.newBuffer();
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < FLOATS_PER_HAND; j++) {
+                frame[j] = hand[j] + (float) random.nextGaussian() * 0.004f;
+            }
+            rawError += Math.pow(frame[tip] - hand[tip], 2);
+            smoother.smooth(frame, 1, i * 33_333L);
+            smoothedError += Math.pow(frame[tip] - hand[tip], 2);
+        }
+        assertTrue(smoothedError < rawError / 4);
+    }
+
+    @Test
+    public void movingHand_followsWithLittleLag() {
+        float[] hand = LandmarkFixtures.digit(5);
+        float[] frame = HandLandmarks.newBuffer();
+        float dx = 0f;
+        for (int i = 0; i < 30; i++) {
+            // Half the image per second
+            dx = 0.5f * i / 30;
+            System.arraycopy(moved(hand, dx), 0, frame, 0, FLOATS_PER_HAND);
+            smoother.smooth(frame, 1, i * 33_333L);
+        }
+        assertEquals(hand[x(0, WRIST)] + dx, frame[x(0, WRIST)], 0.02f);
+        assertEquals(1, smoother.getRestarts());
+    }
+
+    @Test
+    public void step_isFollowedAtTheSamePaceWhateverTheFrameRate() {
+        float[] hand = LandmarkFixtures.digit(5);
+        float[] stepped = moved(hand, 0.05f);
+        float[] followed = new float[2];
+        int[] framesPerSecond = {30, 60};
+        for (int run = 0; run < 2; run++) {
+            LandmarkSmoother smoother = new LandmarkSmoother(1f, 20f, 1f, 250_000, 0.2f);
+            long interval = 1_000_000L / framesPerSecond[run];
+            float[] frame = hand.clone();
+            smoother.smooth(frame, 1, 0);
+            // A third of a second after the step
+            for (int i = 1; i <= framesPerSecond[run] / 3; i++) {
+                frame = stepped.clone();
+                smoother.smooth(frame, 1, i * interval);
+            }
+            followed[run] = frame[x(0, WRIST)] - hand[x(0, WRIST)];
+        }
+        assertTrue(followed[0] > 0.01f && followed[0] < 0.05f);
+        assertEquals(followed[0], followed[1], 0.005f);
+    }
+
+    @Test
+    public void handCountChange_restartsFromTheRawLandmarks() {
+        float[] one = LandmarkFixtures.digit(2);
+        float[] two = LandmarkFixtures.twoHands(moved(one, 0.01f), LandmarkFixtures.digit(4));
+        smoother.smooth(one.clone(), 1, 0);
+        smoother.smooth(one.clone(), 1, 33_333);
+        float[] frame = two.clone();
+        smoother.smooth(frame, 2, 66_666);
+        assertArrayEquals(two, frame, 0f);
+        // Once for the first hand, then once for each of the two
+        assertEquals(3, smoother.getRestarts());
+    }
+
+    @Test
+    public void gapOrJump_restartsFromTheRawLandmarks() {
+        float[] hand = LandmarkFixtures.digit(1);
+        smoother.smooth(hand.clone(), 1, 0);
+        float[] frame = moved(hand, 0.01f);
+        smoother.smooth(frame, 1, 33_333);
+        assertNotEquals(hand[x(0, WRIST)] + 0.01f, frame[x(0, WRIST)], 1e-6f);
+
+        // Half a second without packets
+        frame = moved(hand, 0.02f);
+        smoother.smooth(frame, 1, 533_333);
+        assertArrayEquals(moved(hand, 0.02f), frame, 0f);
+
+        // The other side of the image on the next frame
+        frame = moved(hand, -0.4f);
+        smoother.smooth(frame, 1, 566_666);
+        assertArrayEquals(moved(hand, -0.4f), frame, 0f);
+        assertEquals(3, smoother.getRestarts());
+    }
+}
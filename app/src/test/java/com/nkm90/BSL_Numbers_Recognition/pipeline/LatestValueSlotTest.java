@@ -0,0 +1,55 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link LatestValueSlot} hand over.
+ */
+public class LatestValueSlotTest {
+
+    @Test
+    public void unchangedValue_doesNotScheduleConsumer() {
+        LatestValueSlot slot = new LatestValueSlot(0);
+        assertFalse(slot.publish(0));
+        assertTrue(slot.publish(1));
+        assertFalse(slot.publish(1));
+    }
+
+    @Test
+    public void pendingConsumer_getsLatestValue() {
+        LatestValueSlot slot = new LatestValueSlot(0);
+        assertTrue(slot.publish(1));
+        assertFalse(slot.publish(2));
+        assertFalse(slot.publish(3));
+        assertEquals(3, slot.take());
+        assertTrue(slot.publish(4));
+        assertEquals(4, slot.take());
+    }
+
+    @Test
+    public void concurrentProducer_lastValueIsAlwaysDelivered() throws InterruptedException {
+        final LatestValueSlot slot = new LatestValueSlot(0);
+        final int values = 200_000;
+        final Semaphore scheduled = new Semaphore(0);
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= values; i++) {
+                if (slot.publish(i)) {
+                    scheduled.release();
+                }
+            }
+        });
+        producer.start();
+        long seen = 0;
+        while (seen != values) {
+            scheduled.acquire();
+            long value = slot.take();
+            assertTrue(value >= seen);
+            seen = value;
+        }
+        producer.join();
+    }
+}
@@ -0,0 +1,88 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link PipelineLifecycle}.
+ */
+public class PipelineLifecycleTest {
+
+    private final PipelineLifecycle lifecycle = new PipelineLifecycle();
+    private final List<String> released = new ArrayList<>();
+
+    @Test
+    public void onlyFirstResume_isColdStart() {
+        assertTrue(lifecycle.onResume(0));
+        lifecycle.onPause();
+        assertFalse(lifecycle.isResumed());
+        assertFalse(lifecycle.onResume(1_000));
+        assertTrue(lifecycle.isResumed());
+        assertEquals(2, lifecycle.getResumeCount());
+    }
+
+    @Test
+    public void pauseAndResume_releaseNothing() {
+        register("egl", "processor", "converter");
+        for (int i = 0; i < 10; i++) {
+            lifecycle.onResume(i);
+            lifecycle.onPause();
+        }
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    public void release_runsOnceInReverseOrder() {
+        register("egl", "processor", "converter");
+        lifecycle.onResume(0);
+        lifecycle.onPause();
+        lifecycle.release((name, error) -> fail(name));
+        lifecycle.release((name, error) -> fail(name));
+        assertEquals(Arrays.asList("converter", "processor", "egl"), released);
+        assertTrue(lifecycle.isReleased());
+    }
+
+    @Test
+    public void failingRelease_doesNotStopTheOthers() {
+        register("egl");
+        lifecycle.register("processor", () -> {
+            throw new IllegalStateException("graph");
+        });
+        register("converter");
+        List<String> errors = new ArrayList<>();
+        lifecycle.release((name, error) -> errors.add(name + ":" + error.getMessage()));
+        assertEquals(Arrays.asList("converter", "egl"), released);
+        assertEquals(Arrays.asList("processor:graph"), errors);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void resumeAfterRelease_isRejected() {
+        lifecycle.release((name, error) -> fail(name));
+        lifecycle.onResume(0);
+    }
+
+    @Test
+    public void firstLandmarksAfterResume_areMeasuredOnce() {
+        assertEquals(-1, lifecycle.onLandmarks(5_000_000));
+        lifecycle.onResume(1_000_000);
+        assertEquals(400, lifecycle.onLandmarks(1_400_000));
+        assertTrue(lifecycle.wasColdStart());
+        assertEquals(-1, lifecycle.onLandmarks(1_500_000));
+        lifecycle.onPause();
+        lifecycle.onResume(10_000_000);
+        assertEquals(50, lifecycle.onLandmarks(10_050_000));
+        assertFalse(lifecycle.wasColdStart());
+        assertEquals(50, lifecycle.getLastResumeLatencyMicros());
+    }
+
+    private void register(String... names) {
+        for (String name : names) {
+            lifecycle.register(name, () -> released.add(name));
+        }
+    }
+}
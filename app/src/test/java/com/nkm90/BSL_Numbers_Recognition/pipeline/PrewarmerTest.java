@@ -0,0 +1,160 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link Prewarmer}.
+ */
+public class PrewarmerTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    public void take_waitsForThePreparation() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", () -> {
+            release.await();
+            return created.incrementAndGet();
+        });
+        assertTrue(prewarmer.start());
+        assertFalse(prewarmer.isReady());
+        new Thread(() -> {
+            sleep(50);
+            release.countDown();
+        }).start();
+        assertEquals(Integer.valueOf(1), prewarmer.take());
+        assertTrue(prewarmer.getLastPrepareMicros() >= 0);
+    }
+
+    @Test
+    public void start_isIgnoredWhileOneIsPreparedOrReady() throws InterruptedException {
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", created::incrementAndGet);
+        assertTrue(prewarmer.start());
+        prewarmer.start();
+        waitUntilReady(prewarmer);
+        assertFalse(prewarmer.start());
+        assertEquals(Integer.valueOf(1), prewarmer.take());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void take_handsEachObjectOnce() throws InterruptedException {
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", created::incrementAndGet);
+        prewarmer.start();
+        assertEquals(Integer.valueOf(1), prewarmer.take());
+        assertNull(prewarmer.take());
+        assertTrue(prewarmer.start());
+        assertEquals(Integer.valueOf(2), prewarmer.take());
+    }
+
+    @Test
+    public void failedPreparation_returnsNull() throws InterruptedException {
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", () -> {
+            throw new IllegalStateException("no graph");
+        });
+        prewarmer.start();
+        assertNull(prewarmer.take());
+        assertEquals("no graph", prewarmer.getLastError().getMessage());
+    }
+
+    @Test
+    public void linkError_failsThePreparation() throws InterruptedException {
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", () -> {
+            throw new UnsatisfiedLinkError("mediapipe_jni");
+        });
+        prewarmer.start();
+        assertNull(prewarmer.take());
+        assertTrue(prewarmer.getLastError() instanceof UnsatisfiedLinkError);
+    }
+
+    @Test
+    public void discard_releasesTheReadyObject() throws InterruptedException {
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", created::incrementAndGet, released::add);
+        prewarmer.start();
+        waitUntilReady(prewarmer);
+        assertTrue(prewarmer.discard());
+        assertEquals(Collections.singletonList(1), released);
+        assertNull(prewarmer.take());
+        assertFalse(prewarmer.discard());
+
+        // The next start prepares a new one
+        assertTrue(prewarmer.start());
+        assertEquals(Integer.valueOf(2), prewarmer.take());
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    public void discard_whilePreparing_releasesItOnceReady() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch releasedLatch = new CountDownLatch(1);
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", () -> {
+            release.await();
+            return created.incrementAndGet();
+        }, object -> {
+            released.add(object);
+            releasedLatch.countDown();
+        });
+        prewarmer.start();
+        assertTrue(prewarmer.discard());
+        release.countDown();
+        assertTrue(releasedLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(1), released);
+        assertNull(prewarmer.take());
+        assertFalse(prewarmer.isReady());
+    }
+
+    @Test
+    public void startAfterDiscard_keepsTheOneBeingPrepared() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", () -> {
+            release.await();
+            return created.incrementAndGet();
+        }, released::add);
+        prewarmer.start();
+        prewarmer.discard();
+        assertFalse(prewarmer.start());
+        release.countDown();
+        assertEquals(Integer.valueOf(1), prewarmer.take());
+        assertTrue(released.isEmpty());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void failedRelease_isKeptAsTheLastError() throws InterruptedException {
+        Prewarmer<Integer> prewarmer = new Prewarmer<>("test", created::incrementAndGet, object -> {
+            throw new IllegalStateException("context lost");
+        });
+        prewarmer.start();
+        waitUntilReady(prewarmer);
+        assertTrue(prewarmer.discard());
+        assertEquals("context lost", prewarmer.getLastError().getMessage());
+        assertNull(prewarmer.take());
+    }
+
+    private static void waitUntilReady(Prewarmer<?> prewarmer) {
+        for (int i = 0; i < 500 && !prewarmer.isReady(); i++) {
+            sleep(2);
+        }
+        assertTrue(prewarmer.isReady());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionFrames;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionMatcher;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link RecognitionPipeline}, feeding it frames as the packet
+ * callback does.
+ */
+public class RecognitionPipelineTest {
+
+    private final RecognitionPipeline pipeline = new RecognitionPipeline(
+            GestureRuleFixtures.defaultEngine(), new GestureVoter(5, 500_000, 3, 0));
+
+    private boolean frame(float[] landmarks, int handCount, long micros) {
+        System.arraycopy(landmarks, 0, pipeline.landmarkBuffer(), 0, landmarks.length);
+        return pipeline.onFrame(handCount, micros);
+    }
+
+    @Test
+    public void uiIsOnlyScheduledWhenResultChanges() {
+        assertTrue(frame(HandLandmarks.newBuffer(), 0, 0));
+        assertEquals(GestureCodes.NO_HANDS, RecognitionPipeline.gestureOf(pipeline.takeResult()));
+        assertFalse(frame(HandLandmarks.newBuffer(), 0, 33_000));
+
+        assertTrue(frame(LandmarkFixtures.digit(3), 1, 66_000));
+        assertFalse(frame(LandmarkFixtures.digit(3), 1, 100_000));
+        long latest = pipeline.takeResult();
+        assertEquals(3, RecognitionPipeline.gestureOf(latest));
+        assertEquals(GestureCodes.NO_GESTURE, RecognitionPipeline.committedOf(latest));
+    }
+
+    @Test
+    public void weakFrames_doNotCommit() {
+        pipeline.setMinConfidence(0.5f);
+        for (int i = 0; i < 10; i++) {
+            frame(LandmarkFixtures.barelyUpOne(), 1, i * 33_000L);
+        }
+        long latest = pipeline.takeResult();
+        assertEquals(GestureCodes.ONE, RecognitionPipeline.gestureOf(latest));
+        assertEquals(GestureCodes.NO_GESTURE, RecognitionPipeline.committedOf(latest));
+        assertEquals(10, pipeline.getWeakFrames());
+
+        for (int i = 10; i < 13; i++) {
+            frame(LandmarkFixtures.digit(1), 1, i * 33_000L);
+        }
+        assertEquals(GestureCodes.ONE, RecognitionPipeline.committedOf(pipeline.takeResult()));
+        assertEquals(10, pipeline.getWeakFrames());
+    }
+
+    @Test
+    public void heldDigit_isCommitted() {
+        frame(LandmarkFixtures.digit(7), 1, 0);
+        frame(LandmarkFixtures.digit(7), 1, 33_000);
+        assertEquals(GestureCodes.NO_GESTURE, RecognitionPipeline.committedOf(pipeline.takeResult()));
+
+        assertTrue(frame(LandmarkFixtures.digit(7), 1, 66_000));
+        assertEquals(7, RecognitionPipeline.committedOf(pipeline.takeResult()));
+
+        frame(LandmarkFixtures.digit(2), 1, 100_000);
+        assertEquals(7, RecognitionPipeline.committedOf(pipeline.takeResult()));
+    }
+
+    @Test
+    public void committedNumber_keepsTheTimestampOfTheFrameThatCommittedIt() {
+        for (int i = 0; i < 3; i++) {
+            frame(LandmarkFixtures.digit(4), 1, 1_000_000 + i * 33_000L);
+        }
+        frame(LandmarkFixtures.digit(2), 1, 1_099_000);
+        long latest = pipeline.takeResult();
+        assertEquals(2, RecognitionPipeline.gestureOf(latest));
+        assertEquals(4, RecognitionPipeline.committedOf(latest));
+        assertEquals(1_066_000, RecognitionPipeline.committedTimestampOf(latest));
+    }
+
+    @Test
+    public void noHandsAndNoGesture_areReadBack() {
+        frame(LandmarkFixtures.noGesture(), 1, 0);
+        assertEquals(GestureCodes.NO_GESTURE, RecognitionPipeline.gestureOf(pipeline.takeResult()));
+        frame(HandLandmarks.newBuffer(), 0, 33_000);
+        long latest = pipeline.takeResult();
+        assertEquals(GestureCodes.NO_HANDS, RecognitionPipeline.gestureOf(latest));
+        assertEquals(GestureCodes.NO_GESTURE, RecognitionPipeline.committedOf(latest));
+        assertEquals(0, RecognitionPipeline.committedTimestampOf(latest));
+    }
+
+    /**
+     * Open hand swinging from one side to the other and back.
+     */
+    private static float[] wave(int frame, int frames) {
+        double degrees = 30 * Math.sin(2 * Math.PI * frame / frames);
+        return LandmarkFixtures.rotate(LandmarkFixtures.digit(5), degrees);
+    }
+
+    /**
+     * @return a matcher of the wave as ten, its template recorded at 30 frames per second
+     */
+    private static MotionMatcher waveMatcher() {
+        GestureEngine engine = GestureRuleFixtures.defaultEngine();
+        MotionFrames motionFrames = new MotionFrames();
+        float[] template = new float[20 * MotionFrames.DIMENSIONS];
+        float[] motionFrame = new float[MotionFrames.DIMENSIONS];
+        for (int i = 0; i < 20; i++) {
+            engine.classify(wave(i, 20), 1);
+            motionFrames.next(engine.features(0), i * 33_333L, motionFrame);
+            System.arraycopy(motionFrame, 0, template, i * MotionFrames.DIMENSIONS, MotionFrames.DIMENSIONS);
+        }
+        MotionMatcher matcher = new MotionMatcher(MotionFrames.DIMENSIONS, 6, 0.1f);
+        matcher.addTemplate(GestureCodes.TEN, template, 20);
+        return matcher;
+    }
+
+    @Test
+    public void wavingHand_isMatchedOnce() {
+        pipeline.setMotionMatcher(waveMatcher());
+
+        // Same sign a bit slower, between still frames
+        int matches = 0;
+        long matchMicros = 0;
+        long micros = 0;
+        for (int i = 0; i < 10 + 24 + 15; i++, micros += 33_333) {
+            int signFrame = i - 10;
+            frame(signFrame >= 0 && signFrame < 24 ? wave(signFrame, 24) : wave(0, 24), 1, micros);
+            if (pipeline.lastMotion() != GestureCodes.NO_GESTURE) {
+                assertEquals(10, pipeline.lastMotion());
+                matches++;
+                matchMicros = micros;
+            }
+        }
+        assertEquals(1, matches);
+        // Committed over the five held before it
+        long latest = pipeline.takeResult();
+        assertEquals(GestureCodes.TEN, RecognitionPipeline.committedOf(latest));
+        assertEquals(matchMicros, RecognitionPipeline.committedTimestampOf(latest));
+
+        // Half a sign, then the hand is lost
+        for (int i = 0; i < 12; i++, micros += 33_333) {
+            frame(wave(i, 24), 1, micros);
+        }
+        frame(HandLandmarks.newBuffer(), 0, micros);
+        for (int i = 12; i < 24 + 15; i++, micros += 33_333) {
+            frame(i < 24 ? wave(i, 24) : wave(0, 24), 1, micros);
+            assertEquals(GestureCodes.NO_GESTURE, pipeline.lastMotion());
+        }
+    }
+
+    @Test
+    public void handHeldWhileMoving_isNotCommittedAfterTheMotionSign() {
+        // The five held through the wave would only be committed after the wave ends
+        RecognitionPipeline slowPipeline = new RecognitionPipeline(
+                GestureRuleFixtures.defaultEngine(), new GestureVoter(5, 500_000, 40, 0));
+        slowPipeline.setMotionMatcher(waveMatcher());
+        long micros = 0;
+        for (int i = 0; i < 10 + 24 + 30; i++, micros += 33_333) {
+            int signFrame = i - 10;
+            float[] landmarks = signFrame >= 0 && signFrame < 24 ? wave(signFrame, 24) : wave(0, 24);
+            System.arraycopy(landmarks, 0, slowPipeline.landmarkBuffer(), 0, landmarks.length);
+            slowPipeline.onFrame(1, micros);
+        }
+        assertEquals(GestureCodes.TEN, RecognitionPipeline.committedOf(slowPipeline.takeResult()));
+    }
+
+    /**
+     * Counts the frames scheduling the UI for a hand jittering around the pose halfway between
+     * three and four, where the pinky is neither clearly up nor down.
+     */
+    private static int updatesOfJitteringHand(LandmarkSmoother smoother) {
+        GestureEngine engine = GestureRuleFixtures.defaultEngine();
+        float[] three = LandmarkFixtures.digit(3);
+        float[] four = LandmarkFixtures.digit(4);
+        float[] hand = HandLandmarks.newBuffer();
+        float low = 0f;
+        float high = 1f;
+        for (int i = 0; i < 30; i++) {
+            float t = (low + high) / 2;
+            for (int j = 0; j < hand.length; j++) {
+                hand[j] = three[j] + (four[j] - three[j]) * t;
+            }
+            if (engine.classify(hand, 1) == 3) {
+                low = t;
+            } else {
+                high = t;
+            }
+        }
+
+        RecognitionPipeline pipeline = new RecognitionPipeline(engine, new GestureVoter(5, 500_000, 3, 0));
+        pipeline.setSmoother(smoother);
+        Random random = new Random(20);
+        int updates = 0;
+        for (int i = 0; i < 300; i++) {
+            float[] buffer = pipeline.landmarkBuffer();
+            for (int j = 0; j < hand.length; j++) {
+                buffer[j] = hand[j] + (float) random.nextGaussian() * 0.003f;
+            }
+            if (pipeline.onFrame(1, i * 33_333L)) {
+                pipeline.takeResult();
+                updates++;
+            }
+        }
+        return updates;
+    }
+
+    @Test
+    public void smoothing_reducesTheUpdatesOfAJitteringHand() {
+        int raw = updatesOfJitteringHand(null);
+        int smoothed = updatesOfJitteringHand(new LandmarkSmoother(1f, 20f, 1f, 250_000, 0.2f));
+        assertTrue(raw > 50);
+        assertTrue(smoothed * 2 < raw);
+    }
+}
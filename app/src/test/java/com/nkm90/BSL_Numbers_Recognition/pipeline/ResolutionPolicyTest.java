@@ -0,0 +1,166 @@
+package com.nkm90.BSL_Numbers_Recognition.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link ResolutionPolicy}, driven by a fake clock with a packet every
+ * 33 ms and a latency chosen by each test.
+ */
+public class ResolutionPolicyTest {
+
+    private static final int[][] RESOLUTIONS = {{1280, 720}, {960, 540}, {640, 480}};
+    private static final long FRAME_MICROS = 33_333;
+    private static final long BUDGET_MICROS = 100_000;
+    private static final long WINDOW_MICROS = 1_000_000;
+    private static final long BACKOFF_MICROS = 60_000_000;
+
+    private long now;
+    private final ResolutionPolicy policy = new ResolutionPolicy(RESOLUTIONS, 0, () -> now,
+            BUDGET_MICROS, WINDOW_MICROS, 2, BACKOFF_MICROS);
+
+    @Test
+    public void noCameraStart_takesNoDecision() {
+        assertFalse(run(10_000_000, 300_000));
+        assertEquals(0, policy.getLevel());
+    }
+
+    @Test
+    public void slowFrames_lowerTheResolution() {
+        policy.onCameraStarted();
+        assertTrue(run(5_000_000, 150_000));
+        assertEquals(1, policy.getLevel());
+        assertEquals(960, policy.getWidth());
+        assertEquals(540, policy.getHeight());
+        assertTrue(policy.getLastPercentile() >= 150_000);
+    }
+
+    @Test
+    public void newLevel_waitsForCameraStart() {
+        policy.onCameraStarted();
+        run(5_000_000, 150_000);
+        // the camera still runs with the old resolution, the slow frames do not count
+        assertFalse(run(10_000_000, 150_000));
+        assertEquals(1, policy.getLevel());
+        policy.onCameraStarted();
+        assertTrue(run(5_000_000, 150_000));
+        assertEquals(2, policy.getLevel());
+    }
+
+    @Test
+    public void singleSlowWindow_isIgnored() {
+        policy.onCameraStarted();
+        // warm up window, then a slow window followed by one on budget
+        assertFalse(run(WINDOW_MICROS, 10_000));
+        assertFalse(run(WINDOW_MICROS, 150_000));
+        assertFalse(run(WINDOW_MICROS, 80_000));
+        assertFalse(run(WINDOW_MICROS, 150_000));
+        assertFalse(run(WINDOW_MICROS, 80_000));
+        assertEquals(0, policy.getLevel());
+    }
+
+    @Test
+    public void warmUpWindow_isIgnored() {
+        policy.onCameraStarted();
+        assertFalse(run(WINDOW_MICROS + FRAME_MICROS, 500_000));
+        assertFalse(run(WINDOW_MICROS, 80_000));
+        assertFalse(run(WINDOW_MICROS, 80_000));
+        assertEquals(0, policy.getLevel());
+    }
+
+    @Test
+    public void fastFrames_raiseTheResolution() {
+        ResolutionPolicy small = new ResolutionPolicy(RESOLUTIONS, 2, () -> now,
+                BUDGET_MICROS, WINDOW_MICROS, 2, BACKOFF_MICROS);
+        small.onCameraStarted();
+        boolean changed = false;
+        for (int i = 0; i < 200 && !changed; i++) {
+            now += FRAME_MICROS;
+            changed = small.onPacket(now - 20_000);
+        }
+        assertTrue(changed);
+        assertEquals(1, small.getLevel());
+    }
+
+    @Test
+    public void slowLevel_isNotRetriedBeforeTheBackoff() {
+        policy.onCameraStarted();
+        run(5_000_000, 150_000);
+        assertEquals(1, policy.getLevel());
+        policy.onCameraStarted();
+        // fast enough to go back up, but level 0 has just failed
+        assertFalse(run(30_000_000, 20_000));
+        assertEquals(1, policy.getLevel());
+        assertTrue(run(40_000_000, 20_000));
+        assertEquals(0, policy.getLevel());
+
+        // failing again doubles the backoff
+        policy.onCameraStarted();
+        assertTrue(run(5_000_000, 150_000));
+        policy.onCameraStarted();
+        assertFalse(run(100_000_000, 20_000));
+        assertTrue(run(30_000_000, 20_000));
+    }
+
+    @Test
+    public void smallestLevel_staysOnSlowFrames() {
+        ResolutionPolicy small = new ResolutionPolicy(RESOLUTIONS, 7, () -> now,
+                BUDGET_MICROS, WINDOW_MICROS, 2, BACKOFF_MICROS);
+        assertEquals(2, small.getLevel());
+        small.onCameraStarted();
+        for (int i = 0; i < 300; i++) {
+            now += FRAME_MICROS;
+            assertFalse(small.onPacket(now - 150_000));
+        }
+    }
+
+    @Test
+    public void timestampsOnAnotherClock_areMeasuredWithIt() {
+        // Boot time ahead of the monotonic clock by the time the device slept
+        long sleptMicros = 3_600_000_000L;
+        ResolutionPolicy.Clock[] clocks = {() -> now, () -> now + sleptMicros};
+        ResolutionPolicy bootTime = new ResolutionPolicy(RESOLUTIONS, 0, clocks,
+                BUDGET_MICROS, WINDOW_MICROS, 2, BACKOFF_MICROS);
+        bootTime.onCameraStarted();
+        boolean changed = false;
+        for (int i = 0; i < 200 && !changed; i++) {
+            now += FRAME_MICROS;
+            changed = bootTime.onPacket(now + sleptMicros - 150_000);
+        }
+        assertTrue(changed);
+        assertEquals(1, bootTime.getLevel());
+        assertEquals(0, bootTime.getDroppedSamples());
+    }
+
+    @Test
+    public void timestampsOnAnUnknownClock_areCountedAsDropped() {
+        policy.onCameraStarted();
+        long packets = 0;
+        for (long end = now + 5_000_000; now < end; packets++) {
+            now += FRAME_MICROS;
+            assertFalse(policy.onPacket(now + 1_600_000_000_000_000L));
+        }
+        assertEquals(0, policy.getLevel());
+        assertEquals(packets, policy.getDroppedSamples());
+        assertTrue(policy.getDroppedWindows() >= 4);
+        assertEquals(-1, policy.getLastPercentile());
+    }
+
+    /**
+     * Sends packets to the policy for a while.
+     *
+     * @param durationMicros time the packets cover
+     * @param latencyMicros latency of every packet
+     * @return true when the policy chose a new level
+     */
+    private boolean run(long durationMicros, long latencyMicros) {
+        long end = now + durationMicros;
+        boolean changed = false;
+        while (now < end) {
+            now += FRAME_MICROS;
+            changed |= policy.onPacket(now - latencyMicros);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,88 @@
+package com.nkm90.BSL_Numbers_Recognition.recording;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests writing recordings with the {@link LandmarkRecorder} and reading them back.
+ */
+public class LandmarkRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<float[]> frames = new ArrayList<>();
+
+    private int readBack(File file) throws IOException {
+        timestamps.clear();
+        frames.clear();
+        return LandmarkRecordingReader.read(file, (timestamp, landmarks, handCount) -> {
+            timestamps.add(timestamp);
+            frames.add(Arrays.copyOf(landmarks, handCount * HandLandmarks.FLOATS_PER_HAND));
+        });
+    }
+
+    @Test
+    public void frames_areReadBackInOrder() throws IOException {
+        File file = folder.newFile("session.bslr");
+        float[] two = LandmarkFixtures.twoHands(LandmarkFixtures.digit(1), LandmarkFixtures.digit(5));
+        try (LandmarkRecorder recorder = new LandmarkRecorder(file, 8)) {
+            recorder.append(100, LandmarkFixtures.digit(3), 1);
+            recorder.append(133, HandLandmarks.newBuffer(), 0);
+            recorder.append(166, two, 2);
+        }
+        assertEquals(3, readBack(file));
+        assertEquals(Arrays.asList(100L, 133L, 166L), timestamps);
+        assertArrayEquals(Arrays.copyOf(LandmarkFixtures.digit(3), HandLandmarks.FLOATS_PER_HAND),
+                frames.get(0), 0f);
+        assertEquals(0, frames.get(1).length);
+        assertArrayEquals(two, frames.get(2), 0f);
+    }
+
+    @Test
+    public void fullRecording_keepsNewestFrames() throws IOException {
+        File file = folder.newFile("ring.bslr");
+        try (LandmarkRecorder recorder = new LandmarkRecorder(file, 4)) {
+            for (int frame = 0; frame < 10; frame++) {
+                recorder.append(frame, LandmarkFixtures.digit(frame), 1);
+            }
+            assertEquals(10, recorder.getWrittenCount());
+        }
+        assertEquals(4, readBack(file));
+        assertEquals(Arrays.asList(6L, 7L, 8L, 9L), timestamps);
+        assertEquals(LandmarkFixtures.digit(9)[HandLandmarks.y(0, HandLandmarks.INDEX_TIP)],
+                frames.get(3)[HandLandmarks.y(0, HandLandmarks.INDEX_TIP)], 0f);
+    }
+
+    @Test
+    public void reopenedRecording_continuesAfterLastFrame() throws IOException {
+        File file = folder.newFile("resume.bslr");
+        try (LandmarkRecorder recorder = new LandmarkRecorder(file, 4)) {
+            recorder.append(1, LandmarkFixtures.digit(1), 1);
+        }
+        try (LandmarkRecorder recorder = new LandmarkRecorder(file, 4)) {
+            assertEquals(1, recorder.getWrittenCount());
+            recorder.append(2, LandmarkFixtures.digit(2), 1);
+        }
+        assertEquals(2, readBack(file));
+
+        // a different capacity starts a new recording
+        try (LandmarkRecorder recorder = new LandmarkRecorder(file, 16)) {
+            assertEquals(0, recorder.getWrittenCount());
+        }
+        assertEquals(0, readBack(file));
+    }
+}
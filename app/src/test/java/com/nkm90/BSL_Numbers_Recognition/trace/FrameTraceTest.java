@@ -0,0 +1,72 @@
+package com.nkm90.BSL_Numbers_Recognition.trace;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link FrameTrace} levels, sampling and ring buffer.
+ */
+public class FrameTraceTest {
+
+    private FrameTrace trace;
+    private int infoEvent;
+    private int debugEvent;
+
+    @Before
+    public void setUp() {
+        trace = new FrameTrace(4);
+        infoEvent = trace.registerEvent(FrameTrace.INFO, "packet", "hands");
+        debugEvent = trace.registerEvent(FrameTrace.DEBUG, "palm", "hand", "x", "y");
+        trace.setLevel(FrameTrace.INFO);
+    }
+
+    @Test
+    public void eventsAboveLevel_areNotRecorded() {
+        trace.beginFrame();
+        trace.record(infoEvent, 10, 1);
+        trace.record(debugEvent, 10, 0, 0.5f, 0.25f, 0f);
+        assertEquals(1, trace.getRecordedCount());
+
+        trace.setLevel(FrameTrace.OFF);
+        trace.record(infoEvent, 11, 1);
+        assertEquals(1, trace.getRecordedCount());
+    }
+
+    @Test
+    public void sampling_recordsOneFrameEveryN() {
+        trace.setSampleEvery(3);
+        for (int frame = 0; frame < 9; frame++) {
+            trace.beginFrame();
+            trace.record(infoEvent, frame, 1);
+        }
+        assertEquals(3, trace.getRecordedCount());
+    }
+
+    @Test
+    public void dump_keepsNewestEventsInOrder() {
+        trace.setLevel(FrameTrace.DEBUG);
+        trace.beginFrame();
+        for (int i = 0; i < 6; i++) {
+            trace.record(infoEvent, i, i);
+        }
+        trace.record(debugEvent, 7, 1, 0.5f, 0.25f, 0f);
+
+        List<String> lines = new ArrayList<>();
+        trace.dump(lines::add);
+        assertEquals(4, lines.size());
+        assertEquals("[TS:3] packet hands=3", lines.get(0));
+        assertEquals("[TS:7] palm hand=1 x=0.5 y=0.25", lines.get(3));
+    }
+
+    @Test
+    public void parseLevel_acceptsManifestNames() {
+        assertEquals(FrameTrace.VERBOSE, FrameTrace.parseLevel("Verbose"));
+        assertEquals(FrameTrace.OFF, FrameTrace.parseLevel(null));
+        assertEquals(FrameTrace.OFF, FrameTrace.parseLevel("unknown"));
+    }
+}
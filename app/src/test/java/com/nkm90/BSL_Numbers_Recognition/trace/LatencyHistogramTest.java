@@ -0,0 +1,122 @@
+package com.nkm90.BSL_Numbers_Recognition.trace;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link LatencyHistogram} and {@link StageLatencies}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueOnce() {
+        for (int index = 0; index < LatencyHistogram.BUCKET_COUNT - 1; index++) {
+            long lower = LatencyHistogram.bucketLowerBound(index);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue("bucket " + index, upper > lower);
+            assertEquals(index, LatencyHistogram.bucketIndex(lower));
+            assertEquals(index, LatencyHistogram.bucketIndex(upper - 1));
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(upper));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void buckets_keepRelativeErrorSmall() {
+        for (int index = LatencyHistogram.SUB_BUCKETS; index < LatencyHistogram.BUCKET_COUNT - 1; index++) {
+            long lower = LatencyHistogram.bucketLowerBound(index);
+            long width = LatencyHistogram.bucketUpperBound(index) - lower;
+            assertTrue("bucket " + index, width * LatencyHistogram.SUB_BUCKETS <= lower);
+        }
+    }
+
+    @Test
+    public void percentiles_matchSortedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(7);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            // mostly around 30 ms with a long tail
+            long value = (long) (30_000 * Math.exp(random.nextGaussian() * 0.5));
+            values.add(value);
+            histogram.record(value);
+        }
+        values.sort(null);
+        assertEquals(values.size(), histogram.getCount());
+        assertEquals((long) values.get(values.size() - 1), histogram.getMax());
+        for (double fraction : new double[]{0.5, 0.95, 0.99}) {
+            long exact = values.get((int) Math.ceil(fraction * values.size()) - 1);
+            long estimate = histogram.getPercentile(fraction);
+            assertTrue(fraction + ": " + estimate + " vs " + exact,
+                    estimate >= exact && estimate <= exact + exact / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void emptyHistogram_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean());
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void valuesOutOfRange_areDroppedAndCounted() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-40_000);
+        histogram.record(LatencyHistogram.MAX_MICROS + 1);
+        histogram.record(LatencyHistogram.MAX_MICROS);
+        histogram.record(0);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(2, histogram.getDroppedCount());
+        assertEquals(LatencyHistogram.MAX_MICROS, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.5));
+        histogram.reset();
+        assertEquals(0, histogram.getDroppedCount());
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = t * 1000;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(base + i % 1000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(3999, histogram.getMax());
+    }
+
+    @Test
+    public void stages_areDumpedInOrder() {
+        StageLatencies latencies = new StageLatencies();
+        int decode = latencies.registerStage("decode");
+        int classify = latencies.registerStage("classify");
+        latencies.record(decode, 1500);
+        latencies.record(classify, 20);
+        List<String> lines = new ArrayList<>();
+        latencies.dump(lines::add);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1), lines.get(1).startsWith("decode") && lines.get(1).contains("1.50"));
+        assertTrue(lines.get(2), lines.get(2).startsWith("classify") && lines.get(2).contains("0.02"));
+        assertEquals(1, latencies.histogram(classify).getCount());
+    }
+}
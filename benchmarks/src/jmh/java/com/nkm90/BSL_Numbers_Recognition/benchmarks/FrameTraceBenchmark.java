@@ -0,0 +1,50 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.trace.FrameTrace;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the tracing done for every landmark packet, which replaced the debug String written
+ * to the log: one packet event and every landmark of one hand.
+ */
+@State(Scope.Thread)
+public class FrameTraceBenchmark {
+
+    @Param({"off", "info", "verbose"})
+    public String level;
+
+    private final FrameTrace trace = new FrameTrace(2048);
+    private int packetEvent;
+    private int landmarkEvent;
+    private float[] landmarks;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        packetEvent = trace.registerEvent(FrameTrace.INFO, "packet", "hands");
+        landmarkEvent = trace.registerEvent(FrameTrace.VERBOSE, "landmark", "index", "x", "y", "z");
+        trace.setLevel(FrameTrace.parseLevel(level));
+        landmarks = LandmarkFixtures.digit(GestureCodes.FIVE);
+    }
+
+    @Benchmark
+    public long traceFrame() {
+        trace.beginFrame();
+        trace.record(packetEvent, ++timestamp, 1);
+        if (trace.isEnabled(landmarkEvent)) {
+            for (int i = 0; i < HandLandmarks.LANDMARK_COUNT; i++) {
+                trace.record(landmarkEvent, timestamp, i, landmarks[HandLandmarks.x(0, i)],
+                        landmarks[HandLandmarks.y(0, i)], landmarks[HandLandmarks.z(0, i)]);
+            }
+        }
+        return timestamp;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.IncrementalFingerStates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the classification of one frame, which is the Java work done for every landmark
+ * packet received from MediaPipe.
+ */
+@State(Scope.Thread)
+public class GestureEngineBenchmark {
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "noHands", "twoHands"})
+    public String frame;
+
+    private final GestureEngine engine = GestureRuleFixtures.defaultEngine();
+    private final float[] features = HandFeatures.newVector();
+    private final IncrementalFingerStates states = new IncrementalFingerStates(0.03f);
+    private LandmarkFrame landmarkFrame;
+
+    @Setup
+    public void setUp() {
+        landmarkFrame = LandmarkFrame.named(frame);
+    }
+
+    @Benchmark
+    public int classify() {
+        return engine.classify(landmarkFrame.landmarks, landmarkFrame.handCount);
+    }
+
+    @Benchmark
+    public float[] extractFeatures() {
+        HandFeatures.extract(landmarkFrame.landmarks, 0, features);
+        return features;
+    }
+
+    /**
+     * Works out the finger states of a held hand, which keeps the fingers that cannot give the
+     * confidence and measures no joint angle.
+     */
+    @Benchmark
+    public int extractFingerStates() {
+        states.extract(landmarkFrame.landmarks, 0, features);
+        return states.getMask();
+    }
+}
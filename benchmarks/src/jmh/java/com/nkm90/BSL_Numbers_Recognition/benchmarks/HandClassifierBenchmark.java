@@ -0,0 +1,106 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MlpClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Compares the time taken to classify one frame by the rule table, by a multilayer perceptron of
+ * the size trained by the evaluator and by the nearest poses of a template library. The weights of
+ * the perceptron are random and the poses are the fixtures tilted and shaken at random, as only
+ * their time is measured here; their accuracy is measured by the evaluator over a labelled corpus.
+ */
+@State(Scope.Thread)
+public class HandClassifierBenchmark {
+
+    @Param({"rules", "mlp", "templates"})
+    public String classifier;
+
+    @Param({"32"})
+    public int hiddenUnits;
+
+    @Param({"10000"})
+    public int templates;
+
+    @Param({"1", "5", "7", "twoHands"})
+    public String frame;
+
+    private GestureEngine engine;
+    private LandmarkFrame landmarkFrame;
+
+    @Setup
+    public void setUp() {
+        HandClassifier handClassifier;
+        switch (classifier) {
+            case "mlp":
+                handClassifier = randomMlp(hiddenUnits);
+                break;
+            case "templates":
+                handClassifier = new TemplateClassifier(randomTemplates(templates), 5, 1.5f);
+                break;
+            default:
+                handClassifier = new RuleClassifier(GestureRuleFixtures.defaultRules());
+        }
+        engine = new GestureEngine(handClassifier);
+        landmarkFrame = LandmarkFrame.named(frame);
+    }
+
+    @Benchmark
+    public int classify() {
+        return engine.classify(landmarkFrame.landmarks, landmarkFrame.handCount);
+    }
+
+    private static MlpClassifier randomMlp(int hiddenUnits) {
+        Random random = new Random(90);
+        int inputs = HandFeatures.PALM_SIZE;
+        float[] means = new float[inputs];
+        float[] scales = new float[inputs];
+        for (int i = 0; i < inputs; i++) {
+            scales[i] = 1f;
+        }
+        return new MlpClassifier(0.6f, means, scales,
+                new float[][]{randomWeights(random, hiddenUnits * inputs),
+                        randomWeights(random, MlpClassifier.OUTPUT_COUNT * hiddenUnits)},
+                new float[][]{new float[hiddenUnits], new float[MlpClassifier.OUTPUT_COUNT]});
+    }
+
+    private static float[] randomWeights(Random random, int count) {
+        float[] weights = new float[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        return weights;
+    }
+
+    private static TemplateStore randomTemplates(int count) {
+        Random random = new Random(90);
+        TemplateStore store = new TemplateStore(count);
+        float[] features = HandFeatures.newVector();
+        for (int i = 0; i < count; i++) {
+            int digit = i % GestureCodes.DIGIT_COUNT;
+            float[] hand = LandmarkFixtures.rotate(LandmarkFixtures.digit(digit), random.nextInt(61) - 30);
+            for (int value = 0; value < 2 * HandFeatures.FINGER_COUNT * 3; value++) {
+                hand[random.nextInt(hand.length / 2)] += (float) random.nextGaussian() * 0.01f;
+            }
+            HandFeatures.extract(hand, 0, features);
+            store.add(digit, features);
+        }
+        store.buildIndex();
+        return store;
+    }
+}
@@ -0,0 +1,37 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+
+/**
+ * Frames used as input by the benchmarks, one per BSL digit plus a frame without hands and a
+ * frame with two hands. The names are the values accepted by the {@code frame} parameters: the
+ * digit itself, "noHands" and "twoHands".
+ */
+final class LandmarkFrame {
+
+    final float[] landmarks;
+    final int handCount;
+
+    private LandmarkFrame(float[] landmarks, int handCount) {
+        this.landmarks = landmarks;
+        this.handCount = handCount;
+    }
+
+    /**
+     * @param name name of the frame
+     * @return the frame for that name
+     */
+    static LandmarkFrame named(String name) {
+        switch (name) {
+            case "noHands":
+                return new LandmarkFrame(HandLandmarks.newBuffer(), 0);
+            case "twoHands":
+                return new LandmarkFrame(LandmarkFixtures.twoHands(
+                        LandmarkFixtures.noGesture(), LandmarkFixtures.digit(GestureCodes.FIVE)), 2);
+            default:
+                return new LandmarkFrame(LandmarkFixtures.digit(Integer.parseInt(name)), 1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks.*;
+
+/**
+ * Measures the geometry helpers with the points the rules use: the index tip against the wrist
+ * for the distance, and thumb tip, thumb base and index tip for the angle of the seven.
+ */
+@State(Scope.Thread)
+public class LandmarkGeometryBenchmark {
+
+    private float[] landmarks;
+
+    @Setup
+    public void setUp() {
+        landmarks = LandmarkFixtures.digit(GestureCodes.SEVEN);
+    }
+
+    @Benchmark
+    public double euclideanDistance() {
+        return LandmarkGeometry.getEuclideanDistanceAB(
+                landmarks[x(0, INDEX_TIP)], landmarks[y(0, INDEX_TIP)],
+                landmarks[x(0, WRIST)], landmarks[y(0, WRIST)]);
+    }
+
+    @Benchmark
+    public double squaredDistance() {
+        return LandmarkGeometry.getSquaredDistanceAB(
+                landmarks[x(0, INDEX_TIP)], landmarks[y(0, INDEX_TIP)],
+                landmarks[x(0, WRIST)], landmarks[y(0, WRIST)]);
+    }
+
+    @Benchmark
+    public int angleInDegrees() {
+        return LandmarkGeometry.radianToDegree(LandmarkGeometry.getAngleABC(
+                landmarks[x(0, THUMB_TIP)], landmarks[y(0, THUMB_TIP)],
+                landmarks[x(0, THUMB_MCP)], landmarks[y(0, THUMB_MCP)],
+                landmarks[x(0, INDEX_TIP)], landmarks[y(0, INDEX_TIP)]));
+    }
+}
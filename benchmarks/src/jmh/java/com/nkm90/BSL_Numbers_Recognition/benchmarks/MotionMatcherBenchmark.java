@@ -0,0 +1,65 @@
+package com.nkm90.BSL_Numbers_Recognition.benchmarks;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionFrames;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MotionMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Measures the time taken by the {@link MotionMatcher} to match one frame of the stream against
+ * a set of motion templates. The templates are random walks and the stream either replays them
+ * with noise, so most cells are compared, or stays far from them, so most are abandoned.
+ */
+@State(Scope.Thread)
+public class MotionMatcherBenchmark {
+
+    @Param({"20"})
+    public int templates;
+
+    @Param({"60"})
+    public int templateFrames;
+
+    @Param({"near", "far"})
+    public String stream;
+
+    private MotionMatcher matcher;
+    private float[][] frames;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(19);
+        int dimensions = MotionFrames.DIMENSIONS;
+        matcher = new MotionMatcher(dimensions, 10, 0.35f);
+        float[][] walks = new float[templates][];
+        for (int template = 0; template < templates; template++) {
+            float[] walk = new float[templateFrames * dimensions];
+            for (int i = dimensions; i < walk.length; i++) {
+                walk[i] = walk[i - dimensions] + (float) random.nextGaussian() * 0.1f;
+            }
+            walks[template] = walk;
+            matcher.addTemplate(10 + template, walk, templateFrames);
+        }
+        frames = new float[1024][dimensions];
+        for (int frame = 0; frame < frames.length; frame++) {
+            float[] walk = walks[frame / templateFrames % templates];
+            for (int d = 0; d < dimensions; d++) {
+                float value = walk[frame % templateFrames * dimensions + d] + (float) random.nextGaussian() * 0.02f;
+                frames[frame][d] = "far".equals(stream) ? value + 10f : value;
+            }
+        }
+    }
+
+    @Benchmark
+    public int onFrame() {
+        float[] frame = frames[next];
+        next = (next + 1) & (frames.length - 1);
+        return matcher.onFrame(frame);
+    }
+}
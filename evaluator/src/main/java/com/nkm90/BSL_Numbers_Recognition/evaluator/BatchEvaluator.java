@@ -0,0 +1,93 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Classifies every frame of a {@link LandmarkBatch} with fork/join, splitting the frames in
+ * ranges until they are small enough for one worker. Every worker has its own engine and landmark
+ * buffer, and the confusion matrices of the ranges are added together at the end.
+ * <p>
+ * The frames of a corpus are not a stream, so the engine forgets the hands it followed before
+ * every frame: the number of a frame does not depend on the frames before it, nor on how the
+ * frames were split.
+ */
+public final class BatchEvaluator {
+
+    // Frames below which a range is classified instead of being split again
+    private static final int MIN_FRAMES_PER_TASK = 2048;
+
+    private final Supplier<HandClassifier> classifiers;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param rules table the frames are classified with
+     * @param pool pool running the workers
+     */
+    public BatchEvaluator(GestureRuleTable rules, ForkJoinPool pool) {
+        this(() -> new RuleClassifier(rules), pool);
+    }
+
+    /**
+     * @param classifiers creates the classifier of every worker
+     * @param pool pool running the workers
+     */
+    public BatchEvaluator(Supplier<HandClassifier> classifiers, ForkJoinPool pool) {
+        this.classifiers = classifiers;
+        this.pool = pool;
+    }
+
+    /**
+     * @param batch frames to classify
+     * @return how every frame was classified compared to its label
+     */
+    public ConfusionMatrix evaluate(LandmarkBatch batch) {
+        return pool.invoke(new RangeTask(batch, 0, batch.size()));
+    }
+
+    private final class RangeTask extends RecursiveTask<ConfusionMatrix> {
+        private static final long serialVersionUID = 1L;
+
+        private final LandmarkBatch batch;
+        private final int from;
+        private final int to;
+
+        RangeTask(LandmarkBatch batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ConfusionMatrix compute() {
+            if (to - from <= MIN_FRAMES_PER_TASK) {
+                return classifyRange();
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(batch, from, middle);
+            left.fork();
+            ConfusionMatrix matrix = new RangeTask(batch, middle, to).compute();
+            matrix.merge(left.join());
+            return matrix;
+        }
+
+        private ConfusionMatrix classifyRange() {
+            GestureEngine engine = new GestureEngine(classifiers.get());
+            float[] landmarks = HandLandmarks.newBuffer();
+            ConfusionMatrix matrix = new ConfusionMatrix();
+            for (int frame = from; frame < to; frame++) {
+                int handCount = batch.copyFrame(frame, landmarks);
+                engine.reset();
+                matrix.add(batch.label(frame), engine.classify(landmarks, handCount));
+            }
+            return matrix;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+
+/**
+ * Counts how each expected gesture code was classified. Rows are the expected codes and columns
+ * the codes returned, both going from {@link GestureCodes#MIN_CODE} to
+ * {@link GestureCodes#MAX_CODE}.
+ */
+public final class ConfusionMatrix {
+
+    static final int CODE_COUNT = GestureCodes.MAX_CODE - GestureCodes.MIN_CODE + 1;
+
+    private final long[] counts = new long[CODE_COUNT * CODE_COUNT];
+
+    public void add(int expected, int actual) {
+        counts[index(expected, actual)]++;
+    }
+
+    /**
+     * Adds every count of another matrix to this one.
+     */
+    public void merge(ConfusionMatrix other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public long count(int expected, int actual) {
+        return counts[index(expected, actual)];
+    }
+
+    public long total() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long correct() {
+        long correct = 0;
+        for (int code = GestureCodes.MIN_CODE; code <= GestureCodes.MAX_CODE; code++) {
+            correct += count(code, code);
+        }
+        return correct;
+    }
+
+    /**
+     * @return fraction of frames classified as expected, 0 when there are no frames
+     */
+    public double accuracy() {
+        long total = total();
+        return total == 0 ? 0 : (double) correct() / total;
+    }
+
+    /**
+     * Formats the matrix as a table, one row per expected code that appears on the corpus.
+     *
+     * @return the table as text
+     */
+    public String format() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-10s", "expected"));
+        for (int actual = GestureCodes.MIN_CODE; actual <= GestureCodes.MAX_CODE; actual++) {
+            table.append(String.format("%9s", name(actual)));
+        }
+        table.append(String.format("%10s%n", "recall"));
+        for (int expected = GestureCodes.MIN_CODE; expected <= GestureCodes.MAX_CODE; expected++) {
+            long row = 0;
+            for (int actual = GestureCodes.MIN_CODE; actual <= GestureCodes.MAX_CODE; actual++) {
+                row += count(expected, actual);
+            }
+            if (row == 0) {
+                continue;
+            }
+            table.append(String.format("%-10s", name(expected)));
+            for (int actual = GestureCodes.MIN_CODE; actual <= GestureCodes.MAX_CODE; actual++) {
+                table.append(String.format("%9d", count(expected, actual)));
+            }
+            table.append(String.format("%9.1f%%%n", 100.0 * count(expected, expected) / row));
+        }
+        return table.toString();
+    }
+
+    /**
+     * @return the name used for a gesture code on the corpus and the reports
+     */
+    static String name(int code) {
+        switch (code) {
+            case GestureCodes.NO_HANDS: return "no_hands";
+            case GestureCodes.NO_GESTURE: return "none";
+            default: return Integer.toString(code);
+        }
+    }
+
+    private static int index(int expected, int actual) {
+        return (expected - GestureCodes.MIN_CODE) * CODE_COUNT + (actual - GestureCodes.MIN_CODE);
+    }
+}
@@ -0,0 +1,149 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Reads a corpus of labelled landmark frames into a {@link LandmarkBatch}. Every frame has its
+ * label, which is a number from 0 to 10, "none" for a hand that does not sign a number or "no_hands", followed
+ * by the X, Y and Z values of the 21 landmarks of each hand, zero, one or two hands per frame.
+ * <p>
+ * CSV files have one frame per line, with the label on the first column and the values after it.
+ * A first line starting with "label" is taken as a header, and lines starting with "#" are
+ * skipped. JSON files hold an array of objects with a "label" and a "landmarks" array, which can
+ * either be flat or nested per hand and per landmark.
+ */
+public final class CorpusReader {
+
+    private CorpusReader() {
+    }
+
+    /**
+     * @param path CSV or JSON file, chosen by its extension
+     * @return the frames of the file
+     * @throws IOException when the file cannot be read
+     * @throws IllegalArgumentException when a frame is not valid
+     */
+    public static LandmarkBatch read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                return readJson(reader);
+            }
+            return readCsv(reader);
+        }
+    }
+
+    public static LandmarkBatch readCsv(Reader reader) throws IOException {
+        LandmarkBatch batch = new LandmarkBatch(1024);
+        float[] landmarks = HandLandmarks.newBuffer();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || lineNumber == 1 && line.startsWith("label")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            try {
+                int values = fields.length - 1;
+                checkValueCount(values);
+                for (int i = 0; i < values; i++) {
+                    landmarks[i] = Float.parseFloat(fields[i + 1].trim());
+                }
+                batch.add(parseLabel(fields[0].trim()), landmarks, values / HandLandmarks.FLOATS_PER_HAND);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid frame on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return batch;
+    }
+
+    public static LandmarkBatch readJson(Reader reader) throws IOException {
+        LandmarkBatch batch = new LandmarkBatch(1024);
+        float[] landmarks = HandLandmarks.newBuffer();
+        JsonReader json = new JsonReader(reader);
+        json.beginArray();
+        int frame = 0;
+        while (json.hasNext()) {
+            Integer label = null;
+            int values = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (name.equals("label")) {
+                    label = parseLabel(json.nextString());
+                } else if (name.equals("landmarks")) {
+                    values = readValues(json, landmarks, 0);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (label == null) {
+                throw new IllegalArgumentException("Frame " + frame + " has no label");
+            }
+            checkValueCount(values);
+            batch.add(label, landmarks, values / HandLandmarks.FLOATS_PER_HAND);
+            frame++;
+        }
+        json.endArray();
+        return batch;
+    }
+
+    /**
+     * Reads the numbers of a possibly nested array in order.
+     *
+     * @return position after the last value read
+     */
+    private static int readValues(JsonReader json, float[] landmarks, int position) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() == JsonToken.BEGIN_ARRAY) {
+                position = readValues(json, landmarks, position);
+            } else {
+                if (position == landmarks.length) {
+                    throw new IllegalArgumentException("Too many landmark values");
+                }
+                landmarks[position++] = (float) json.nextDouble();
+            }
+        }
+        json.endArray();
+        return position;
+    }
+
+    private static void checkValueCount(int values) {
+        if (values % HandLandmarks.FLOATS_PER_HAND != 0
+                || values / HandLandmarks.FLOATS_PER_HAND > HandLandmarks.MAX_HANDS) {
+            throw new IllegalArgumentException("expected " + HandLandmarks.FLOATS_PER_HAND
+                    + " values per hand, found " + values);
+        }
+    }
+
+    /**
+     * @param label a number, "none" or "no_hands"
+     * @return the gesture code for the label
+     */
+    static int parseLabel(String label) {
+        switch (label) {
+            case "none": return GestureCodes.NO_GESTURE;
+            case "no_hands": return GestureCodes.NO_HANDS;
+        }
+        int code = Integer.parseInt(label);
+        if (!GestureCodes.isNumber(code)) {
+            throw new IllegalArgumentException("unknown label " + label);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,220 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MlpClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Command line entry point of the evaluator:
+ * <pre>
+ * evaluator [--rules gesture_rules.txt | --model model.bin | --train model.bin [--hidden N] [--epochs N]
+ *            | --templates templates.bin | --build-templates templates.bin]
+ *           [--threads N] [--repeat N] corpus.csv|corpus.json
+ * </pre>
+ * It prints the accuracy, the confusion matrix per digit and the frames classified per second.
+ * The rules default to the rule file shipped with the app. With --model the frames are classified
+ * with a model written by --train, which trains an {@link MlpClassifier} on the corpus, writes it
+ * and then evaluates it. In the same way --build-templates stores every hand of the corpus as a
+ * reference pose of a {@link TemplateStore}, and --templates classifies with the nearest poses.
+ */
+public final class EvaluatorMain {
+
+    private static final String DEFAULT_RULES = "/gesture_rules.txt";
+    private static final String USAGE =
+            "usage: evaluator [--rules gesture_rules.txt | --model model.bin | --train model.bin [--hidden N] [--epochs N]"
+                    + " | --templates templates.bin | --build-templates templates.bin]"
+                    + " [--threads N] [--repeat N] corpus.csv|corpus.json";
+    private static final int DEFAULT_HIDDEN_UNITS = 32;
+    private static final int DEFAULT_EPOCHS = 30;
+    private static final float LEARNING_RATE = 0.02f;
+    private static final float MIN_CONFIDENCE = 0.6f;
+    private static final long TRAINING_SEED = 90;
+    // Same values as the app
+    private static final int TEMPLATE_NEIGHBOURS = 5;
+    private static final float TEMPLATE_MAX_DISTANCE = 1.5f;
+
+    private EvaluatorMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path rulesPath = null;
+        Path modelPath = null;
+        Path trainPath = null;
+        Path templatesPath = null;
+        Path buildTemplatesPath = null;
+        int hidden = DEFAULT_HIDDEN_UNITS;
+        int epochs = DEFAULT_EPOCHS;
+        Path corpusPath = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int repeat = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rules":
+                    rulesPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--model":
+                    modelPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--train":
+                    trainPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--templates":
+                    templatesPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--build-templates":
+                    buildTemplatesPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--hidden":
+                    hidden = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--epochs":
+                    epochs = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--repeat":
+                    repeat = Integer.parseInt(argument(args, ++i));
+                    break;
+                default:
+                    corpusPath = Paths.get(args[i]);
+            }
+        }
+        if (corpusPath == null) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        LandmarkBatch batch = CorpusReader.read(corpusPath);
+        Supplier<HandClassifier> classifiers;
+        if (trainPath != null) {
+            MlpClassifier model = new MlpTrainer(hidden, epochs, LEARNING_RATE, MIN_CONFIDENCE, TRAINING_SEED)
+                    .train(batch);
+            write(model.write(), trainPath);
+            System.out.printf("model:      %s, %d hidden units, %d epochs%n", trainPath, hidden, epochs);
+            classifiers = model::copy;
+        } else if (modelPath != null) {
+            classifiers = readModel(modelPath)::copy;
+            System.out.printf("model:      %s%n", modelPath);
+        } else if (buildTemplatesPath != null || templatesPath != null) {
+            TemplateStore templates;
+            if (buildTemplatesPath != null) {
+                templates = buildTemplates(batch);
+                write(templates.write(), buildTemplatesPath);
+            } else {
+                templates = TemplateStore.read(map(templatesPath));
+            }
+            System.out.printf("templates:  %s, %d poses%n",
+                    buildTemplatesPath != null ? buildTemplatesPath : templatesPath, templates.size());
+            classifiers = new TemplateClassifier(templates, TEMPLATE_NEIGHBOURS, TEMPLATE_MAX_DISTANCE)::copy;
+        } else {
+            GestureRuleTable rules = loadRules(rulesPath);
+            classifiers = () -> new RuleClassifier(rules);
+        }
+        BatchEvaluator evaluator = new BatchEvaluator(classifiers, new ForkJoinPool(threads));
+
+        // The first pass also warms up the JIT, the throughput is taken from the fastest pass
+        ConfusionMatrix matrix = null;
+        long bestNanos = Long.MAX_VALUE;
+        for (int pass = 0; pass < repeat; pass++) {
+            long start = System.nanoTime();
+            matrix = evaluator.evaluate(batch);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("frames:     %d%n", matrix.total());
+        System.out.printf("accuracy:   %.2f%% (%d correct)%n", 100 * matrix.accuracy(), matrix.correct());
+        System.out.printf("throughput: %.0f frames/s on %d threads, %.0f ns per frame and thread%n",
+                batch.size() / (bestNanos / 1e9), threads, (double) bestNanos * threads / batch.size());
+        System.out.println();
+        System.out.print(matrix.format());
+    }
+
+    /**
+     * @param rulesPath rule file, or null for the rule file of the app
+     * @return the compiled rule table
+     */
+    static GestureRuleTable loadRules(Path rulesPath) throws IOException {
+        InputStream input = rulesPath == null
+                ? EvaluatorMain.class.getResourceAsStream(DEFAULT_RULES)
+                : Files.newInputStream(rulesPath);
+        if (input == null) {
+            throw new IOException("Missing " + DEFAULT_RULES + " on the classpath");
+        }
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            return GestureRuleTable.parse(reader);
+        }
+    }
+
+    /**
+     * Stores the first hand of every frame of a corpus as a reference pose, skipping the frames
+     * without hands and the ones labelled with a number above nine, which needs both hands.
+     *
+     * @param batch labelled frames
+     * @return the poses with their tree built
+     */
+    static TemplateStore buildTemplates(LandmarkBatch batch) {
+        TemplateStore templates = new TemplateStore(batch.size());
+        float[] landmarks = HandLandmarks.newBuffer();
+        float[] features = HandFeatures.newVector();
+        for (int frame = 0; frame < batch.size(); frame++) {
+            int label = batch.label(frame);
+            if (batch.copyFrame(frame, landmarks) > 0 && label != GestureCodes.NO_HANDS && label <= GestureCodes.NINE) {
+                HandFeatures.extract(landmarks, 0, features);
+                templates.add(label, features);
+            }
+        }
+        templates.buildIndex();
+        return templates;
+    }
+
+    /**
+     * Maps a model file into memory and reads it, like the app does with its asset.
+     */
+    static MlpClassifier readModel(Path path) throws IOException {
+        return MlpClassifier.read(map(path));
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static void write(ByteBuffer buffer, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
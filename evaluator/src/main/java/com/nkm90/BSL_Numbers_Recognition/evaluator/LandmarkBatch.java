@@ -0,0 +1,88 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.util.Arrays;
+
+/**
+ * Labelled landmark frames stored as a structure of arrays: every coordinate has its own array,
+ * indexed by frame, hand and landmark, so a range of frames is read sequentially by the worker
+ * classifying it.
+ */
+public final class LandmarkBatch {
+
+    private static final int POINTS_PER_FRAME = HandLandmarks.MAX_HANDS * HandLandmarks.LANDMARK_COUNT;
+
+    private float[] xs;
+    private float[] ys;
+    private float[] zs;
+    private int[] handCounts;
+    private int[] labels;
+    private int size;
+
+    public LandmarkBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        xs = new float[capacity * POINTS_PER_FRAME];
+        ys = new float[capacity * POINTS_PER_FRAME];
+        zs = new float[capacity * POINTS_PER_FRAME];
+        handCounts = new int[capacity];
+        labels = new int[capacity];
+    }
+
+    /**
+     * Appends a frame.
+     *
+     * @param label expected gesture code
+     * @param landmarks landmark buffer laid out as described on {@link HandLandmarks}
+     * @param handCount number of hands on the buffer
+     */
+    public void add(int label, float[] landmarks, int handCount) {
+        if (size == labels.length) {
+            grow();
+        }
+        int base = size * POINTS_PER_FRAME;
+        for (int point = 0; point < handCount * HandLandmarks.LANDMARK_COUNT; point++) {
+            xs[base + point] = landmarks[point * HandLandmarks.STRIDE];
+            ys[base + point] = landmarks[point * HandLandmarks.STRIDE + 1];
+            zs[base + point] = landmarks[point * HandLandmarks.STRIDE + 2];
+        }
+        handCounts[size] = handCount;
+        labels[size] = label;
+        size++;
+    }
+
+    /**
+     * Copies one frame back into a landmark buffer.
+     *
+     * @param frame index of the frame
+     * @param landmarks buffer to fill, laid out as described on {@link HandLandmarks}
+     * @return number of hands of the frame
+     */
+    public int copyFrame(int frame, float[] landmarks) {
+        int base = frame * POINTS_PER_FRAME;
+        int points = handCounts[frame] * HandLandmarks.LANDMARK_COUNT;
+        for (int point = 0; point < points; point++) {
+            landmarks[point * HandLandmarks.STRIDE] = xs[base + point];
+            landmarks[point * HandLandmarks.STRIDE + 1] = ys[base + point];
+            landmarks[point * HandLandmarks.STRIDE + 2] = zs[base + point];
+        }
+        return handCounts[frame];
+    }
+
+    public int label(int frame) {
+        return labels[frame];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = labels.length * 2;
+        xs = Arrays.copyOf(xs, capacity * POINTS_PER_FRAME);
+        ys = Arrays.copyOf(ys, capacity * POINTS_PER_FRAME);
+        zs = Arrays.copyOf(zs, capacity * POINTS_PER_FRAME);
+        handCounts = Arrays.copyOf(handCounts, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+    }
+}
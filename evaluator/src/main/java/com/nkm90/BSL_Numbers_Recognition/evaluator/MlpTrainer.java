@@ -0,0 +1,194 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandFeatures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MlpClassifier;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains an {@link MlpClassifier} with one hidden layer over the labelled frames of a corpus, with
+ * plain stochastic gradient descent on the cross entropy. Only the first hand of every frame is
+ * used, frames without hands or labelled with a number above nine, which needs both hands, are
+ * skipped, and frames labelled "none" train the output for a hand that does not sign a number.
+ * <p>
+ * The inputs are every feature but the palm size, which depends on the distance to the camera.
+ * They are standardised with the mean and deviation of the corpus, which are stored on the model.
+ */
+public final class MlpTrainer {
+
+    /** Values of the feature vector used as inputs. */
+    static final int INPUT_COUNT = HandFeatures.PALM_SIZE;
+
+    private final int hiddenCount;
+    private final int epochs;
+    private final float learningRate;
+    private final float minConfidence;
+    private final long seed;
+
+    /**
+     * @param hiddenCount units of the hidden layer
+     * @param epochs passes over the corpus
+     * @param learningRate step of the first epoch, it decreases linearly down to a tenth of it
+     * @param minConfidence minimum confidence stored on the model
+     * @param seed seed of the initial weights and of the order of the frames
+     */
+    public MlpTrainer(int hiddenCount, int epochs, float learningRate, float minConfidence, long seed) {
+        this.hiddenCount = hiddenCount;
+        this.epochs = epochs;
+        this.learningRate = learningRate;
+        this.minConfidence = minConfidence;
+        this.seed = seed;
+    }
+
+    /**
+     * @param batch labelled frames
+     * @return the trained classifier
+     * @throws IllegalArgumentException when the corpus has no frame with hands
+     */
+    public MlpClassifier train(LandmarkBatch batch) {
+        float[] landmarks = HandLandmarks.newBuffer();
+        float[] features = HandFeatures.newVector();
+        float[][] inputs = new float[batch.size()][];
+        int[] classes = new int[batch.size()];
+        int count = 0;
+        for (int frame = 0; frame < batch.size(); frame++) {
+            int label = batch.label(frame);
+            if (batch.copyFrame(frame, landmarks) == 0 || label == GestureCodes.NO_HANDS || label > GestureCodes.NINE) {
+                continue;
+            }
+            HandFeatures.extract(landmarks, 0, features);
+            inputs[count] = Arrays.copyOf(features, INPUT_COUNT);
+            classes[count] = GestureCodes.isDigit(label) ? label : GestureCodes.DIGIT_COUNT;
+            count++;
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No frames with hands to train with");
+        }
+
+        float[] means = new float[INPUT_COUNT];
+        float[] scales = new float[INPUT_COUNT];
+        standardise(inputs, count, means, scales);
+
+        Random random = new Random(seed);
+        int outputCount = MlpClassifier.OUTPUT_COUNT;
+        float[] hiddenWeights = initialWeights(random, hiddenCount, INPUT_COUNT);
+        float[] hiddenBiases = new float[hiddenCount];
+        float[] outputWeights = initialWeights(random, outputCount, hiddenCount);
+        float[] outputBiases = new float[outputCount];
+
+        float[] hidden = new float[hiddenCount];
+        float[] hiddenGradient = new float[hiddenCount];
+        float[] outputGradient = new float[outputCount];
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            float rate = learningRate * (1f - 0.9f * epoch / Math.max(1, epochs - 1));
+            shuffle(order, random);
+            for (int sample : order) {
+                float[] x = inputs[sample];
+                dense(hiddenWeights, hiddenBiases, x, hidden, true);
+                dense(outputWeights, outputBiases, hidden, outputGradient, false);
+
+                // Gradient of the cross entropy over the softmax: probabilities minus the label
+                softmax(outputGradient);
+                outputGradient[classes[sample]] -= 1f;
+                for (int h = 0; h < hiddenCount; h++) {
+                    float sum = 0f;
+                    if (hidden[h] > 0f) {
+                        for (int o = 0; o < outputCount; o++) {
+                            sum += outputWeights[o * hiddenCount + h] * outputGradient[o];
+                        }
+                    }
+                    hiddenGradient[h] = sum;
+                }
+                step(outputWeights, outputBiases, outputGradient, hidden, rate);
+                step(hiddenWeights, hiddenBiases, hiddenGradient, x, rate);
+            }
+        }
+        return new MlpClassifier(minConfidence, means, scales,
+                new float[][]{hiddenWeights, outputWeights}, new float[][]{hiddenBiases, outputBiases});
+    }
+
+    private static void standardise(float[][] inputs, int count, float[] means, float[] scales) {
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            double sum = 0;
+            for (int sample = 0; sample < count; sample++) {
+                sum += inputs[sample][i];
+            }
+            double mean = sum / count;
+            double squares = 0;
+            for (int sample = 0; sample < count; sample++) {
+                double difference = inputs[sample][i] - mean;
+                squares += difference * difference;
+            }
+            double deviation = Math.sqrt(squares / count);
+            means[i] = (float) mean;
+            // Inputs that never change, like the wrist, are left out
+            scales[i] = deviation < 1e-6 ? 0f : (float) (1 / deviation);
+            for (int sample = 0; sample < count; sample++) {
+                inputs[sample][i] = (inputs[sample][i] - means[i]) * scales[i];
+            }
+        }
+    }
+
+    private static float[] initialWeights(Random random, int outputs, int inputs) {
+        float[] weights = new float[outputs * inputs];
+        double deviation = Math.sqrt(2.0 / inputs);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (float) (random.nextGaussian() * deviation);
+        }
+        return weights;
+    }
+
+    private static void dense(float[] weights, float[] biases, float[] in, float[] out, boolean relu) {
+        for (int o = 0, row = 0; o < out.length; o++, row += in.length) {
+            float sum = biases[o];
+            for (int i = 0; i < in.length; i++) {
+                sum += weights[row + i] * in[i];
+            }
+            out[o] = relu && sum < 0f ? 0f : sum;
+        }
+    }
+
+    private static void softmax(float[] scores) {
+        float max = scores[0];
+        for (float score : scores) {
+            max = Math.max(max, score);
+        }
+        float total = 0f;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = (float) Math.exp(scores[i] - max);
+            total += scores[i];
+        }
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] /= total;
+        }
+    }
+
+    private static void step(float[] weights, float[] biases, float[] gradient, float[] in, float rate) {
+        for (int o = 0, row = 0; o < gradient.length; o++, row += in.length) {
+            float g = gradient[o] * rate;
+            if (g == 0f) {
+                continue;
+            }
+            for (int i = 0; i < in.length; i++) {
+                weights[row + i] -= g * in[i];
+            }
+            biases[o] -= g;
+        }
+    }
+
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.TemplateStore;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the corpus readers and the fork/join evaluation.
+ */
+public class BatchEvaluatorTest {
+
+    @Test
+    public void fixtures_areAllClassifiedAsLabelled() throws IOException {
+        LandmarkBatch batch = new LandmarkBatch(4);
+        for (int i = 0; i < 10_000; i++) {
+            int digit = i % GestureCodes.DIGIT_COUNT;
+            batch.add(digit, LandmarkFixtures.digit(digit), 1);
+        }
+        batch.add(GestureCodes.NO_HANDS, HandLandmarks.newBuffer(), 0);
+
+        ConfusionMatrix matrix = new BatchEvaluator(EvaluatorMain.loadRules(null), new ForkJoinPool(4))
+                .evaluate(batch);
+        assertEquals(10_001, matrix.total());
+        assertEquals(1.0, matrix.accuracy(), 0);
+        assertEquals(1000, matrix.count(7, 7));
+    }
+
+    @Test
+    public void wrongLabel_isCountedOnItsRow() throws IOException {
+        LandmarkBatch batch = new LandmarkBatch(1);
+        batch.add(4, LandmarkFixtures.digit(3), 1);
+        ConfusionMatrix matrix = new BatchEvaluator(EvaluatorMain.loadRules(null), ForkJoinPool.commonPool())
+                .evaluate(batch);
+        assertEquals(1, matrix.count(4, 3));
+        assertEquals(0.0, matrix.accuracy(), 0);
+    }
+
+    @Test
+    public void twoHandFrames_doNotDependOnTheFramesBefore() throws IOException {
+        float[] three = LandmarkFixtures.digit(GestureCodes.THREE);
+        float[] twoHands = HandLandmarks.newBuffer();
+        System.arraycopy(LandmarkFixtures.mirror(LandmarkFixtures.digit(GestureCodes.TWO)), 0, twoHands, 0,
+                HandLandmarks.FLOATS_PER_HAND);
+        System.arraycopy(three, 0, twoHands, HandLandmarks.FLOATS_PER_HAND, HandLandmarks.FLOATS_PER_HAND);
+        BatchEvaluator evaluator = new BatchEvaluator(EvaluatorMain.loadRules(null), new ForkJoinPool(4));
+        LandmarkBatch alone = new LandmarkBatch(1);
+        alone.add(GestureCodes.TWO, twoHands, 2);
+        ConfusionMatrix aloneMatrix = evaluator.evaluate(alone);
+
+        // The same frame right after the hand signing three, on every range
+        LandmarkBatch batch = new LandmarkBatch(4);
+        for (int i = 0; i < 5000; i++) {
+            batch.add(GestureCodes.THREE, three, 1);
+            batch.add(GestureCodes.TWO, twoHands, 2);
+        }
+        ConfusionMatrix matrix = evaluator.evaluate(batch);
+        for (int actual = GestureCodes.MIN_CODE; actual <= GestureCodes.MAX_CODE; actual++) {
+            assertEquals(5000 * aloneMatrix.count(GestureCodes.TWO, actual),
+                    matrix.count(GestureCodes.TWO, actual));
+        }
+    }
+
+    @Test
+    public void templates_classifyTheCorpusTheyWereBuiltFrom() {
+        LandmarkBatch batch = new LandmarkBatch(4);
+        for (int i = 0; i < 1000; i++) {
+            int digit = i % GestureCodes.DIGIT_COUNT;
+            batch.add(digit, LandmarkFixtures.rotate(LandmarkFixtures.digit(digit), i % 61 - 30), 1);
+        }
+        batch.add(GestureCodes.NO_HANDS, HandLandmarks.newBuffer(), 0);
+
+        TemplateStore templates = EvaluatorMain.buildTemplates(batch);
+        assertEquals(1000, templates.size());
+        ConfusionMatrix matrix = new BatchEvaluator(new TemplateClassifier(templates, 5, 1.5f)::copy,
+                new ForkJoinPool(4)).evaluate(batch);
+        assertEquals(1.0, matrix.accuracy(), 0);
+    }
+
+    @Test
+    public void csvAndJson_readTheSameFrame() throws IOException {
+        float[] five = LandmarkFixtures.digit(GestureCodes.FIVE);
+        StringBuilder csv = new StringBuilder("label,x0,y0,z0\n5");
+        StringBuilder json = new StringBuilder("[{\"label\": \"5\", \"landmarks\": [");
+        for (int i = 0; i < HandLandmarks.FLOATS_PER_HAND; i++) {
+            csv.append(',').append(five[i]);
+            json.append(i == 0 ? "" : ",").append(i % 3 == 0 ? "[" : "").append(five[i]).append(i % 3 == 2 ? "]" : "");
+        }
+        csv.append("\nno_hands\n");
+        json.append("]}, {\"label\": \"no_hands\", \"landmarks\": []}]");
+
+        LandmarkBatch fromCsv = CorpusReader.readCsv(new StringReader(csv.toString()));
+        LandmarkBatch fromJson = CorpusReader.readJson(new StringReader(json.toString()));
+        assertEquals(2, fromCsv.size());
+        assertEquals(2, fromJson.size());
+        float[] csvFrame = HandLandmarks.newBuffer();
+        float[] jsonFrame = HandLandmarks.newBuffer();
+        assertEquals(1, fromCsv.copyFrame(0, csvFrame));
+        assertEquals(1, fromJson.copyFrame(0, jsonFrame));
+        assertArrayEquals(five, csvFrame, 0f);
+        assertArrayEquals(five, jsonFrame, 0f);
+        assertEquals(GestureCodes.NO_HANDS, fromJson.label(1));
+        assertEquals(0, fromCsv.copyFrame(1, csvFrame));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void partialHand_isRejected() throws IOException {
+        CorpusReader.readCsv(new StringReader("5,0.1,0.2,0.3\n"));
+    }
+}
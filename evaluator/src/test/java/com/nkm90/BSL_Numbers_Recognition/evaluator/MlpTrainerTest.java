@@ -0,0 +1,66 @@
+package com.nkm90.BSL_Numbers_Recognition.evaluator;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.MlpClassifier;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link MlpTrainer}.
+ */
+public class MlpTrainerTest {
+
+    /**
+     * Every fixture tilted and scaled at random, plus hands that do not sign a number.
+     */
+    private static LandmarkBatch corpus(long seed, int frames) {
+        Random random = new Random(seed);
+        LandmarkBatch batch = new LandmarkBatch(frames);
+        for (int i = 0; i < frames; i++) {
+            int digit = i % (GestureCodes.DIGIT_COUNT + 1);
+            float[] hand = digit == GestureCodes.DIGIT_COUNT
+                    ? LandmarkFixtures.noGesture() : LandmarkFixtures.digit(digit);
+            hand = LandmarkFixtures.scale(LandmarkFixtures.rotate(hand, random.nextInt(91) - 45),
+                    0.6f + random.nextFloat() * 0.8f);
+            batch.add(digit == GestureCodes.DIGIT_COUNT ? GestureCodes.NO_GESTURE : digit, hand, 1);
+        }
+        return batch;
+    }
+
+    @Test
+    public void trainedModel_classifiesTheFixtures() throws IOException {
+        MlpClassifier model = new MlpTrainer(16, 10, 0.02f, 0.6f, 1).train(corpus(1, 2200));
+
+        LandmarkBatch test = corpus(2, 1100);
+        test.add(GestureCodes.NO_HANDS, HandLandmarks.newBuffer(), 0);
+        ConfusionMatrix matrix = new BatchEvaluator(model::copy, ForkJoinPool.commonPool()).evaluate(test);
+        assertEquals(1.0, matrix.accuracy(), 0);
+
+        Path file = Files.createTempFile("gesture_classifier", ".bin");
+        try {
+            EvaluatorMain.write(model.write(), file);
+            ConfusionMatrix read = new BatchEvaluator(EvaluatorMain.readModel(file)::copy,
+                    ForkJoinPool.commonPool()).evaluate(test);
+            assertEquals(matrix.correct(), read.correct());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corpusWithoutHands_isRejected() {
+        LandmarkBatch batch = new LandmarkBatch(1);
+        batch.add(GestureCodes.NO_HANDS, HandLandmarks.newBuffer(), 0);
+        new MlpTrainer(4, 1, 0.02f, 0.6f, 1).train(batch);
+    }
+}
@@ -0,0 +1,432 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureEngine;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandClassifier;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Classifies the landmark frames sent by many capture devices over TCP, with the
+ * {@link FrameProtocol}, so a fleet of kiosks can share one machine running the gesture rules.
+ * <p>
+ * One thread accepts the connections and hands them in turn to a few event loops, each a thread
+ * with its own selector serving any number of connections, so dozens of streams at 30 frames per
+ * second take a handful of threads. On every round of its selector an event loop reads what the
+ * ready connections sent, gathers their complete frames in a batch and classifies the batch in one
+ * pass, and then writes every result back on the connection it came from, one write per
+ * connection whatever the number of frames it had on the batch.
+ * <p>
+ * Every connection has its own {@link GestureEngine}, as the engine follows the hands of a stream
+ * from one frame to the next. A connection is not read while its results are not being taken by
+ * the client, and it is closed when it sends a frame that does not follow the protocol.
+ */
+public final class ClassificationServer implements Closeable {
+
+    /** Most frames classified in one batch. */
+    static final int MAX_BATCH = 256;
+    // Room for a few frames, so a connection is read in large pieces
+    private static final int INPUT_CAPACITY = 8 * FrameProtocol.LENGTH_BYTES + 8 * FrameProtocol.MAX_REQUEST_BYTES;
+    // Results a connection can have waiting for the client before it stops being read
+    private static final int OUTPUT_CAPACITY = 256 * (FrameProtocol.LENGTH_BYTES + FrameProtocol.RESPONSE_BYTES);
+
+    private final Supplier<HandClassifier> classifiers;
+    private final ServerStats stats = new ServerStats();
+    private final EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * @param classifiers creates the classifier of every connection
+     * @param loopCount number of event loops
+     */
+    public ClassificationServer(Supplier<HandClassifier> classifiers, int loopCount) {
+        if (loopCount <= 0) {
+            throw new IllegalArgumentException("Invalid number of event loops: " + loopCount);
+        }
+        this.classifiers = classifiers;
+        this.loops = new EventLoop[loopCount];
+    }
+
+    /**
+     * Binds the port and starts the threads of the server.
+     *
+     * @param address address to listen on, port 0 picks a free port
+     * @throws IOException when the port cannot be bound
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(Selector.open());
+            loops[i].thread = new Thread(loops[i], "classification-loop-" + i);
+            loops[i].thread.start();
+        }
+        acceptor = new Thread(this::accept, "classification-accept");
+        acceptor.start();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Closes every connection and stops the threads of the server.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        try {
+            acceptor.join();
+            for (EventLoop loop : loops) {
+                loop.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[next].add(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Could not accept a connection: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread serving its share of the connections.
+     */
+    private final class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private Thread thread;
+
+        // Frames of the batch, in the order they were read
+        private final float[][] landmarks = new float[MAX_BATCH][];
+        private final int[] handCounts = new int[MAX_BATCH];
+        private final long[] sequences = new long[MAX_BATCH];
+        private final long[] receivedNanos = new long[MAX_BATCH];
+        private final Connection[] senders = new Connection[MAX_BATCH];
+        private int batchSize;
+        // Connections with results to write after the batch
+        private final ArrayList<Connection> answered = new ArrayList<>();
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+            for (int i = 0; i < MAX_BATCH; i++) {
+                landmarks[i] = HandLandmarks.newBuffer();
+            }
+        }
+
+        void add(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    register();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                    }
+                    classifyBatch();
+                }
+            } catch (IOException e) {
+                System.err.println("Event loop stopped: " + e);
+            } finally {
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Never served
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+
+        private void register() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                Connection connection = new Connection(this, channel);
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    stats.onOpen();
+                } catch (ClosedChannelException e) {
+                    // The client went away before it was registered
+                }
+            }
+        }
+
+        boolean isBatchFull() {
+            return batchSize == MAX_BATCH;
+        }
+
+        /**
+         * @return landmark buffer of the next frame of the batch, filled by the caller before
+         * calling {@link #addFrame}
+         */
+        float[] nextLandmarks() {
+            return landmarks[batchSize];
+        }
+
+        void addFrame(Connection sender, long sequence, int handCount) {
+            senders[batchSize] = sender;
+            sequences[batchSize] = sequence;
+            handCounts[batchSize] = handCount;
+            receivedNanos[batchSize] = System.nanoTime();
+            batchSize++;
+        }
+
+        /**
+         * Classifies the frames gathered since the last batch and writes their results, until
+         * writing them adds no more frames to the batch.
+         */
+        void classifyBatch() {
+            while (batchSize > 0) {
+                for (int i = 0; i < batchSize; i++) {
+                    Connection sender = senders[i];
+                    senders[i] = null;
+                    sender.pending--;
+                    if (!sender.open) {
+                        continue;
+                    }
+                    int code = sender.engine.classify(landmarks[i], handCounts[i]);
+                    FrameProtocol.putResponse(sender.output, sequences[i], code);
+                    if (!sender.answered) {
+                        sender.answered = true;
+                        answered.add(sender);
+                    }
+                }
+                stats.onBatch(batchSize);
+                long now = System.nanoTime();
+                for (int i = 0; i < batchSize; i++) {
+                    stats.onLatency((now - receivedNanos[i]) / 1000);
+                }
+                batchSize = 0;
+                // Writing makes room on a connection that stopped reading, whose frames left on
+                // the input go to the batch, or classify a full one from within this loop
+                while (!answered.isEmpty()) {
+                    Connection connection = answered.remove(answered.size() - 1);
+                    connection.answered = false;
+                    connection.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * State of one client, used from the thread of its event loop only.
+     */
+    private final class Connection {
+
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final GestureEngine engine = new GestureEngine(classifiers.get());
+        private final ByteBuffer input = ByteBuffer.allocate(INPUT_CAPACITY);
+        // Kept ready to be written to, flipped only while writing
+        private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_CAPACITY);
+        private SelectionKey key;
+        // Frames of this connection on the batch, whose results need room on the output
+        private int pending;
+        private boolean answered;
+        // Set while the input is flipped for parsing
+        private boolean parsing;
+        private boolean open = true;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        void read() {
+            int read;
+            try {
+                read = channel.read(input);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            stats.onRead(read);
+            parse();
+        }
+
+        /**
+         * Moves the complete frames of the input to the batch, while their results fit on the
+         * output.
+         */
+        private void parse() {
+            parsing = true;
+            input.flip();
+            while (input.remaining() >= FrameProtocol.LENGTH_BYTES) {
+                int length = input.getInt(input.position());
+                int handCount = FrameProtocol.handCountOf(length);
+                if (handCount < 0) {
+                    parsing = false;
+                    protocolError();
+                    return;
+                }
+                if (input.remaining() < FrameProtocol.LENGTH_BYTES + length || !hasRoomForResult()) {
+                    break;
+                }
+                if (loop.isBatchFull()) {
+                    // Makes room on the batch, the results of this connection included
+                    loop.classifyBatch();
+                    if (!open) {
+                        parsing = false;
+                        return;
+                    }
+                    continue;
+                }
+                input.getInt();
+                long sequence = input.getLong();
+                if (input.getInt() != handCount) {
+                    parsing = false;
+                    protocolError();
+                    return;
+                }
+                float[] landmarks = loop.nextLandmarks();
+                for (int i = 0; i < handCount * HandLandmarks.FLOATS_PER_HAND; i++) {
+                    landmarks[i] = input.getFloat();
+                }
+                loop.addFrame(this, sequence, handCount);
+                pending++;
+            }
+            input.compact();
+            parsing = false;
+            updateInterest();
+        }
+
+        private boolean hasRoomForResult() {
+            int responseBytes = FrameProtocol.LENGTH_BYTES + FrameProtocol.RESPONSE_BYTES;
+            return output.remaining() >= (pending + 1) * responseBytes;
+        }
+
+        void flush() {
+            if (!open) {
+                return;
+            }
+            output.flip();
+            try {
+                stats.onWrite(channel.write(output));
+            } catch (IOException e) {
+                output.compact();
+                close();
+                return;
+            }
+            output.compact();
+            if (!parsing && hasRoomForResult() && input.position() > 0) {
+                // Frames left on the input while the output was full
+                parse();
+            } else {
+                updateInterest();
+            }
+        }
+
+        /**
+         * Reads while the results have room and waits for the socket while some are not written.
+         */
+        private void updateInterest() {
+            if (!open) {
+                return;
+            }
+            int ops = 0;
+            if (hasRoomForResult()) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (output.position() > 0) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        private void protocolError() {
+            stats.onProtocolError();
+            close();
+        }
+
+        void close() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // The connection is gone either way
+            }
+            stats.onClose();
+        }
+    }
+}
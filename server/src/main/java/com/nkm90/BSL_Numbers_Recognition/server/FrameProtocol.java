@@ -0,0 +1,87 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol between the capture devices and the {@link ClassificationServer}. Every message
+ * starts with its length in bytes, not counting the length itself, and all values are big endian.
+ * <pre>
+ * request:  int     length, 12 plus 252 per hand
+ *           long    sequence, chosen by the client and sent back with the result
+ *           int     number of hands, 0 to {@link HandLandmarks#MAX_HANDS}
+ *           float[] X, Y and Z of the 21 landmarks of every hand, as on {@link HandLandmarks}
+ * response: int     length, always 12
+ *           long    sequence of the request
+ *           int     gesture code, see GestureCodes
+ * </pre>
+ * The responses of a connection are sent in the order of its requests.
+ */
+public final class FrameProtocol {
+
+    /** Bytes of the length that starts every message. */
+    public static final int LENGTH_BYTES = 4;
+    /** Bytes of a request without hands, after the length. */
+    public static final int REQUEST_HEADER_BYTES = 12;
+    /** Bytes of every hand of a request. */
+    public static final int HAND_BYTES = HandLandmarks.FLOATS_PER_HAND * 4;
+    /** Longest request, after the length. */
+    public static final int MAX_REQUEST_BYTES = REQUEST_HEADER_BYTES + HandLandmarks.MAX_HANDS * HAND_BYTES;
+    /** Bytes of a response after the length. */
+    public static final int RESPONSE_BYTES = 12;
+
+    private FrameProtocol() {
+    }
+
+    /**
+     * @param handCount number of hands of the request
+     * @return bytes of the request, length included
+     */
+    public static int requestSize(int handCount) {
+        return LENGTH_BYTES + REQUEST_HEADER_BYTES + handCount * HAND_BYTES;
+    }
+
+    /**
+     * Writes a request at the position of the buffer.
+     *
+     * @param buffer buffer with at least {@link #requestSize} bytes remaining
+     * @param sequence value sent back with the result
+     * @param landmarks landmark buffer of the frame
+     * @param handCount number of hands on the landmark buffer
+     */
+    public static void putRequest(ByteBuffer buffer, long sequence, float[] landmarks, int handCount) {
+        buffer.putInt(REQUEST_HEADER_BYTES + handCount * HAND_BYTES);
+        buffer.putLong(sequence);
+        buffer.putInt(handCount);
+        for (int i = 0; i < handCount * HandLandmarks.FLOATS_PER_HAND; i++) {
+            buffer.putFloat(landmarks[i]);
+        }
+    }
+
+    /**
+     * Writes a response at the position of the buffer.
+     *
+     * @param buffer buffer with at least {@link #LENGTH_BYTES} plus {@link #RESPONSE_BYTES} bytes
+     *               remaining
+     * @param sequence sequence of the request
+     * @param code gesture code of the frame
+     */
+    public static void putResponse(ByteBuffer buffer, long sequence, int code) {
+        buffer.putInt(RESPONSE_BYTES);
+        buffer.putLong(sequence);
+        buffer.putInt(code);
+    }
+
+    /**
+     * @param length length read at the start of a request
+     * @return number of hands of the request, or -1 when the length is not valid
+     */
+    public static int handCountOf(int length) {
+        int handBytes = length - REQUEST_HEADER_BYTES;
+        if (handBytes < 0 || length > MAX_REQUEST_BYTES || handBytes % HAND_BYTES != 0) {
+            return -1;
+        }
+        return handBytes / HAND_BYTES;
+    }
+}
@@ -0,0 +1,364 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.HandLandmarks;
+import com.nkm90.BSL_Numbers_Recognition.recording.LandmarkRecordingReader;
+import com.nkm90.BSL_Numbers_Recognition.trace.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many capture devices against a {@link ClassificationServer}, each sending frames at a
+ * steady rate over its own connection, and measures the time every result takes to come back:
+ * <pre>
+ * load-generator [--host name] [--port N] [--clients N] [--fps N] [--seconds N] [--recording file.bslr]
+ * </pre>
+ * The frames come from a landmark recording, or are an open hand with some jitter by default.
+ * Every client is driven from one thread and one selector, as the server serves them. A frame is
+ * stamped with the time it was sent as its sequence, so the round trip is measured when its result
+ * comes back. A client whose previous frames are still waiting to be sent skips the frame, which
+ * is counted as dropped.
+ */
+public final class LoadGenerator {
+
+    private static final String USAGE = "usage: load-generator [--host name] [--port N] [--clients N] [--fps N]"
+            + " [--seconds N] [--recording file.bslr]";
+    private static final int RESPONSE_SIZE = FrameProtocol.LENGTH_BYTES + FrameProtocol.RESPONSE_BYTES;
+    // Time given to the results of the last frames to come back
+    private static final long DRAIN_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int JITTER_FRAMES = 30;
+    private static final float JITTER = 0.004f;
+
+    private final InetSocketAddress address;
+    private final int clientCount;
+    private final long intervalNanos;
+    private final float[][] frames;
+    private final int[] handCounts;
+
+    /**
+     * @param address address of the server
+     * @param clientCount number of connections
+     * @param framesPerSecond frames every connection sends per second
+     * @param frames landmark buffers the clients send in turn
+     * @param handCounts number of hands on every frame
+     */
+    public LoadGenerator(InetSocketAddress address, int clientCount, int framesPerSecond,
+                         float[][] frames, int[] handCounts) {
+        if (clientCount <= 0 || framesPerSecond <= 0 || frames.length == 0 || frames.length != handCounts.length) {
+            throw new IllegalArgumentException("Invalid load: " + clientCount + " clients, "
+                    + framesPerSecond + " fps, " + frames.length + " frames");
+        }
+        this.address = address;
+        this.clientCount = clientCount;
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+        this.frames = frames;
+        this.handCounts = handCounts;
+    }
+
+    /**
+     * Sends frames for a while and then waits for the results still on their way.
+     *
+     * @param durationNanos time the clients send frames for
+     * @return what was sent and received
+     * @throws IOException when a connection fails
+     */
+    public Report run(long durationNanos) throws IOException {
+        Report report = new Report();
+        List<Client> clients = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            long start = System.nanoTime();
+            for (int i = 0; i < clientCount; i++) {
+                // The clients are spread over the interval, as cameras started at different times
+                Client client = new Client(i, start + intervalNanos * i / clientCount);
+                client.channel.register(selector, SelectionKey.OP_CONNECT, client);
+                client.channel.connect(address);
+                clients.add(client);
+            }
+            long end = start + durationNanos;
+            long now = start;
+            while (now < end || (report.received < report.sent && now < end + DRAIN_NANOS)) {
+                long nextSend = Long.MAX_VALUE;
+                if (now < end) {
+                    for (Client client : clients) {
+                        nextSend = Math.min(nextSend, client.nextSend);
+                    }
+                }
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(Math.min(nextSend, end + DRAIN_NANOS) - now);
+                selector.select(Math.max(1, waitMillis));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client client = (Client) key.attachment();
+                    if (key.isConnectable()) {
+                        client.channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    if (key.isReadable()) {
+                        client.read(report);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        client.flush(key);
+                    }
+                }
+                now = System.nanoTime();
+                if (now < end) {
+                    for (Client client : clients) {
+                        if (client.channel.isConnected() && client.nextSend <= now) {
+                            client.send(report, selector);
+                            client.nextSend += intervalNanos;
+                        }
+                    }
+                }
+                now = System.nanoTime();
+            }
+            report.elapsedNanos = System.nanoTime() - start;
+        } finally {
+            for (Client client : clients) {
+                client.channel.close();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Results of a run.
+     */
+    public static final class Report {
+
+        private long sent;
+        private long received;
+        private long dropped;
+        private long elapsedNanos;
+        private final long[] codeCounts = new long[GestureCodes.MAX_CODE - GestureCodes.MIN_CODE + 1];
+        private final LatencyHistogram roundTrip = new LatencyHistogram();
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * @return frames not sent because the connection was still busy with earlier ones
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @param code one of the {@link GestureCodes} values
+         * @return number of results with that code
+         */
+        public long getCodeCount(int code) {
+            return codeCounts[code - GestureCodes.MIN_CODE];
+        }
+
+        /**
+         * @return time from sending a frame to receiving its result, in microseconds
+         */
+        public LatencyHistogram getRoundTrip() {
+            return roundTrip;
+        }
+
+        /**
+         * @return results received per second
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : received * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return a few lines with the results of the run
+         */
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "sent:       %d, %d dropped%n", sent, dropped));
+            text.append(String.format(Locale.ROOT, "received:   %d, %.0f per second%n", received, getThroughput()));
+            text.append(String.format(Locale.ROOT, "round trip: p50 %d us, p99 %d us, p99.9 %d us, max %d us%n",
+                    roundTrip.getPercentile(0.5), roundTrip.getPercentile(0.99),
+                    roundTrip.getPercentile(0.999), roundTrip.getMax()));
+            text.append("codes:     ");
+            for (int code = GestureCodes.MIN_CODE; code <= GestureCodes.MAX_CODE; code++) {
+                if (getCodeCount(code) > 0) {
+                    text.append(' ').append(code).append('=').append(getCodeCount(code));
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * One connection to the server.
+     */
+    private final class Client {
+
+        private final SocketChannel channel = SocketChannel.open();
+        // Kept ready to be written to, flipped only while writing
+        private final ByteBuffer output = ByteBuffer.allocate(4 * FrameProtocol.requestSize(HandLandmarks.MAX_HANDS));
+        private final ByteBuffer input = ByteBuffer.allocate(64 * RESPONSE_SIZE);
+        private int frame;
+        private long nextSend;
+
+        Client(int index, long firstSend) throws IOException {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            // Each client starts at a different frame of the sequence
+            frame = index * 7 % frames.length;
+            nextSend = firstSend;
+        }
+
+        void send(Report report, Selector selector) throws IOException {
+            int handCount = handCounts[frame];
+            if (output.remaining() < FrameProtocol.requestSize(handCount)) {
+                report.dropped++;
+                return;
+            }
+            FrameProtocol.putRequest(output, System.nanoTime(), frames[frame], handCount);
+            frame = (frame + 1) % frames.length;
+            report.sent++;
+            flush(channel.keyFor(selector));
+        }
+
+        void flush(SelectionKey key) throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            key.interestOps(output.position() > 0
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ);
+        }
+
+        void read(Report report) throws IOException {
+            if (channel.read(input) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            long now = System.nanoTime();
+            input.flip();
+            while (input.remaining() >= RESPONSE_SIZE) {
+                if (input.getInt() != FrameProtocol.RESPONSE_BYTES) {
+                    throw new IOException("Unexpected response from the server");
+                }
+                long sentNanos = input.getLong();
+                int code = input.getInt();
+                report.received++;
+                report.roundTrip.record(TimeUnit.NANOSECONDS.toMicros(now - sentNanos));
+                if (code >= GestureCodes.MIN_CODE && code <= GestureCodes.MAX_CODE) {
+                    report.codeCounts[code - GestureCodes.MIN_CODE]++;
+                }
+            }
+            input.compact();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = ServerMain.DEFAULT_PORT;
+        int clients = 32;
+        int fps = 30;
+        int seconds = 10;
+        File recording = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = argument(args, ++i);
+                    break;
+                case "--port":
+                    port = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--fps":
+                    fps = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--recording":
+                    recording = new File(argument(args, ++i));
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+
+        List<float[]> frames = new ArrayList<>();
+        List<Integer> handCounts = new ArrayList<>();
+        if (recording != null) {
+            LandmarkRecordingReader.read(recording, (timestamp, landmarks, handCount) -> {
+                frames.add(landmarks.clone());
+                handCounts.add(handCount);
+            });
+            if (frames.isEmpty()) {
+                System.err.println(recording + " has no frames");
+                System.exit(1);
+            }
+        } else {
+            Random random = new Random(90);
+            float[] hand = openHand();
+            for (int i = 0; i < JITTER_FRAMES; i++) {
+                float[] landmarks = hand.clone();
+                for (int j = 0; j < HandLandmarks.FLOATS_PER_HAND; j++) {
+                    landmarks[j] += (float) random.nextGaussian() * JITTER;
+                }
+                frames.add(landmarks);
+                handCounts.add(1);
+            }
+        }
+        int[] counts = new int[handCounts.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = handCounts.get(i);
+        }
+
+        System.out.printf("clients:    %d at %d fps for %d s, %d frames%n", clients, fps, seconds, frames.size());
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), clients, fps,
+                frames.toArray(new float[0][]), counts);
+        System.out.println(generator.run(TimeUnit.SECONDS.toNanos(seconds)).format());
+    }
+
+    /**
+     * @return a buffer with an upright right hand with every finger open, facing the camera
+     */
+    static float[] openHand() {
+        float[] landmarks = HandLandmarks.newBuffer();
+        float[][] points = {
+                {0.52f, 0.85f}, // wrist
+                {0.45f, 0.80f}, {0.39f, 0.74f}, {0.30f, 0.72f}, {0.22f, 0.70f}, // thumb
+                {0.44f, 0.60f}, {0.44f, 0.52f}, {0.44f, 0.46f}, {0.44f, 0.41f}, // index
+                {0.50f, 0.58f}, {0.50f, 0.50f}, {0.50f, 0.44f}, {0.50f, 0.39f}, // middle
+                {0.56f, 0.59f}, {0.56f, 0.51f}, {0.56f, 0.45f}, {0.56f, 0.40f}, // ring
+                {0.62f, 0.62f}, {0.62f, 0.54f}, {0.62f, 0.48f}, {0.62f, 0.43f}, // pinky
+        };
+        for (int landmark = 0; landmark < HandLandmarks.LANDMARK_COUNT; landmark++) {
+            landmarks[HandLandmarks.x(0, landmark)] = points[landmark][0];
+            landmarks[HandLandmarks.y(0, landmark)] = points[landmark][1];
+            landmarks[HandLandmarks.z(0, landmark)] = -0.01f * (landmark % 4);
+        }
+        return landmarks;
+    }
+
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
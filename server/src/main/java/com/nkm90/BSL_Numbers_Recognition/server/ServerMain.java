@@ -0,0 +1,97 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line entry point of the classification server:
+ * <pre>
+ * server [--port N] [--loops N] [--rules gesture_rules.txt] [--stats seconds]
+ * </pre>
+ * It classifies the frames with the rule file shipped with the app unless another one is given,
+ * and prints the {@link ServerStats} every few seconds until it is stopped.
+ */
+public final class ServerMain {
+
+    /** Port the server listens on and the load generator connects to by default. */
+    static final int DEFAULT_PORT = 7070;
+    private static final String DEFAULT_RULES = "/gesture_rules.txt";
+    private static final String USAGE =
+            "usage: server [--port N] [--loops N] [--rules gesture_rules.txt] [--stats seconds]";
+    private static final int DEFAULT_STATS_SECONDS = 5;
+
+    private ServerMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        int loopCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        Path rulesPath = null;
+        int statsSeconds = DEFAULT_STATS_SECONDS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--loops":
+                    loopCount = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--rules":
+                    rulesPath = Paths.get(argument(args, ++i));
+                    break;
+                case "--stats":
+                    statsSeconds = Integer.parseInt(argument(args, ++i));
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+
+        GestureRuleTable rules = loadRules(rulesPath);
+        ClassificationServer server = new ClassificationServer(() -> new RuleClassifier(rules), loopCount);
+        server.start(new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Could not stop the server: " + e);
+            }
+        }));
+        System.out.printf("listening on port %d with %d event loops%n", server.getPort(), loopCount);
+        while (true) {
+            Thread.sleep(statsSeconds * 1000L);
+            System.out.println(server.getStats().format());
+        }
+    }
+
+    static GestureRuleTable loadRules(Path rulesPath) throws IOException {
+        InputStream input = rulesPath == null
+                ? ServerMain.class.getResourceAsStream(DEFAULT_RULES)
+                : Files.newInputStream(rulesPath);
+        if (input == null) {
+            throw new IOException("Missing " + DEFAULT_RULES + " on the classpath");
+        }
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            return GestureRuleTable.parse(reader);
+        }
+    }
+
+    private static String argument(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return args[index];
+    }
+}
@@ -0,0 +1,113 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.trace.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link ClassificationServer}, updated by the event loops without locks and read
+ * from any thread. The latency is the time from the end of reading a request to its response
+ * being handed to the socket, in microseconds.
+ */
+public final class ServerStats {
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsClosed = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    void onBatch(int size) {
+        batches.incrementAndGet();
+        frames.addAndGet(size);
+    }
+
+    void onRead(int bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void onWrite(int bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    void onOpen() {
+        connectionsOpened.incrementAndGet();
+    }
+
+    void onClose() {
+        connectionsClosed.incrementAndGet();
+    }
+
+    void onProtocolError() {
+        protocolErrors.incrementAndGet();
+    }
+
+    void onLatency(long micros) {
+        latency.record(micros);
+    }
+
+    /**
+     * @return number of frames classified
+     */
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * @return number of batches the frames were classified in
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return number of connections open now
+     */
+    public long getOpenConnections() {
+        return connectionsOpened.get() - connectionsClosed.get();
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * @return number of connections closed because of a request that was not valid
+     */
+    public long getProtocolErrors() {
+        return protocolErrors.get();
+    }
+
+    /**
+     * @return time from reading a request to writing its response
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return one line with the counters
+     */
+    public String format() {
+        long batchCount = batches.get();
+        return String.format(Locale.ROOT,
+                "frames %d, %.1f per batch, connections %d open of %d, errors %d, read %d B, written %d B,"
+                        + " latency us p50 %d p99 %d max %d",
+                frames.get(), batchCount == 0 ? 0.0 : (double) frames.get() / batchCount,
+                getOpenConnections(), connectionsOpened.get(), protocolErrors.get(),
+                bytesRead.get(), bytesWritten.get(),
+                latency.getPercentile(0.5), latency.getPercentile(0.99), latency.getMax());
+    }
+}
@@ -0,0 +1,229 @@
+package com.nkm90.BSL_Numbers_Recognition.server;
+
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureCodes;
+import com.nkm90.BSL_Numbers_Recognition.gesture.GestureRuleTable;
+import com.nkm90.BSL_Numbers_Recognition.gesture.LandmarkFixtures;
+import com.nkm90.BSL_Numbers_Recognition.gesture.RuleClassifier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClassificationServerTest {
+
+    private ClassificationServer server;
+    private InetSocketAddress address;
+
+    @Before
+    public void setUp() throws IOException {
+        GestureRuleTable rules = ServerMain.loadRules(null);
+        server = new ClassificationServer(() -> new RuleClassifier(rules), 2);
+        server.start(new InetSocketAddress("localhost", 0));
+        address = new InetSocketAddress("localhost", server.getPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void manyConnections_getTheResultsOfTheirOwnFrames() throws IOException {
+        SocketChannel[] clients = new SocketChannel[6];
+        for (int client = 0; client < clients.length; client++) {
+            clients[client] = SocketChannel.open(address);
+        }
+        for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+            for (int client = 0; client < clients.length; client++) {
+                send(clients[client], client * 100 + digit, LandmarkFixtures.digit(digit), 1);
+            }
+        }
+        for (int client = 0; client < clients.length; client++) {
+            for (int digit = 0; digit < GestureCodes.DIGIT_COUNT; digit++) {
+                ByteBuffer response = receive(clients[client]);
+                assertEquals(client * 100 + digit, response.getLong());
+                assertEquals(digit, response.getInt());
+            }
+            clients[client].close();
+        }
+        assertEquals(6 * GestureCodes.DIGIT_COUNT, server.getStats().getFrames());
+    }
+
+    @Test
+    public void twoHandsAndNoHands_areClassified() throws IOException {
+        try (SocketChannel client = SocketChannel.open(address)) {
+            send(client, 1, LandmarkFixtures.twoHands(LandmarkFixtures.digit(5), LandmarkFixtures.digit(2)), 2);
+            send(client, 2, new float[0], 0);
+            assertEquals(GestureCodes.SEVEN, receive(client).getInt(8));
+            assertEquals(GestureCodes.NO_HANDS, receive(client).getInt(8));
+        }
+    }
+
+    @Test
+    public void frameSplitOverManyWrites_isReassembled() throws IOException {
+        try (SocketChannel client = SocketChannel.open(address)) {
+            ByteBuffer request = ByteBuffer.allocate(FrameProtocol.requestSize(1));
+            FrameProtocol.putRequest(request, 42, LandmarkFixtures.digit(3), 1);
+            request.flip();
+            ByteBuffer oneByte = ByteBuffer.allocate(1);
+            while (request.hasRemaining()) {
+                oneByte.clear();
+                oneByte.put(request.get());
+                oneByte.flip();
+                client.write(oneByte);
+            }
+            ByteBuffer response = receive(client);
+            assertEquals(42, response.getLong());
+            assertEquals(GestureCodes.THREE, response.getInt());
+        }
+    }
+
+    @Test
+    public void burstOfFrames_isAnsweredInOrder() throws IOException {
+        int frames = 2000;
+        try (SocketChannel client = SocketChannel.open(address)) {
+            ByteBuffer requests = ByteBuffer.allocate(frames * FrameProtocol.requestSize(1));
+            for (int i = 0; i < frames; i++) {
+                FrameProtocol.putRequest(requests, i, LandmarkFixtures.digit(i % 10), 1);
+            }
+            requests.flip();
+            while (requests.hasRemaining()) {
+                client.write(requests);
+            }
+            for (int i = 0; i < frames; i++) {
+                ByteBuffer response = receive(client);
+                assertEquals(i, response.getLong());
+                assertEquals(i % 10, response.getInt());
+            }
+        }
+    }
+
+    /**
+     * Sends frames without reading the results until the server stops taking them, and checks
+     * every result comes back once the client reads.
+     */
+    @Test(timeout = 60_000)
+    public void clientNotReading_getsEveryResultOnceItReads() throws IOException {
+        int responseBytes = FrameProtocol.LENGTH_BYTES + FrameProtocol.RESPONSE_BYTES;
+        try (SocketChannel client = SocketChannel.open(); Selector selector = Selector.open()) {
+            client.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+            client.connect(address);
+            client.configureBlocking(false);
+            SelectionKey key = client.register(selector, SelectionKey.OP_WRITE);
+            ByteBuffer request = ByteBuffer.allocate(FrameProtocol.requestSize(1));
+            request.flip();
+            long sent = 0;
+            // Fills the socket buffers both ways, until the server stops reading
+            while (true) {
+                if (!request.hasRemaining()) {
+                    request.clear();
+                    FrameProtocol.putRequest(request, sent, LandmarkFixtures.digit((int) (sent % 10)), 1);
+                    request.flip();
+                    sent++;
+                }
+                if (client.write(request) == 0) {
+                    if (selector.select(500) == 0) {
+                        break;
+                    }
+                    selector.selectedKeys().clear();
+                }
+            }
+            assertTrue("only " + sent + " frames sent", sent * responseBytes > 2 * 4096);
+
+            // Takes the results one at a time while the last frame is written, so the server
+            // keeps waiting for the client until its last frames
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            ByteBuffer responses = ByteBuffer.allocate(responseBytes);
+            long received = 0;
+            while (received < sent) {
+                assertTrue("no result after " + received + " of " + sent, selector.select(10_000) > 0);
+                selector.selectedKeys().clear();
+                if (request.hasRemaining()) {
+                    client.write(request);
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                if (client.read(responses) < 0) {
+                    throw new IOException("Connection closed");
+                }
+                responses.flip();
+                while (responses.remaining() >= responseBytes) {
+                    assertEquals(FrameProtocol.RESPONSE_BYTES, responses.getInt());
+                    assertEquals(received, responses.getLong());
+                    assertEquals(received % 10, responses.getInt());
+                    received++;
+                }
+                responses.compact();
+            }
+        }
+        assertEquals(0, server.getStats().getProtocolErrors());
+    }
+
+    @Test
+    public void invalidLength_closesTheConnection() throws IOException {
+        try (SocketChannel client = SocketChannel.open(address)) {
+            ByteBuffer request = ByteBuffer.allocate(FrameProtocol.LENGTH_BYTES + 13);
+            request.putInt(13);
+            request.flip();
+            client.write(request);
+            assertEquals(-1, client.read(ByteBuffer.allocate(16)));
+        }
+        assertEquals(1, server.getStats().getProtocolErrors());
+
+        // Other connections are still served
+        try (SocketChannel client = SocketChannel.open(address)) {
+            send(client, 7, LandmarkFixtures.digit(1), 1);
+            assertEquals(GestureCodes.ONE, receive(client).getInt(8));
+        }
+    }
+
+    @Test
+    public void loadGenerator_getsEveryResultBack() throws IOException {
+        LoadGenerator generator = new LoadGenerator(address, 24, 30,
+                new float[][]{LoadGenerator.openHand()}, new int[]{1});
+        LoadGenerator.Report report = generator.run(TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue("only " + report.getSent() + " frames sent", report.getSent() >= 24 * 25);
+        assertEquals(0, report.getDropped());
+        assertEquals(report.getSent(), report.getReceived());
+        assertEquals(report.getReceived(), report.getCodeCount(GestureCodes.FIVE));
+        assertEquals(report.getReceived(), report.getRoundTrip().getCount());
+    }
+
+    private static void send(SocketChannel client, long sequence, float[] landmarks, int handCount)
+            throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(FrameProtocol.requestSize(handCount));
+        FrameProtocol.putRequest(request, sequence, landmarks, handCount);
+        request.flip();
+        while (request.hasRemaining()) {
+            client.write(request);
+        }
+    }
+
+    /**
+     * @return the response after its length, positioned on the sequence
+     */
+    private static ByteBuffer receive(SocketChannel client) throws IOException {
+        ByteBuffer response = ByteBuffer.allocate(FrameProtocol.LENGTH_BYTES + FrameProtocol.RESPONSE_BYTES);
+        while (response.hasRemaining()) {
+            if (client.read(response) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        response.flip();
+        assertEquals(FrameProtocol.RESPONSE_BYTES, response.getInt());
+        return response.slice();
+    }
+}